@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.commandLine;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import fr.inria.lille.shexjava.util.MappedGraph;
+
+/** Command line tool that creates the index of a graph that can be given to {@link Validate} with the option -i.
+ * 
+ * @author Jérémie Dusart
+ */
+public class CreateGraphIndex {
+	
+	/** Creates the index of a data file.
+	 * 
+	 * Arguments:
+	 * <data file> : the format is guessed from the extension of the file name, N-Triples by default
+	 * <index directory>
+	 * 
+	 * @param args
+	 * @throws Exception 
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.out.println("Usage:");
+			System.out.println("  <data file> <index directory>");
+			return;
+		}
+		RDFFormat format = Rio.getParserFormatForFileName(args[0]).orElse(RDFFormat.NTRIPLES);
+		try (InputStream input = Files.newInputStream(Paths.get(args[0]));
+				MappedGraph graph = MappedGraph.create(input, format, Paths.get(args[0]).toUri().toString(), Paths.get(args[1]))) {
+			System.out.println("Index of " + graph.size() + " triples created in " + args[1] + ".");
+		}
+	}
+}
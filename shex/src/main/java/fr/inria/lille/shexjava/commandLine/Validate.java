@@ -19,14 +19,19 @@ package fr.inria.lille.shexjava.commandLine;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.RDF;
 import org.apache.commons.rdf.api.RDFTerm;
 import org.apache.commons.rdf.rdf4j.RDF4J;
@@ -38,9 +43,11 @@ import org.eclipse.rdf4j.rio.Rio;
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
 import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.MappedGraph;
 import fr.inria.lille.shexjava.validation.RecursiveValidation;
 import fr.inria.lille.shexjava.validation.RefineValidation;
 import fr.inria.lille.shexjava.validation.Status;
+import fr.inria.lille.shexjava.validation.StreamingValidation;
 import fr.inria.lille.shexjava.validation.ValidationAlgorithmAbstract;
 
 /** Command line tool for validation.
@@ -56,9 +63,10 @@ public class Validate {
 	 * Options:
 	 * -s <schema file>
 	 * -d <data file>
+	 * -i <graph index directory> : instead of -d, an index created by {@link MappedGraph#create(InputStream, RDFFormat, String, java.nio.file.Path)}
 	 * -f <focus node> : optional
 	 * -l <shape label> : optional
-	 * -a "refine" | "recursive"
+	 * -a "refine" | "recursive" | "stream" : "stream" validates the subjects of a data file sorted by subject one by one, see {@link StreamingValidation}
 	 * -out <file name>
 	 * 
 	 * 
@@ -80,14 +88,14 @@ public class Validate {
 		}
 		
 		if (! parameters.keySet().contains("-s") ||
-				! parameters.keySet().contains("-d") ||
+				parameters.keySet().contains("-d") == parameters.keySet().contains("-i") ||
 				! parameters.keySet().contains("-a")) {
 			System.out.println("Mandatory argument missing.");
 			System.out.println(USAGE);
 			return;
 		}
 		
-		if (! parameters.get("-a").equals("refine") && ! parameters.get("-a").equals("recursive")) {
+		if (! parameters.get("-a").equals("refine") && ! parameters.get("-a").equals("recursive") && ! parameters.get("-a").equals("stream")) {
 			System.out.println("Invalid algorithm : " + parameters.get("-a"));
 			System.out.println(USAGE);
 			return;
@@ -99,8 +107,19 @@ public class Validate {
 			return;
 		}
 		
-		Model dataModel = getData(parameters.get("-d"));
-		if (dataModel == null) {
+		if (parameters.get("-a").equals("stream")) {
+			validateStream(schema, parameters);
+			return;
+		}
+		
+		Graph dataGraph;
+		if (parameters.get("-i") != null) {
+			dataGraph = getIndex(parameters.get("-i"));
+		} else {
+			Model dataModel = getData(parameters.get("-d"));
+			dataGraph = dataModel == null ? null : (new RDF4J()).asGraph(dataModel);
+		}
+		if (dataGraph == null) {
 			System.err.println("Was unable to parse the data. Aborting.");
 			return;
 		}
@@ -115,11 +134,11 @@ public class Validate {
 		
 		ValidationAlgorithmAbstract val = null;
 		switch (parameters.get("-a")) {
-			case "refine" : val = new RefineValidation(schema, (new RDF4J()).asGraph(dataModel)); break;
-			case "recursive" : val = new RecursiveValidation(schema, (new RDF4J()).asGraph(dataModel)); break;
+			case "refine" : val = new RefineValidation(schema, dataGraph); break;
+			case "recursive" : val = new RecursiveValidation(schema, dataGraph); break;
 		}
 		
-		System.out.println("Validating graph " + parameters.get("-d") + " against schema " + parameters.get("-s") + ".");
+		System.out.println("Validating graph " + (parameters.get("-d") != null ? parameters.get("-d") : parameters.get("-i")) + " against schema " + parameters.get("-s") + ".");
 		val.validate(focusNode, shapeLabel);
 		System.out.println("Typing constructed.");
 		
@@ -143,6 +162,45 @@ public class Validate {
 	}
 	
 	
+	/** Validates the subjects of the data file against the label, or against all the labels of the rules that can be validated on the triples of the subject only, 
+	 * and writes the results as they are computed.
+	 */
+	private static void validateStream(ShexSchema schema, Map<String, String> parameters) throws IOException {
+		if (parameters.get("-d") == null || parameters.get("-f") != null) {
+			System.out.println("The stream algorithm needs a data file and validates all its subjects.");
+			System.out.println(USAGE);
+			return;
+		}
+		
+		StreamingValidation validation;
+		try {
+			if (parameters.get("-l") != null) {
+				validation = new StreamingValidation(schema, Collections.singleton(new Label(rdfFactory.createIRI(parameters.get("-l")))));
+			} else {
+				StreamingValidation checker = new StreamingValidation(schema, Collections.emptyList());
+				List<Label> labels = new ArrayList<>();
+				for (Label label : schema.getRules().keySet())
+					if (checker.isLocal(label))
+						labels.add(label);
+				validation = new StreamingValidation(schema, labels);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		
+		String dataFileName = parameters.get("-d");
+		RDFFormat format = Rio.getParserFormatForFileName(dataFileName).orElse(RDFFormat.NTRIPLES);
+		System.out.println("Validating the subjects of " + dataFileName + " against schema " + parameters.get("-s") + ".");
+		try (InputStream input = new URL(dataFileName).openStream();
+				PrintWriter writer = parameters.get("-out") != null ? new PrintWriter(Files.newBufferedWriter(Paths.get(parameters.get("-out")))) : new PrintWriter(System.out)) {
+			validation.validate(input, format, dataFileName, (node, label, conformant) -> 
+				writer.println(String.format(conformant ? "%s SATISFIES %s" : "%s DOES NOT SATISFY %s", node, label)));
+		} catch (IllegalStateException e) {
+			System.err.println("Error while validating the data file. Caused by: " + e.getMessage());
+		}
+	}
+	
 	private static ShexSchema getSchema (String schemaFileName) {
 		ShexSchema schema;
 		try {
@@ -177,6 +235,16 @@ public class Validate {
 		return dataModel;
 	}
 	
+	private static Graph getIndex (String directory) {
+		try {
+			return MappedGraph.open(Paths.get(directory));
+		} catch (Exception e) {
+			System.err.println("Error while opening the graph index.");
+			System.err.println("Caused by: ");
+			System.err.println(e.getMessage());
+			return null;
+		}
+	}
 	
 	
 	private static Map<String,String> parseParameters(String[] args) {
@@ -185,6 +253,7 @@ public class Validate {
 		Map<String, String> parameters = new HashMap<>();
 		Set<String> correctParameters = new HashSet<>();
 		correctParameters.add("-s"); correctParameters.add("-d"); 	
+		correctParameters.add("-i");
 		correctParameters.add("-f"); correctParameters.add("-l");
 		correctParameters.add("-a"); correctParameters.add("-out"); 	
 		
@@ -206,9 +275,10 @@ public class Validate {
 		text.append("Usage:\n");
 		text.append("  -s <schema file>          : path to a ShEx schema in json format\n");
 		text.append("  -d <data file>            : path to a data file in .ttl format\n");
+		text.append("  -i <index directory>      : instead of -d, path to a graph index created with CreateGraphIndex\n");
 		text.append("  -f <focus node>           : (optional) IRI of the node to be checked\n");
 		text.append("  -l <shape label>          : (optional) IRI of a sape label to be checked\n");
-		text.append("  -a \"refine\" | \"recursive\" : the algorithm to be used\n");
+		text.append("  -a \"refine\" | \"recursive\" | \"stream\" : the algorithm to be used, \"stream\" validates one by one the subjects of a data file sorted by subject\n");
 		text.append("  -out <output file>        : (optional) a path to a file where the resulting typing will be written\n");
 		USAGE = text.toString();
 	}
@@ -62,6 +62,7 @@ import fr.inria.lille.shexjava.schema.analysis.SchemaCollectors;
 import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
 import fr.inria.lille.shexjava.schema.analysis.TripleExpressionVisitor;
 import fr.inria.lille.shexjava.util.Pair;
+import fr.inria.lille.shexjava.validation.CompiledSchema;
 
 /** A ShEx schema.
  * 
@@ -84,6 +85,7 @@ public class ShexSchema {
 	
 	/** The factory used for creating fresh {@link Label}s */
 	private RDF rdfFactory;
+	private volatile CompiledSchema compiledSchema;
 	
 	/** Constructs a ShEx schema whenever the set of rules defines a well-defined schema.
 	 * Otherwise, an exception is thrown.
@@ -216,6 +218,21 @@ public class ShexSchema {
 	public RDF getRdfFactory() {
 		return rdfFactory;
 	}
+	
+	/** The structures used by the validation algorithms, computed the first time they are requested and shared by all the validations against this schema. */
+	public CompiledSchema getCompiledSchema() {
+		CompiledSchema result = compiledSchema;
+		if (result == null) {
+			synchronized (this) {
+				result = compiledSchema;
+				if (result == null) {
+					result = new CompiledSchema(this);
+					compiledSchema = result;
+				}
+			}
+		}
+		return result;
+	}
 
 	@Override
 	public String toString() {
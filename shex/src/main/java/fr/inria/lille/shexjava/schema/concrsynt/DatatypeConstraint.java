@@ -30,6 +30,7 @@ import org.apache.commons.rdf.simple.Types ;
 
 import fr.inria.lille.shexjava.util.DatatypeUtil;
 import fr.inria.lille.shexjava.util.RDFPrintUtils;
+import fr.inria.lille.shexjava.util.XSDDatatype;
 
 
 
@@ -67,9 +68,13 @@ public class DatatypeConstraint implements Constraint {
 				}};
 	
 	private IRI datatypeIri;
+	/** The scanner of the lexical forms if the datatype is validated, resolved once. */
+	private XSDDatatype checkedDatatype;
 	
 	public DatatypeConstraint(IRI datatypeIri) {
 		this.datatypeIri = datatypeIri;
+		if (validatedDatatype.contains(datatypeIri))
+			this.checkedDatatype = XSDDatatype.forIri(datatypeIri);
 	}
 
 	public IRI getDatatypeIri() {
@@ -81,6 +86,8 @@ public class DatatypeConstraint implements Constraint {
 		if (! (node instanceof Literal)) return false;
 		Literal lnode = (Literal) node;
 		if (!(datatypeIri.equals(lnode.getDatatype()))) return false;
+		if (checkedDatatype != null)
+			return checkedDatatype.isValid(lnode.getLexicalForm());
 		if (validatedDatatype.contains(lnode.getDatatype())) {
 			return DatatypeUtil.isValidValue(lnode);
 		}
@@ -17,6 +17,7 @@
 package fr.inria.lille.shexjava.schema.concrsynt;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Collections;
 import java.util.Map;
 
@@ -24,6 +25,7 @@ import org.apache.commons.rdf.api.Literal;
 import org.apache.commons.rdf.api.RDFTerm;
 
 import fr.inria.lille.shexjava.util.DatatypeUtil;
+import fr.inria.lille.shexjava.util.XSDDatatype;
 
 /**
  * 
@@ -31,31 +33,44 @@ import fr.inria.lille.shexjava.util.DatatypeUtil;
  * @author Jérémie Dusart
  */
 public class FacetNumericConstraint implements Constraint {
+	private final static BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE), LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+	
 	private BigDecimal minincl, minexcl, maxincl, maxexcl;
 	private Integer totalDigits, fractionDigits;
+	/** The range facets specialised when they are set: the bounds of the long values that satisfy them, */
+	private long minLong = Long.MIN_VALUE, maxLong = Long.MAX_VALUE;
+	/** the bounds rounded to doubles, infinite when they are not set, */
+	private double mininclDouble = Double.NEGATIVE_INFINITY, minexclDouble = Double.NEGATIVE_INFINITY;
+	private double maxinclDouble = Double.POSITIVE_INFINITY, maxexclDouble = Double.POSITIVE_INFINITY;
+	/** and whether the rounded bounds give the same comparisons as the exact ones, see {@link XSDDatatype#comparableDoubleValue(String)}. */
+	private boolean comparableAsDouble = true;
 	
 	public void setMinincl(BigDecimal minincl) {
 		if (this.minincl == null)
 			this.minincl = minincl;
 		else throw new IllegalStateException("mininclusive already set");
+		specialiseBounds();
 	}	
 	
 	public void setMinexcl(BigDecimal minexcl) {
 		if (this.minexcl == null)
 			this.minexcl = minexcl;
 		else throw new IllegalStateException("minexclusive already set");
+		specialiseBounds();
 	}	
 
 	public void setMaxincl(BigDecimal maxincl) {
 		if (this.maxincl == null)
 			this.maxincl = maxincl;
 		else throw new IllegalStateException("mininclusive already set");
+		specialiseBounds();
 	}	
 	
 	public void setMaxexcl(BigDecimal maxexcl) {
 		if (this.maxexcl == null)
 			this.maxexcl = maxexcl;
 		else throw new IllegalStateException("minexclusive already set");
+		specialiseBounds();
 	}	
 	
 	public void setTotalDigits(Integer totalDigits) {
@@ -69,18 +84,84 @@ public class FacetNumericConstraint implements Constraint {
 			this.fractionDigits = fractionDigits;
 		else throw new IllegalStateException("fraction digits already set");
 	}
+	
+	/** Computes the primitive bounds used for the integers that fit a long and for the values that are decoded as doubles. */
+	private void specialiseBounds() {
+		BigDecimal min = LONG_MIN, max = LONG_MAX;
+		if (minincl != null)
+			min = min.max(minincl.setScale(0, RoundingMode.CEILING));
+		if (minexcl != null)
+			min = min.max(minexcl.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE));
+		if (maxincl != null)
+			max = max.min(maxincl.setScale(0, RoundingMode.FLOOR));
+		if (maxexcl != null)
+			max = max.min(maxexcl.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE));
+		// The decoded longs have less than 19 digits, so the bounds can be clamped to the range of long
+		minLong = min.min(LONG_MAX).longValueExact();
+		maxLong = max.max(LONG_MIN).longValueExact();
+		
+		mininclDouble = toDouble(minincl, Double.NEGATIVE_INFINITY);
+		minexclDouble = toDouble(minexcl, Double.NEGATIVE_INFINITY);
+		maxinclDouble = toDouble(maxincl, Double.POSITIVE_INFINITY);
+		maxexclDouble = toDouble(maxexcl, Double.POSITIVE_INFINITY);
+		comparableAsDouble = isComparableAsDouble(minincl) && isComparableAsDouble(minexcl) && isComparableAsDouble(maxincl) && isComparableAsDouble(maxexcl);
+	}
+	
+	private static double toDouble(BigDecimal bound, double unset) {
+		return bound == null ? unset : bound.doubleValue();
+	}
+	
+	private static boolean isComparableAsDouble(BigDecimal bound) {
+		return bound == null || XSDDatatype.isComparableAsDouble(bound);
+	}
 
 	@Override
 	public boolean contains(RDFTerm node) {
 		if (! (node instanceof Literal)) return false;
 		Literal lnode = (Literal) node;
+		String lexicalForm = lnode.getLexicalForm();
+		XSDDatatype datatype = XSDDatatype.forIri(lnode.getDatatype());
 		
-		if (!DatatypeUtil.isValidDouble(lnode))
+		if (datatype != null && datatype.isNumeric()) {
+			if (! datatype.isValid(lexicalForm))
+				return false;
+			if (datatype.hasLongValue(lexicalForm))
+				return containsLong(XSDDatatype.longValue(lexicalForm));
+			if (comparableAsDouble && totalDigits == null && fractionDigits == null) {
+				double value = XSDDatatype.comparableDoubleValue(lexicalForm);
+				if (! Double.isNaN(value))
+					return mininclDouble <= value && minexclDouble < value && value <= maxinclDouble && value < maxexclDouble;
+			}
+		}
+		return containsDecimal(lnode, lexicalForm, datatype);
+	}
+	
+	private boolean containsLong(long value) {
+		if (value < minLong || value > maxLong)
 			return false;
-		if (!DatatypeUtil.isValidValue(lnode))
+		if (totalDigits==null & fractionDigits==null)
+			return true;
+		int nbDigits = 1;
+		for (long v = Math.abs(value); v >= 10; v /= 10)
+			nbDigits++;
+		return satisfiesDigits(nbDigits, 0, value < 0);
+	}
+	
+	private boolean containsDecimal(Literal lnode, String lexicalForm, XSDDatatype datatype) {
+		// The lexical form must be a valid xsd:double and a valid value of its datatype
+		BigDecimal dv;
+		if (datatype != null && datatype.isNumeric()) {
+			dv = datatype.decimalValue(lexicalForm);
+			if (dv != null && datatype.isDecimal() && !isInDoubleRange(dv))
+				return false;
+		} else {
+			dv = XSDDatatype.DOUBLE.decimalValue(lexicalForm);
+			if (dv != null && !(datatype != null ? datatype.isValid(lexicalForm) : DatatypeUtil.isValidValue(lnode)))
+				return false;
+		}
+		if (dv == null)
 			return false;
-		
-		BigDecimal dv = DatatypeUtil.getDecimalValue(lnode).stripTrailingZeros();
+		dv = dv.stripTrailingZeros();
 		
 		if (minincl != null && dv.compareTo(minincl) < 0)
 			return false;
@@ -94,34 +175,30 @@ public class FacetNumericConstraint implements Constraint {
 		if (totalDigits==null & fractionDigits==null)
 			return true;
 		
-		if (!DatatypeUtil.isDecimalDatatype(lnode)){
+		if (datatype == null || !datatype.isDecimal()){
 			return false;
 		}
 		
-		String normalizedValue = DatatypeUtil.normalize(lnode);		
-		if (totalDigits != null && totalDigits < computeTotalDigit(normalizedValue)) 
+		// The canonical lexical form of a xsd:decimal always has a fractional part
+		int nbFractionDigits = dv.scale() > 0 ? dv.scale() : datatype.isInteger() ? 0 : 1;
+		return satisfiesDigits(Math.max(dv.precision() - dv.scale(), 1), nbFractionDigits, dv.signum() < 0);
+	}
+	
+	/** Checks the digits facets on the canonical lexical form of the value, in which the minus sign is counted as a digit. */
+	private boolean satisfiesDigits(int nbIntegerDigits, int nbFractionDigits, boolean negative) {
+		if (totalDigits != null && totalDigits < nbIntegerDigits + nbFractionDigits + (negative ? 1 : 0)) 
 			return false;
-		
-		if (fractionDigits != null && fractionDigits < computeFractionDigit(normalizedValue)) 
+		if (fractionDigits != null && fractionDigits < nbFractionDigits) 
 			return false;
-		
 		return true;
 	}
 	
-	private int computeTotalDigit(String value) {
-		if (! value.contains("."))
-			return (value.length());
-		
-		String entier = value.substring( 0, value.indexOf("."));	
-	
-		return String.valueOf(entier).length()+computeFractionDigit(value);
-	}
-	
-	private int computeFractionDigit(String value) {
-		if (! value.contains("."))
-			return 0;
-		String decim = value.substring( value.indexOf(".")+1,value.length());
-		return String.valueOf(decim).length();
+	/** True if the exponent of the scientific notation of the value is accepted for a xsd:double lexical form. */
+	private static boolean isInDoubleRange(BigDecimal value) {
+		if (value.signum() == 0)
+			return true;
+		long exponent = (long) value.precision() - value.scale() - 1;
+		return -1075 <= exponent && exponent <= 970;
 	}
 	
 	@Override
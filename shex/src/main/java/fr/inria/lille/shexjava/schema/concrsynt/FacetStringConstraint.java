@@ -24,7 +24,7 @@ import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.Literal;
 import org.apache.commons.rdf.api.RDFTerm;
 
-import fr.inria.lille.shexjava.util.XPath;
+import fr.inria.lille.shexjava.util.XPathRegex;
 
 /**
  * 
@@ -36,11 +36,14 @@ public class FacetStringConstraint implements Constraint {
 	private Integer length, minlength, maxlength;
 	private String patternString;
 	private String flags;
+	/** The pattern compiled with the flags, or null if there is no pattern */
+	private XPathRegex pattern;
 	
 	public void setFlags(String flags) {
 		if (this.flags == null)
 			this.flags = flags;
 		else throw new IllegalStateException("flags already set");
+		compilePattern();
 	}
 		
 	public void setLength(Integer length) {
@@ -64,7 +67,13 @@ public class FacetStringConstraint implements Constraint {
 		if (this.patternString == null)
 			this.patternString = patternString;
 		else throw new IllegalStateException("pattern already set");
+		compilePattern();
 	}
+	
+	private void compilePattern() {
+		pattern = patternString == null ? null : XPathRegex.compile(patternString, flags);
+	}
+	
 	@Override
 	public boolean contains(RDFTerm node) {
 		String lex = null;
@@ -74,7 +83,7 @@ public class FacetStringConstraint implements Constraint {
 			lex = ((IRI)node).getIRIString();
 		else if (node instanceof BlankNode)
 			lex = ((BlankNode)node).ntriplesString().substring(2);
-		if (patternString != null && ! XPath.matches(lex, patternString,flags))
+		if (pattern != null && ! pattern.matches(lex))
 			return false;
 		if (length != null && lex.length() != length)
 			return false;
@@ -183,6 +192,7 @@ public class FacetStringConstraint implements Constraint {
 
 	public void setPatternString(String patternString) {
 		this.patternString = patternString;
+		compilePattern();
 	}
 
 	public Integer getLength() {
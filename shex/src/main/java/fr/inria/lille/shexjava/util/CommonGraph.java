@@ -16,13 +16,14 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.util;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.rdf.api.BlankNodeOrIRI;
 import org.apache.commons.rdf.api.Graph;
@@ -43,28 +44,120 @@ public class CommonGraph {
 	public static List<Triple> getOutNeighbours(Graph g, RDFTerm focusNode){
 		if (focusNode instanceof Literal)
 			return Collections.emptyList();
-		return g.stream((BlankNodeOrIRI) focusNode, null, null).collect(Collectors.toList());
+		return g.stream((BlankNodeOrIRI) focusNode, null, null).collect(Collectors.toCollection(ArrayList::new));
 	}
 	
+	/** Returned by {@link #getAverageDegree(Graph, int)} and accepted as expected degree when the degree of the nodes is not known. */
+	public static final long UNKNOWN_DEGREE = -1;
+	/** Number of triples that a scan of the neighbourhood of a node filters in the time of one lookup by node and predicate. */
+	public static final int LOOKUP_COST = 4;
+	/** Number of predicates above which the neighbourhood is retrieved with a single scan when the degree of the node is not known. */
+	public static final int SCAN_THRESHOLD = 8;
+	
 	public static List<Triple> getOutNeighboursWithPredicate(Graph g,RDFTerm focusNode, Set<IRI> predicates){
-		if (focusNode instanceof Literal)
+		return getOutNeighboursWithPredicate(g, focusNode, predicates, UNKNOWN_DEGREE);
+	}
+	
+	/** Retrieves the triples whose subject is the focus node and whose predicate is one of the given predicates.
+	 * The triples are retrieved either with one lookup per predicate, or with a single scan of the triples of the focus node
+	 * filtered by the predicates when there are many predicates compared with the expected number of triples of the node.
+	 * The scan is abandoned for the lookups as soon as it has read more triples than the lookups would cost, 
+	 * so that a node with many more triples than expected (e.g. a hub) is not scanned in full.
+	 * The triples of an {@link IndexedGraph} are retrieved with its own index.
+	 * 
+	 * @param g
+	 * @param focusNode
+	 * @param predicates
+	 * @param expectedDegree the expected number of triples of the focus node, or {@link #UNKNOWN_DEGREE}
+	 * @return
+	 */
+	public static List<Triple> getOutNeighboursWithPredicate(Graph g,RDFTerm focusNode, Set<IRI> predicates, long expectedDegree){
+		if (focusNode instanceof Literal || predicates.isEmpty())
 			return Collections.emptyList();
-		List<Triple> result = new LinkedList<>();
+		if (g instanceof IndexedGraph)
+			return ((IndexedGraph) g).getOutTriples(focusNode, predicates);
+		if (useSingleScan(predicates.size(), expectedDegree)) {
+			try (Stream<? extends Triple> triples = g.stream((BlankNodeOrIRI) focusNode, null, null)) {
+				List<Triple> result = scan(triples, predicates);
+				if (result != null)
+					return result;
+			}
+		}
+		List<Triple> result = new ArrayList<>();
 		for (IRI pred:predicates)
-			result.addAll(g.stream((BlankNodeOrIRI) focusNode, pred, null).collect(Collectors.toList()));
+			g.stream((BlankNodeOrIRI) focusNode, pred, null).forEachOrdered(result::add);
 		return result;
 	}
 	
 	public static List<Triple> getInNeighboursWithPredicate(Graph g,RDFTerm focusNode, Set<IRI> predicates){
-		if (focusNode instanceof Literal)
+		return getInNeighboursWithPredicate(g, focusNode, predicates, UNKNOWN_DEGREE);
+	}
+	
+	/** Retrieves the triples whose object is the focus node and whose predicate is one of the given predicates.
+	 * 
+	 * @param g
+	 * @param focusNode
+	 * @param predicates
+	 * @param expectedDegree the expected number of triples of the focus node, or {@link #UNKNOWN_DEGREE}
+	 * @return
+	 * @see #getOutNeighboursWithPredicate(Graph, RDFTerm, Set, long)
+	 */
+	public static List<Triple> getInNeighboursWithPredicate(Graph g,RDFTerm focusNode, Set<IRI> predicates, long expectedDegree){
+		if (focusNode instanceof Literal || predicates.isEmpty())
 			return Collections.emptyList();
-		List<Triple> result = new LinkedList<>();
+		if (g instanceof IndexedGraph)
+			return ((IndexedGraph) g).getInTriples(focusNode, predicates);
+		if (useSingleScan(predicates.size(), expectedDegree)) {
+			try (Stream<? extends Triple> triples = g.stream(null, null, focusNode)) {
+				List<Triple> result = scan(triples, predicates);
+				if (result != null)
+					return result;
+			}
+		}
+		List<Triple> result = new ArrayList<>();
 		for (IRI pred:predicates)
-			result.addAll(g.stream(null, pred, focusNode).collect(Collectors.toList()));
+			g.stream(null, pred, focusNode).forEachOrdered(result::add);
 		return result;
 	}
 	
+	private static boolean useSingleScan(int nbPredicates, long expectedDegree) {
+		if (nbPredicates <= 1)
+			return false;
+		if (expectedDegree == UNKNOWN_DEGREE)
+			return nbPredicates > SCAN_THRESHOLD;
+		return expectedDegree <= (long) nbPredicates * LOOKUP_COST;
+	}
+	
+	/** Filters the triples by the predicates, or returns null if there are more than {@link #LOOKUP_COST} triples per predicate. */
+	private static List<Triple> scan(Stream<? extends Triple> triples, Set<IRI> predicates) {
+		long maxScanned = (long) predicates.size() * LOOKUP_COST;
+		List<Triple> result = new ArrayList<>();
+		Iterator<? extends Triple> iter = triples.iterator();
+		for (long nbScanned = 0; iter.hasNext(); nbScanned++) {
+			if (nbScanned == maxScanned)
+				return null;
+			Triple triple = iter.next();
+			if (predicates.contains(triple.getPredicate()))
+				result.add(triple);
+		}
+		return result;
+	}
+	
+	/** The average number of triples whose subject is a given node of the graph, which is also the average number of triples whose object is a given node, rounded up.
+	 * 
+	 * @param g
+	 * @param nbNodes the number of nodes of the graph
+	 * @return the average degree, or {@link #UNKNOWN_DEGREE} if the graph has no node
+	 */
+	public static long getAverageDegree(Graph g, int nbNodes) {
+		if (nbNodes == 0)
+			return UNKNOWN_DEGREE;
+		return (g.size() + nbNodes - 1) / nbNodes;
+	}
+	
 	public static Set<RDFTerm> getAllNodes(Graph g){
+		if (g instanceof IndexedGraph)
+			return ((IndexedGraph) g).getNodes();
 		HashSet<RDFTerm> result = new HashSet<>();
 		Iterator<Triple> iter = g.iterate().iterator();
 		while(iter.hasNext()) {
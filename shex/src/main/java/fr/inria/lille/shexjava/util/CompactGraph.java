@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/** A read-only graph stored in compressed sparse row arrays, that uses much less memory than the general purpose graph implementations.
+ * 
+ * The terms are encoded with a {@link TermDictionary}. 
+ * For every node, the pairs (predicate, object) of its outgoing triples and the pairs (predicate, subject) of its incoming triples
+ * are stored in consecutive positions of int arrays, sorted by predicate, so the triples of a node with a given predicate are found by a binary search.
+ * The {@link Triple} objects are created only for the triples that are returned.
+ * The positions can also be read directly with {@link #getOutStart(int)}, {@link #getOutPredicate(int)} and the similar methods, without allocating. 
+ * 
+ * A graph is created with a {@link Builder} or with {@link #load(InputStream, RDFFormat, String)}, and cannot be modified afterwards.
+ * It can be shared between threads.
+ * 
+ * @author Jérémie Dusart
+ */
+public class CompactGraph implements IndexedGraph {
+	private final TermDictionary dictionary;
+	private final RDFTerm[] terms;
+	private final int[] outOffsets;
+	private final int[] outPredicates;
+	private final int[] outObjects;
+	private final int[] inOffsets;
+	private final int[] inPredicates;
+	private final int[] inSubjects;
+
+	private CompactGraph(TermDictionary dictionary, RDFTerm[] terms, int[] outOffsets, int[] outPredicates, int[] outObjects,
+			int[] inOffsets, int[] inPredicates, int[] inSubjects) {
+		this.dictionary = dictionary;
+		this.terms = terms;
+		this.outOffsets = outOffsets;
+		this.outPredicates = outPredicates;
+		this.outObjects = outObjects;
+		this.inOffsets = inOffsets;
+		this.inPredicates = inPredicates;
+		this.inSubjects = inSubjects;
+	}
+	
+	/** Parses a document and stores its triples in a compact graph. The graph names of the quads are ignored.
+	 * 
+	 * @param input
+	 * @param format usually {@link RDFFormat#NTRIPLES} or {@link RDFFormat#TURTLE}
+	 * @param baseURI
+	 * @return
+	 * @throws IOException
+	 */
+	public static CompactGraph load(InputStream input, RDFFormat format, String baseURI) throws IOException {
+		RDF4J rdfFactory = new RDF4J();
+		Builder builder = new Builder();
+		RDFParser parser = Rio.createParser(format);
+		parser.setRDFHandler(new AbstractRDFHandler() {
+			@Override
+			public void handleStatement(Statement st) {
+				builder.add((BlankNodeOrIRI) rdfFactory.asRDFTerm(st.getSubject()), rdfFactory.asRDFTerm(st.getPredicate()), rdfFactory.asRDFTerm(st.getObject()));
+			}
+		});
+		parser.parse(input, baseURI);
+		return builder.build();
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Direct access to the arrays
+	// ---------------------------------------------------------------------------------
+	
+	/** The identifier of the term in the graph, or {@link TermDictionary#UNKNOWN} if the term does not occur in the graph. */
+	public int getId(RDFTerm term) {
+		return dictionary.lookup(term);
+	}
+	
+	public RDFTerm getTerm(int id) {
+		return terms[id];
+	}
+	
+	/** The number of terms, the identifiers are the integers from 0 to this number excluded. */
+	public int getNbTerms() {
+		return terms.length;
+	}
+	
+	/** The first position of the outgoing triples of the node. */
+	public int getOutStart(int node) {
+		return outOffsets[node];
+	}
+	
+	/** The position that follows the last outgoing triple of the node. */
+	public int getOutEnd(int node) {
+		return outOffsets[node+1];
+	}
+	
+	/** The first position of the outgoing triples of the node with the given predicate. */
+	public int getOutStart(int node, int predicate) {
+		return lowerBound(outPredicates, outOffsets[node], outOffsets[node+1], predicate);
+	}
+	
+	/** The position that follows the last outgoing triple of the node with the given predicate. */
+	public int getOutEnd(int node, int predicate) {
+		return lowerBound(outPredicates, outOffsets[node], outOffsets[node+1], predicate+1);
+	}
+	
+	public int getOutPredicate(int position) {
+		return outPredicates[position];
+	}
+	
+	public int getOutObject(int position) {
+		return outObjects[position];
+	}
+	
+	/** The first position of the incoming triples of the node. */
+	public int getInStart(int node) {
+		return inOffsets[node];
+	}
+	
+	/** The position that follows the last incoming triple of the node. */
+	public int getInEnd(int node) {
+		return inOffsets[node+1];
+	}
+	
+	/** The first position of the incoming triples of the node with the given predicate. */
+	public int getInStart(int node, int predicate) {
+		return lowerBound(inPredicates, inOffsets[node], inOffsets[node+1], predicate);
+	}
+	
+	/** The position that follows the last incoming triple of the node with the given predicate. */
+	public int getInEnd(int node, int predicate) {
+		return lowerBound(inPredicates, inOffsets[node], inOffsets[node+1], predicate+1);
+	}
+	
+	public int getInPredicate(int position) {
+		return inPredicates[position];
+	}
+	
+	public int getInSubject(int position) {
+		return inSubjects[position];
+	}
+	
+	/** The first position in array[from, to[ whose value is greater than or equal to the given value. */
+	private static int lowerBound(int[] array, int from, int to, int value) {
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			if (array[middle] < value)
+				from = middle + 1;
+			else
+				to = middle;
+		}
+		return from;
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Neighbourhoods
+	// ---------------------------------------------------------------------------------
+
+	/** Retrieves the triples with one binary search per predicate. */
+	@Override
+	public List<Triple> getOutTriples(RDFTerm node, Collection<IRI> predicates) {
+		List<Triple> result = new ArrayList<>();
+		int id = dictionary.lookup(node);
+		if (id == TermDictionary.UNKNOWN || outOffsets[id] == outOffsets[id+1])
+			return result;
+		for (IRI predicate : predicates) {
+			int pid = dictionary.lookup(predicate);
+			if (pid == TermDictionary.UNKNOWN)
+				continue;
+			for (int i = getOutStart(id, pid), end = getOutEnd(id, pid); i < end; i++)
+				result.add(new CompactTriple(id, pid, outObjects[i]));
+		}
+		return result;
+	}
+	
+	/** Retrieves the triples with one binary search per predicate. */
+	@Override
+	public List<Triple> getInTriples(RDFTerm node, Collection<IRI> predicates) {
+		List<Triple> result = new ArrayList<>();
+		int id = dictionary.lookup(node);
+		if (id == TermDictionary.UNKNOWN || inOffsets[id] == inOffsets[id+1])
+			return result;
+		for (IRI predicate : predicates) {
+			int pid = dictionary.lookup(predicate);
+			if (pid == TermDictionary.UNKNOWN)
+				continue;
+			for (int i = getInStart(id, pid), end = getInEnd(id, pid); i < end; i++)
+				result.add(new CompactTriple(inSubjects[i], pid, id));
+		}
+		return result;
+	}
+	
+	@Override
+	public Set<RDFTerm> getNodes() {
+		Set<RDFTerm> result = new HashSet<>();
+		for (int id = 0; id < terms.length; id++)
+			if (outOffsets[id] < outOffsets[id+1] || inOffsets[id] < inOffsets[id+1])
+				result.add(terms[id]);
+		return result;
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Graph
+	// ---------------------------------------------------------------------------------
+	
+	@Override
+	public long size() {
+		return outObjects.length;
+	}
+
+	@Override
+	public boolean contains(Triple triple) {
+		return contains(triple.getSubject(), triple.getPredicate(), triple.getObject());
+	}
+
+	@Override
+	public boolean contains(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		return stream(subject, predicate, object).findAny().isPresent();
+	}
+
+	@Override
+	public Stream<? extends Triple> stream() {
+		return stream(null, null, null);
+	}
+
+	@Override
+	public Stream<? extends Triple> stream(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		int sid = subject == null ? TermDictionary.UNKNOWN : dictionary.lookup(subject);
+		int pid = predicate == null ? TermDictionary.UNKNOWN : dictionary.lookup(predicate);
+		int oid = object == null ? TermDictionary.UNKNOWN : dictionary.lookup(object);
+		if ((subject != null && sid == TermDictionary.UNKNOWN) || (predicate != null && pid == TermDictionary.UNKNOWN) 
+				|| (object != null && oid == TermDictionary.UNKNOWN))
+			return Stream.empty();
+		if (subject != null)
+			return outTriples(sid, pid, oid);
+		if (object != null) {
+			int from = predicate == null ? getInStart(oid) : getInStart(oid, pid);
+			int to = predicate == null ? getInEnd(oid) : getInEnd(oid, pid);
+			return IntStream.range(from, to).mapToObj(i -> new CompactTriple(inSubjects[i], inPredicates[i], oid));
+		}
+		return IntStream.range(0, terms.length).mapToObj(s -> outTriples(s, pid, TermDictionary.UNKNOWN)).flatMap(s -> s);
+	}
+	
+	/** The triples of the subject, with the predicate and the object if they are not {@link TermDictionary#UNKNOWN}. */
+	private Stream<Triple> outTriples(int subject, int predicate, int object) {
+		int from = predicate == TermDictionary.UNKNOWN ? getOutStart(subject) : getOutStart(subject, predicate);
+		int to = predicate == TermDictionary.UNKNOWN ? getOutEnd(subject) : getOutEnd(subject, predicate);
+		if (from == to)
+			return Stream.empty();
+		IntStream positions = IntStream.range(from, to);
+		if (object != TermDictionary.UNKNOWN)
+			positions = positions.filter(i -> outObjects[i] == object);
+		return positions.mapToObj(i -> new CompactTriple(subject, outPredicates[i], outObjects[i]));
+	}
+
+	@Override
+	public void add(Triple triple) {
+		throw new UnsupportedOperationException("A CompactGraph cannot be modified.");
+	}
+
+	@Override
+	public void add(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		throw new UnsupportedOperationException("A CompactGraph cannot be modified.");
+	}
+
+	@Override
+	public void remove(Triple triple) {
+		throw new UnsupportedOperationException("A CompactGraph cannot be modified.");
+	}
+
+	@Override
+	public void remove(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		throw new UnsupportedOperationException("A CompactGraph cannot be modified.");
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("A CompactGraph cannot be modified.");
+	}
+	
+	
+	/** A triple that refers to the terms of the graph by their identifiers. */
+	private class CompactTriple implements Triple {
+		private final int subject, predicate, object;
+		
+		CompactTriple(int subject, int predicate, int object) {
+			this.subject = subject;
+			this.predicate = predicate;
+			this.object = object;
+		}
+
+		@Override
+		public BlankNodeOrIRI getSubject() {
+			return (BlankNodeOrIRI) terms[subject];
+		}
+
+		@Override
+		public IRI getPredicate() {
+			return (IRI) terms[predicate];
+		}
+
+		@Override
+		public RDFTerm getObject() {
+			return terms[object];
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj instanceof CompactTriple && ((CompactTriple) obj).graph() == CompactGraph.this) {
+				CompactTriple other = (CompactTriple) obj;
+				return subject == other.subject && predicate == other.predicate && object == other.object;
+			}
+			if (!(obj instanceof Triple))
+				return false;
+			Triple other = (Triple) obj;
+			return getSubject().equals(other.getSubject()) && getPredicate().equals(other.getPredicate()) && getObject().equals(other.getObject());
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(getSubject(), getPredicate(), getObject());
+		}
+		
+		@Override
+		public String toString() {
+			return getSubject().ntriplesString() + " " + getPredicate().ntriplesString() + " " + getObject().ntriplesString() + " .";
+		}
+		
+		private CompactGraph graph() {
+			return CompactGraph.this;
+		}
+	}
+	
+	
+	/** Collects the triples of a {@link CompactGraph}. The duplicate triples are stored once. */
+	public static class Builder {
+		private final TermDictionary dictionary = new TermDictionary();
+		private int[] subjects = new int[1024];
+		private int[] predicates = new int[1024];
+		private int[] objects = new int[1024];
+		private int size = 0;
+		
+		public Builder add(Triple triple) {
+			return add(triple.getSubject(), triple.getPredicate(), triple.getObject());
+		}
+		
+		public Builder add(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+			if (size == subjects.length) {
+				subjects = Arrays.copyOf(subjects, 2*size);
+				predicates = Arrays.copyOf(predicates, 2*size);
+				objects = Arrays.copyOf(objects, 2*size);
+			}
+			subjects[size] = dictionary.getId(subject);
+			predicates[size] = dictionary.getId(predicate);
+			objects[size] = dictionary.getId(object);
+			size++;
+			return this;
+		}
+		
+		public CompactGraph build() {
+			int nbTerms = dictionary.size();
+			RDFTerm[] terms = new RDFTerm[nbTerms];
+			for (int id = 0; id < nbTerms; id++)
+				terms[id] = dictionary.getTerm(id);
+			
+			int[] outOffsets = new int[nbTerms+1];
+			long[] out = sortByNode(subjects, predicates, objects, size, outOffsets);
+			// Removes the duplicates, which are consecutive
+			int nbTriples = 0;
+			for (int node = 0; node < nbTerms; node++) {
+				int start = outOffsets[node], end = outOffsets[node+1];
+				outOffsets[node] = nbTriples;
+				for (int i = start; i < end; i++)
+					if (i == start || out[i] != out[i-1])
+						out[nbTriples++] = out[i];
+			}
+			outOffsets[nbTerms] = nbTriples;
+			int[] outPredicates = new int[nbTriples];
+			int[] outObjects = new int[nbTriples];
+			int[] outSubjects = new int[nbTriples];
+			for (int node = 0; node < nbTerms; node++) {
+				for (int i = outOffsets[node]; i < outOffsets[node+1]; i++) {
+					outSubjects[i] = node;
+					outPredicates[i] = (int) (out[i] >>> 32);
+					outObjects[i] = (int) out[i];
+				}
+			}
+			out = null;
+			
+			int[] inOffsets = new int[nbTerms+1];
+			long[] in = sortByNode(outObjects, outPredicates, outSubjects, nbTriples, inOffsets);
+			int[] inPredicates = outSubjects;
+			int[] inSubjects = new int[nbTriples];
+			for (int i = 0; i < nbTriples; i++) {
+				inPredicates[i] = (int) (in[i] >>> 32);
+				inSubjects[i] = (int) in[i];
+			}
+			return new CompactGraph(dictionary, terms, outOffsets, outPredicates, outObjects, inOffsets, inPredicates, inSubjects);
+		}
+		
+		/** Sorts the triples by node, then by predicate and other term encoded in a long, and sets the offsets of the nodes. */
+		private static long[] sortByNode(int[] nodes, int[] predicates, int[] others, int size, int[] offsets) {
+			for (int i = 0; i < size; i++)
+				offsets[nodes[i]+1]++;
+			for (int node = 1; node < offsets.length; node++)
+				offsets[node] += offsets[node-1];
+			int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+			long[] result = new long[size];
+			for (int i = 0; i < size; i++)
+				result[next[nodes[i]]++] = ((long) predicates[i] << 32) | others[i];
+			for (int node = 0; node < offsets.length - 1; node++)
+				Arrays.sort(result, offsets[node], offsets[node+1]);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+
+/** A graph that indexes the triples of every node by predicate, and retrieves the neighbourhoods used by the validation without going through {@link Graph#stream(org.apache.commons.rdf.api.BlankNodeOrIRI, IRI, RDFTerm)}.
+ * {@link CommonGraph} uses these methods when it is given such a graph.
+ * 
+ * @author Jérémie Dusart
+ */
+public interface IndexedGraph extends Graph {
+	
+	/** The triples whose subject is the node and whose predicate is one of the given predicates. */
+	public List<Triple> getOutTriples(RDFTerm node, Collection<IRI> predicates);
+	
+	/** The triples whose object is the node and whose predicate is one of the given predicates. */
+	public List<Triple> getInTriples(RDFTerm node, Collection<IRI> predicates);
+	
+	/** The terms that are the subject or the object of some triple. */
+	public Set<RDFTerm> getNodes();
+}
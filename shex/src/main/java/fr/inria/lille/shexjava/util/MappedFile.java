@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A file accessed through memory mapped segments, so that its size is not limited by the size of a {@link MappedByteBuffer}.
+ * 
+ * The ints and the longs must be stored at positions that are multiples of their size, so that they never cross two segments.
+ * A writable file grows when something is written after its end, and is truncated to the written length when it is closed.
+ * 
+ * @author Jérémie Dusart
+ */
+class MappedFile implements Closeable {
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+	/** Initial capacity of a writable file. */
+	private static final long INITIAL_CAPACITY = 1L << 16;
+	
+	private final FileChannel channel;
+	private final boolean writable;
+	private final List<MappedByteBuffer> segments;
+	private long capacity;
+	/** The end of the written content. */
+	private long length;
+	
+	private MappedFile(FileChannel channel, boolean writable) {
+		this.channel = channel;
+		this.writable = writable;
+		this.segments = new ArrayList<>();
+	}
+	
+	/** Maps the whole content of an existing file. */
+	static MappedFile openReadOnly(Path path) throws IOException {
+		MappedFile file = new MappedFile(FileChannel.open(path, StandardOpenOption.READ), false);
+		file.length = file.channel.size();
+		file.map(file.length);
+		return file;
+	}
+	
+	/** Creates an empty file, or empties the file if it exists. */
+	static MappedFile create(Path path) throws IOException {
+		MappedFile file = new MappedFile(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, 
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), true);
+		file.map(INITIAL_CAPACITY);
+		return file;
+	}
+	
+	/** Maps the segments up to the given capacity, which extends a writable file with zeros. */
+	private void map(long newCapacity) throws IOException {
+		MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+		int nbSegments = (int) ((newCapacity + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+		for (int i = Math.max(0, segments.size() - 1); i < nbSegments; i++) {
+			long start = (long) i << SEGMENT_BITS;
+			MappedByteBuffer segment = channel.map(mode, start, Math.min(SEGMENT_SIZE, newCapacity - start));
+			if (i < segments.size())
+				segments.set(i, segment);
+			else
+				segments.add(segment);
+		}
+		capacity = newCapacity;
+	}
+	
+	private void ensureCapacity(long end) {
+		if (end > length)
+			length = end;
+		if (end <= capacity)
+			return;
+		long newCapacity = capacity;
+		while (newCapacity < end)
+			newCapacity = newCapacity < SEGMENT_SIZE ? 2 * newCapacity : newCapacity + SEGMENT_SIZE;
+		try {
+			map(newCapacity);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to extend the file.", e);
+		}
+	}
+	
+	/** The end of the content, that is the size of a read-only file or the end of the last write in a writable file. */
+	long length() {
+		return length;
+	}
+	
+	int getInt(long position) {
+		return segments.get((int) (position >>> SEGMENT_BITS)).getInt((int) (position & SEGMENT_MASK));
+	}
+	
+	long getLong(long position) {
+		return segments.get((int) (position >>> SEGMENT_BITS)).getLong((int) (position & SEGMENT_MASK));
+	}
+	
+	void putInt(long position, int value) {
+		ensureCapacity(position + Integer.BYTES);
+		segments.get((int) (position >>> SEGMENT_BITS)).putInt((int) (position & SEGMENT_MASK), value);
+	}
+	
+	void putLong(long position, long value) {
+		ensureCapacity(position + Long.BYTES);
+		segments.get((int) (position >>> SEGMENT_BITS)).putLong((int) (position & SEGMENT_MASK), value);
+	}
+	
+	/** Reads bytes that may cross two segments. */
+	void getBytes(long position, byte[] destination) {
+		int done = 0;
+		while (done < destination.length) {
+			MappedByteBuffer segment = segments.get((int) ((position + done) >>> SEGMENT_BITS));
+			int offset = (int) ((position + done) & SEGMENT_MASK);
+			int n = Math.min(destination.length - done, segment.capacity() - offset);
+			for (int i = 0; i < n; i++)
+				destination[done + i] = segment.get(offset + i);
+			done += n;
+		}
+	}
+	
+	/** Writes bytes that may cross two segments. */
+	void putBytes(long position, byte[] source) {
+		ensureCapacity(position + source.length);
+		int done = 0;
+		while (done < source.length) {
+			MappedByteBuffer segment = segments.get((int) ((position + done) >>> SEGMENT_BITS));
+			int offset = (int) ((position + done) & SEGMENT_MASK);
+			int n = Math.min(source.length - done, segment.capacity() - offset);
+			for (int i = 0; i < n; i++)
+				segment.put(offset + i, source[done + i]);
+			done += n;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		segments.clear();
+		if (writable)
+			channel.truncate(length);
+		channel.close();
+	}
+}
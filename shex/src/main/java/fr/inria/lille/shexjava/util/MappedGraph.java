@@ -0,0 +1,826 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Literal;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/** A read-only graph stored in memory mapped files, for the graphs that do not fit in the heap.
+ * 
+ * The index is a directory created once with {@link #create(InputStream, RDFFormat, String, Path)} and opened with {@link #open(Path)}.
+ * It contains a dictionary of the terms with an on-disk hash table, and for every node the pairs (predicate, object) of its outgoing triples
+ * and the pairs (predicate, subject) of its incoming triples, sorted by predicate, in the same layout as {@link CompactGraph}.
+ * The heap used by an opened graph does not depend on the size of the graph: the terms and the triples are decoded when they are returned,
+ * and {@link #getNodes()} is a view of the index.
+ * 
+ * The index is built without loading the graph in the heap, except for the triples of a single node that are sorted in the heap, and a bounded cache of the recent terms.
+ * 
+ * @author Jérémie Dusart
+ */
+public class MappedGraph implements IndexedGraph {
+	private static final int MAGIC = 0x53684d47;
+	private static final int VERSION = 1;
+	private static final String HEADER = "header";
+	private static final String TERMS_DATA = "terms.dat";
+	private static final String TERMS_OFFSETS = "terms.off";
+	private static final String TERMS_HASH = "terms.hash";
+	private static final String OUT_OFFSETS = "out.off";
+	private static final String OUT_DATA = "out.dat";
+	private static final String IN_OFFSETS = "in.off";
+	private static final String IN_DATA = "in.dat";
+	private static final String XSD_STRING = "http://www.w3.org/2001/XMLSchema#string";
+	
+	private static final RDF4J rdfFactory = new RDF4J();
+	private static final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+	
+	private final int nbTerms;
+	private final long nbTriples;
+	private final long nbNodes;
+	private final long hashCapacity;
+	/** The encoded terms, and the position of the encoding of every term. */
+	private final MappedFile termsData, termsOffsets;
+	/** Open addressing table of the identifiers plus one, 0 for an empty slot. */
+	private final MappedFile termsHash;
+	/** The offsets of the nodes in the files of the triples, that contain longs (predicate << 32 | other term). */
+	private final MappedFile outOffsets, outData, inOffsets, inData;
+	
+	private MappedGraph(Path directory) throws IOException {
+		try (DataInputStream header = new DataInputStream(Files.newInputStream(directory.resolve(HEADER)))) {
+			if (header.readInt() != MAGIC || header.readInt() != VERSION)
+				throw new IOException("Not a graph index: "+directory);
+			nbTerms = header.readInt();
+			nbTriples = header.readLong();
+			nbNodes = header.readLong();
+			hashCapacity = header.readLong();
+		}
+		termsData = MappedFile.openReadOnly(directory.resolve(TERMS_DATA));
+		termsOffsets = MappedFile.openReadOnly(directory.resolve(TERMS_OFFSETS));
+		termsHash = MappedFile.openReadOnly(directory.resolve(TERMS_HASH));
+		outOffsets = MappedFile.openReadOnly(directory.resolve(OUT_OFFSETS));
+		outData = MappedFile.openReadOnly(directory.resolve(OUT_DATA));
+		inOffsets = MappedFile.openReadOnly(directory.resolve(IN_OFFSETS));
+		inData = MappedFile.openReadOnly(directory.resolve(IN_DATA));
+	}
+	
+	/** Opens an index created by {@link #create(InputStream, RDFFormat, String, Path)}. */
+	public static MappedGraph open(Path directory) throws IOException {
+		return new MappedGraph(directory);
+	}
+	
+	/** Parses a document and creates the index of its triples in the directory, that is created if needed. 
+	 * The graph names of the quads are ignored.
+	 * 
+	 * @param input
+	 * @param format usually {@link RDFFormat#NTRIPLES}
+	 * @param baseURI
+	 * @param directory
+	 * @return the opened index
+	 * @throws IOException
+	 */
+	public static MappedGraph create(InputStream input, RDFFormat format, String baseURI, Path directory) throws IOException {
+		return create(input, format, baseURI, directory, IndexBuilder.MAX_SORTED_IN_MEMORY);
+	}
+	
+	/** @param maxSortedInMemory the number of triples of a node above which they are sorted through a temporary file instead of in memory */
+	static MappedGraph create(InputStream input, RDFFormat format, String baseURI, Path directory, int maxSortedInMemory) throws IOException {
+		Files.createDirectories(directory);
+		try (IndexBuilder builder = new IndexBuilder(directory, maxSortedInMemory)) {
+			RDFParser parser = Rio.createParser(format);
+			parser.setRDFHandler(new AbstractRDFHandler() {
+				@Override
+				public void handleStatement(Statement st) {
+					builder.add(rdfFactory.asRDFTerm(st.getSubject()), rdfFactory.asRDFTerm(st.getPredicate()), rdfFactory.asRDFTerm(st.getObject()));
+				}
+			});
+			parser.parse(input, baseURI);
+			builder.build();
+		}
+		return open(directory);
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Terms
+	// ---------------------------------------------------------------------------------
+	
+	/** The identifier of the term in the graph, or {@link TermDictionary#UNKNOWN} if the term does not occur in the graph. */
+	public int getId(RDFTerm term) {
+		byte[] key = encode(term).getBytes(StandardCharsets.UTF_8);
+		for (long slot = hash(key) & (hashCapacity - 1); ; slot = (slot + 1) & (hashCapacity - 1)) {
+			int value = termsHash.getInt(slot * Integer.BYTES);
+			if (value == 0)
+				return TermDictionary.UNKNOWN;
+			if (sameBytes(termsData, termsOffsets, value - 1, key))
+				return value - 1;
+		}
+	}
+	
+	public RDFTerm getTerm(int id) {
+		long start = termsOffsets.getLong((long) id * Long.BYTES);
+		byte[] bytes = new byte[(int) (termsOffsets.getLong((long) (id + 1) * Long.BYTES) - start)];
+		termsData.getBytes(start, bytes);
+		return decode(new String(bytes, StandardCharsets.UTF_8));
+	}
+	
+	/** The number of terms, the identifiers are the integers from 0 to this number excluded. */
+	public int getNbTerms() {
+		return nbTerms;
+	}
+	
+	/** Encodes the term as in N-Triples, with a representation of the IRIs and literals that does not depend on the implementation of commons-rdf. */
+	private static String encode(RDFTerm term) {
+		if (term instanceof IRI)
+			return "<" + ((IRI) term).getIRIString() + ">";
+		if (term instanceof BlankNode)
+			return term.ntriplesString();
+		Literal literal = (Literal) term;
+		StringBuilder result = new StringBuilder(literal.getLexicalForm().length() + 2);
+		result.append('"');
+		for (char c : literal.getLexicalForm().toCharArray()) {
+			switch (c) {
+			case '"': result.append("\\\""); break;
+			case '\\': result.append("\\\\"); break;
+			case '\n': result.append("\\n"); break;
+			case '\r': result.append("\\r"); break;
+			default: result.append(c);
+			}
+		}
+		result.append('"');
+		Optional<String> language = literal.getLanguageTag();
+		if (language.isPresent())
+			result.append('@').append(language.get());
+		else if (! literal.getDatatype().getIRIString().equals(XSD_STRING))
+			result.append("^^<").append(literal.getDatatype().getIRIString()).append('>');
+		return result.toString();
+	}
+	
+	private static RDFTerm decode(String key) {
+		if (key.charAt(0) == '<')
+			return rdfFactory.asRDFTerm(valueFactory.createIRI(key.substring(1, key.length() - 1)));
+		if (key.charAt(0) == '_')
+			return rdfFactory.asRDFTerm(valueFactory.createBNode(key.substring(2)));
+		StringBuilder lexicalForm = new StringBuilder(key.length());
+		int i = 1;
+		for (; key.charAt(i) != '"'; i++) {
+			char c = key.charAt(i);
+			if (c == '\\') {
+				c = key.charAt(++i);
+				if (c == 'n')
+					c = '\n';
+				else if (c == 'r')
+					c = '\r';
+			}
+			lexicalForm.append(c);
+		}
+		String suffix = key.substring(i + 1);
+		if (suffix.startsWith("@"))
+			return rdfFactory.asRDFTerm(valueFactory.createLiteral(lexicalForm.toString(), suffix.substring(1)));
+		if (suffix.startsWith("^^"))
+			return rdfFactory.asRDFTerm(valueFactory.createLiteral(lexicalForm.toString(), valueFactory.createIRI(suffix.substring(3, suffix.length() - 1))));
+		return rdfFactory.asRDFTerm(valueFactory.createLiteral(lexicalForm.toString()));
+	}
+	
+	private static long hash(byte[] bytes) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash ^ (hash >>> 32);
+	}
+	
+	private static boolean sameBytes(MappedFile data, MappedFile offsets, int id, byte[] key) {
+		long start = offsets.getLong((long) id * Long.BYTES);
+		if (offsets.getLong((long) (id + 1) * Long.BYTES) - start != key.length)
+			return false;
+		byte[] bytes = new byte[key.length];
+		data.getBytes(start, bytes);
+		return Arrays.equals(bytes, key);
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Direct access to the files
+	// ---------------------------------------------------------------------------------
+	
+	/** The first position of the outgoing triples of the node. */
+	public long getOutStart(int node) {
+		return outOffsets.getLong((long) node * Long.BYTES);
+	}
+	
+	/** The position that follows the last outgoing triple of the node. */
+	public long getOutEnd(int node) {
+		return outOffsets.getLong((long) (node + 1) * Long.BYTES);
+	}
+	
+	/** The first position of the outgoing triples of the node with the given predicate. */
+	public long getOutStart(int node, int predicate) {
+		return lowerBound(outData, getOutStart(node), getOutEnd(node), predicate);
+	}
+	
+	/** The position that follows the last outgoing triple of the node with the given predicate. */
+	public long getOutEnd(int node, int predicate) {
+		return lowerBound(outData, getOutStart(node), getOutEnd(node), predicate + 1);
+	}
+	
+	public int getOutPredicate(long position) {
+		return (int) (outData.getLong(position * Long.BYTES) >>> 32);
+	}
+	
+	public int getOutObject(long position) {
+		return (int) outData.getLong(position * Long.BYTES);
+	}
+	
+	/** The first position of the incoming triples of the node. */
+	public long getInStart(int node) {
+		return inOffsets.getLong((long) node * Long.BYTES);
+	}
+	
+	/** The position that follows the last incoming triple of the node. */
+	public long getInEnd(int node) {
+		return inOffsets.getLong((long) (node + 1) * Long.BYTES);
+	}
+	
+	/** The first position of the incoming triples of the node with the given predicate. */
+	public long getInStart(int node, int predicate) {
+		return lowerBound(inData, getInStart(node), getInEnd(node), predicate);
+	}
+	
+	/** The position that follows the last incoming triple of the node with the given predicate. */
+	public long getInEnd(int node, int predicate) {
+		return lowerBound(inData, getInStart(node), getInEnd(node), predicate + 1);
+	}
+	
+	public int getInPredicate(long position) {
+		return (int) (inData.getLong(position * Long.BYTES) >>> 32);
+	}
+	
+	public int getInSubject(long position) {
+		return (int) inData.getLong(position * Long.BYTES);
+	}
+	
+	/** The first position in [from, to[ whose predicate is greater than or equal to the given predicate. */
+	private static long lowerBound(MappedFile data, long from, long to, int predicate) {
+		while (from < to) {
+			long middle = (from + to) >>> 1;
+			if ((int) (data.getLong(middle * Long.BYTES) >>> 32) < predicate)
+				from = middle + 1;
+			else
+				to = middle;
+		}
+		return from;
+	}
+	
+	private boolean isNode(int id) {
+		return getOutStart(id) < getOutEnd(id) || getInStart(id) < getInEnd(id);
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Neighbourhoods
+	// ---------------------------------------------------------------------------------
+
+	/** Retrieves the triples with one binary search per predicate. */
+	@Override
+	public List<Triple> getOutTriples(RDFTerm node, Collection<IRI> predicates) {
+		List<Triple> result = new ArrayList<>();
+		int id = getId(node);
+		if (id == TermDictionary.UNKNOWN || getOutStart(id) == getOutEnd(id))
+			return result;
+		for (IRI predicate : predicates) {
+			int pid = getId(predicate);
+			if (pid == TermDictionary.UNKNOWN)
+				continue;
+			for (long i = getOutStart(id, pid), end = getOutEnd(id, pid); i < end; i++)
+				result.add(new MappedTriple(id, pid, getOutObject(i)));
+		}
+		return result;
+	}
+	
+	/** Retrieves the triples with one binary search per predicate. */
+	@Override
+	public List<Triple> getInTriples(RDFTerm node, Collection<IRI> predicates) {
+		List<Triple> result = new ArrayList<>();
+		int id = getId(node);
+		if (id == TermDictionary.UNKNOWN || getInStart(id) == getInEnd(id))
+			return result;
+		for (IRI predicate : predicates) {
+			int pid = getId(predicate);
+			if (pid == TermDictionary.UNKNOWN)
+				continue;
+			for (long i = getInStart(id, pid), end = getInEnd(id, pid); i < end; i++)
+				result.add(new MappedTriple(getInSubject(i), pid, id));
+		}
+		return result;
+	}
+	
+	/** A view of the nodes of the index, that does not store them in the heap. */
+	@Override
+	public Set<RDFTerm> getNodes() {
+		return new AbstractSet<RDFTerm>() {
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof RDFTerm))
+					return false;
+				int id = getId((RDFTerm) o);
+				return id != TermDictionary.UNKNOWN && isNode(id);
+			}
+			
+			@Override
+			public Iterator<RDFTerm> iterator() {
+				return new Iterator<RDFTerm>() {
+					private int next = advance(0);
+					
+					private int advance(int id) {
+						while (id < nbTerms && ! isNode(id))
+							id++;
+						return id;
+					}
+					
+					@Override
+					public boolean hasNext() {
+						return next < nbTerms;
+					}
+
+					@Override
+					public RDFTerm next() {
+						if (! hasNext())
+							throw new NoSuchElementException();
+						RDFTerm result = getTerm(next);
+						next = advance(next + 1);
+						return result;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return (int) Math.min(nbNodes, Integer.MAX_VALUE);
+			}
+		};
+	}
+	
+	// ---------------------------------------------------------------------------------
+	// Graph
+	// ---------------------------------------------------------------------------------
+	
+	@Override
+	public long size() {
+		return nbTriples;
+	}
+
+	@Override
+	public boolean contains(Triple triple) {
+		return contains(triple.getSubject(), triple.getPredicate(), triple.getObject());
+	}
+
+	@Override
+	public boolean contains(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		return stream(subject, predicate, object).findAny().isPresent();
+	}
+
+	@Override
+	public Stream<? extends Triple> stream() {
+		return stream(null, null, null);
+	}
+
+	@Override
+	public Stream<? extends Triple> stream(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		int sid = subject == null ? TermDictionary.UNKNOWN : getId(subject);
+		int pid = predicate == null ? TermDictionary.UNKNOWN : getId(predicate);
+		int oid = object == null ? TermDictionary.UNKNOWN : getId(object);
+		if ((subject != null && sid == TermDictionary.UNKNOWN) || (predicate != null && pid == TermDictionary.UNKNOWN) 
+				|| (object != null && oid == TermDictionary.UNKNOWN))
+			return Stream.empty();
+		if (subject != null)
+			return outTriples(sid, pid, oid);
+		if (object != null) {
+			long from = predicate == null ? getInStart(oid) : getInStart(oid, pid);
+			long to = predicate == null ? getInEnd(oid) : getInEnd(oid, pid);
+			return LongStream.range(from, to).mapToObj(i -> new MappedTriple(getInSubject(i), getInPredicate(i), oid));
+		}
+		return IntStream.range(0, nbTerms).mapToObj(s -> outTriples(s, pid, TermDictionary.UNKNOWN)).flatMap(s -> s);
+	}
+	
+	/** The triples of the subject, with the predicate and the object if they are not {@link TermDictionary#UNKNOWN}. */
+	private Stream<Triple> outTriples(int subject, int predicate, int object) {
+		long from = predicate == TermDictionary.UNKNOWN ? getOutStart(subject) : getOutStart(subject, predicate);
+		long to = predicate == TermDictionary.UNKNOWN ? getOutEnd(subject) : getOutEnd(subject, predicate);
+		if (from == to)
+			return Stream.empty();
+		LongStream positions = LongStream.range(from, to);
+		if (object != TermDictionary.UNKNOWN)
+			positions = positions.filter(i -> getOutObject(i) == object);
+		return positions.mapToObj(i -> new MappedTriple(subject, getOutPredicate(i), getOutObject(i)));
+	}
+
+	@Override
+	public void add(Triple triple) {
+		throw new UnsupportedOperationException("A MappedGraph cannot be modified.");
+	}
+
+	@Override
+	public void add(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		throw new UnsupportedOperationException("A MappedGraph cannot be modified.");
+	}
+
+	@Override
+	public void remove(Triple triple) {
+		throw new UnsupportedOperationException("A MappedGraph cannot be modified.");
+	}
+
+	@Override
+	public void remove(BlankNodeOrIRI subject, IRI predicate, RDFTerm object) {
+		throw new UnsupportedOperationException("A MappedGraph cannot be modified.");
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("A MappedGraph cannot be modified.");
+	}
+	
+	@Override
+	public void close() throws IOException {
+		for (MappedFile file : new MappedFile[] {termsData, termsOffsets, termsHash, outOffsets, outData, inOffsets, inData})
+			file.close();
+	}
+	
+	
+	/** A triple that refers to the terms of the graph by their identifiers, which are decoded when they are accessed. */
+	private class MappedTriple implements Triple {
+		private final int subject, predicate, object;
+		
+		MappedTriple(int subject, int predicate, int object) {
+			this.subject = subject;
+			this.predicate = predicate;
+			this.object = object;
+		}
+
+		@Override
+		public BlankNodeOrIRI getSubject() {
+			return (BlankNodeOrIRI) getTerm(subject);
+		}
+
+		@Override
+		public IRI getPredicate() {
+			return (IRI) getTerm(predicate);
+		}
+
+		@Override
+		public RDFTerm getObject() {
+			return getTerm(object);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj instanceof MappedTriple && ((MappedTriple) obj).graph() == MappedGraph.this) {
+				MappedTriple other = (MappedTriple) obj;
+				return subject == other.subject && predicate == other.predicate && object == other.object;
+			}
+			if (!(obj instanceof Triple))
+				return false;
+			Triple other = (Triple) obj;
+			return getSubject().equals(other.getSubject()) && getPredicate().equals(other.getPredicate()) && getObject().equals(other.getObject());
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(getSubject(), getPredicate(), getObject());
+		}
+		
+		@Override
+		public String toString() {
+			return getSubject().ntriplesString() + " " + getPredicate().ntriplesString() + " " + getObject().ntriplesString() + " .";
+		}
+		
+		private MappedGraph graph() {
+			return MappedGraph.this;
+		}
+	}
+	
+	
+	/** Writes the files of an index. The triples are first appended to a temporary file, then sorted by node with a counting sort. */
+	private static class IndexBuilder implements AutoCloseable {
+		private static final long INITIAL_HASH_CAPACITY = 1L << 16;
+		private static final int CACHE_SIZE = 1 << 16;
+		private static final String RAW_TRIPLES = "triples.tmp";
+		private static final String RAW_OFFSETS = "offsets.tmp";
+		private static final String RAW_DATA = "data.tmp";
+		private static final String CURSORS = "cursors.tmp";
+		private static final String MERGED = "merged.tmp";
+		/** Number of triples of a node above which they are sorted by runs merged through a temporary file, so that the heap used does not depend on the degree of the nodes. */
+		static final int MAX_SORTED_IN_MEMORY = 1 << 22;
+		
+		private final Path directory;
+		private final int maxSortedInMemory;
+		private final MappedFile termsData, termsOffsets, rawTriples;
+		private MappedFile termsHash;
+		private Path termsHashPath;
+		private long hashCapacity = INITIAL_HASH_CAPACITY;
+		private int nbTerms = 0;
+		private long nbRawTriples = 0;
+		/** The identifiers of the recently used terms. */
+		private final Map<String,Integer> cache = new LinkedHashMap<String,Integer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,Integer> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+		
+		IndexBuilder(Path directory, int maxSortedInMemory) throws IOException {
+			this.directory = directory;
+			this.maxSortedInMemory = maxSortedInMemory;
+			termsData = MappedFile.create(directory.resolve(TERMS_DATA));
+			termsOffsets = MappedFile.create(directory.resolve(TERMS_OFFSETS));
+			termsOffsets.putLong(0, 0);
+			termsHashPath = directory.resolve(TERMS_HASH + ".0");
+			termsHash = createHashTable(termsHashPath, hashCapacity);
+			rawTriples = MappedFile.create(directory.resolve(RAW_TRIPLES));
+		}
+		
+		void add(RDFTerm subject, RDFTerm predicate, RDFTerm object) {
+			long position = nbRawTriples * 3 * Integer.BYTES;
+			rawTriples.putInt(position, getId(subject));
+			rawTriples.putInt(position + Integer.BYTES, getId(predicate));
+			rawTriples.putInt(position + 2 * Integer.BYTES, getId(object));
+			nbRawTriples++;
+		}
+		
+		private int getId(RDFTerm term) {
+			String key = encode(term);
+			Integer cached = cache.get(key);
+			if (cached != null)
+				return cached;
+			byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+			long slot = hash(bytes) & (hashCapacity - 1);
+			for (; ; slot = (slot + 1) & (hashCapacity - 1)) {
+				int value = termsHash.getInt(slot * Integer.BYTES);
+				if (value == 0)
+					break;
+				if (sameBytes(termsData, termsOffsets, value - 1, bytes)) {
+					cache.put(key, value - 1);
+					return value - 1;
+				}
+			}
+			int id = nbTerms++;
+			long start = termsOffsets.getLong((long) id * Long.BYTES);
+			termsData.putBytes(start, bytes);
+			termsOffsets.putLong((long) (id + 1) * Long.BYTES, start + bytes.length);
+			termsHash.putInt(slot * Integer.BYTES, id + 1);
+			if (2L * nbTerms > hashCapacity)
+				growHashTable();
+			cache.put(key, id);
+			return id;
+		}
+		
+		private static MappedFile createHashTable(Path path, long capacity) throws IOException {
+			MappedFile table = MappedFile.create(path);
+			// sets the length of the file
+			table.putInt((capacity - 1) * Integer.BYTES, 0);
+			return table;
+		}
+		
+		private void growHashTable() {
+			try {
+				long newCapacity = 2 * hashCapacity;
+				Path newPath = directory.resolve(TERMS_HASH + "." + Long.numberOfTrailingZeros(newCapacity));
+				MappedFile newHash = createHashTable(newPath, newCapacity);
+				for (int id = 0; id < nbTerms; id++) {
+					long start = termsOffsets.getLong((long) id * Long.BYTES);
+					byte[] bytes = new byte[(int) (termsOffsets.getLong((long) (id + 1) * Long.BYTES) - start)];
+					termsData.getBytes(start, bytes);
+					long slot = hash(bytes) & (newCapacity - 1);
+					while (newHash.getInt(slot * Integer.BYTES) != 0)
+						slot = (slot + 1) & (newCapacity - 1);
+					newHash.putInt(slot * Integer.BYTES, id + 1);
+				}
+				termsHash.close();
+				Files.delete(termsHashPath);
+				termsHash = newHash;
+				termsHashPath = newPath;
+				hashCapacity = newCapacity;
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to extend the hash table of the terms.", e);
+			}
+		}
+		
+		/** Sorts the triples and writes the index files. */
+		void build() throws IOException {
+			// Outgoing triples, from the raw triples
+			long nbTriples;
+			try (MappedFile rawOffsets = MappedFile.create(directory.resolve(RAW_OFFSETS));
+					MappedFile rawData = MappedFile.create(directory.resolve(RAW_DATA));
+					MappedFile outOffsets = MappedFile.create(directory.resolve(OUT_OFFSETS));
+					MappedFile outData = MappedFile.create(directory.resolve(OUT_DATA));
+					MappedFile inOffsets = MappedFile.create(directory.resolve(IN_OFFSETS))) {
+				// the offsets files have a long per term and a last long for the end
+				rawOffsets.putLong((long) nbTerms * Long.BYTES, 0);
+				inOffsets.putLong((long) nbTerms * Long.BYTES, 0);
+				for (long i = 0; i < nbRawTriples; i++) {
+					long node = rawTriples.getInt(i * 3 * Integer.BYTES);
+					increment(rawOffsets, node + 1);
+				}
+				scatter(rawOffsets, (i, cursors) -> {
+					long position = i * 3 * Integer.BYTES;
+					int subject = rawTriples.getInt(position);
+					long predicate = rawTriples.getInt(position + Integer.BYTES);
+					int object = rawTriples.getInt(position + 2 * Integer.BYTES);
+					rawData.putLong(nextPosition(cursors, subject) * Long.BYTES, predicate << 32 | object);
+				}, nbRawTriples);
+				// Sorts every node, removes the duplicates and counts the incoming triples
+				nbTriples = 0;
+				for (int node = 0; node < nbTerms; node++) {
+					outOffsets.putLong((long) node * Long.BYTES, nbTriples);
+					long start = rawOffsets.getLong((long) node * Long.BYTES);
+					long end = rawOffsets.getLong((long) (node + 1) * Long.BYTES);
+					sortSegment(rawData, start, end);
+					for (long i = start; i < end; i++) {
+						long value = rawData.getLong(i * Long.BYTES);
+						if (i > start && value == rawData.getLong((i - 1) * Long.BYTES))
+							continue;
+						outData.putLong(nbTriples * Long.BYTES, value);
+						nbTriples++;
+						increment(inOffsets, ((long) (int) value) + 1);
+					}
+				}
+				outOffsets.putLong((long) nbTerms * Long.BYTES, nbTriples);
+				
+				// Incoming triples, from the outgoing ones
+				try (MappedFile inData = MappedFile.create(directory.resolve(IN_DATA))) {
+					scatter(inOffsets, (node, cursors) -> {
+						for (long i = outOffsets.getLong(node * Long.BYTES), end = outOffsets.getLong((node + 1) * Long.BYTES); i < end; i++) {
+							long value = outData.getLong(i * Long.BYTES);
+							inData.putLong(nextPosition(cursors, (int) value) * Long.BYTES, (value >>> 32) << 32 | node);
+						}
+					}, nbTerms);
+					for (int node = 0; node < nbTerms; node++)
+						sortSegment(inData, inOffsets.getLong((long) node * Long.BYTES), inOffsets.getLong((long) (node + 1) * Long.BYTES));
+				}
+			}
+			Files.delete(directory.resolve(RAW_OFFSETS));
+			Files.delete(directory.resolve(RAW_DATA));
+			
+			long nbNodes = 0;
+			try (MappedFile outOffsets = MappedFile.openReadOnly(directory.resolve(OUT_OFFSETS));
+					MappedFile inOffsets = MappedFile.openReadOnly(directory.resolve(IN_OFFSETS))) {
+				for (int node = 0; node < nbTerms; node++) {
+					long position = (long) node * Long.BYTES;
+					if (outOffsets.getLong(position) < outOffsets.getLong(position + Long.BYTES) 
+							|| inOffsets.getLong(position) < inOffsets.getLong(position + Long.BYTES))
+						nbNodes++;
+				}
+			}
+			try (OutputStream output = Files.newOutputStream(directory.resolve(HEADER)); 
+					DataOutputStream header = new DataOutputStream(output)) {
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.writeInt(nbTerms);
+				header.writeLong(nbTriples);
+				header.writeLong(nbNodes);
+				header.writeLong(hashCapacity);
+			}
+		}
+		
+		private static void increment(MappedFile file, long index) {
+			file.putLong(index * Long.BYTES, file.getLong(index * Long.BYTES) + 1);
+		}
+		
+		/** Turns the counts in the offsets into offsets, then calls the writer for the elements from 0 to nbElements excluded, with cursors that are initialised to the offsets. */
+		private void scatter(MappedFile offsets, Scatter writer, long nbElements) throws IOException {
+			long sum = 0;
+			for (int node = 0; node <= nbTerms; node++) {
+				sum += offsets.getLong((long) node * Long.BYTES);
+				offsets.putLong((long) node * Long.BYTES, sum);
+			}
+			try (MappedFile cursors = MappedFile.create(directory.resolve(CURSORS))) {
+				for (int node = 0; node < nbTerms; node++)
+					cursors.putLong((long) node * Long.BYTES, offsets.getLong((long) node * Long.BYTES));
+				for (long i = 0; i < nbElements; i++)
+					writer.write(i, cursors);
+			}
+			Files.delete(directory.resolve(CURSORS));
+		}
+		
+		private static long nextPosition(MappedFile cursors, int node) {
+			long position = cursors.getLong((long) node * Long.BYTES);
+			cursors.putLong((long) node * Long.BYTES, position + 1);
+			return position;
+		}
+		
+		/** Sorts in place the longs of the data from start to end excluded.
+		 * A segment longer than {@link #maxSortedInMemory} is split in runs that are sorted in memory one by one, 
+		 * then the runs are merged in a temporary file that is copied back.
+		 */
+		private void sortSegment(MappedFile data, long start, long end) throws IOException {
+			if (end - start <= maxSortedInMemory) {
+				sortInMemory(data, start, end);
+				return;
+			}
+			int nbRuns = (int) ((end - start + maxSortedInMemory - 1) / maxSortedInMemory);
+			long[] cursors = new long[nbRuns];
+			long[] heads = new long[nbRuns];
+			PriorityQueue<Integer> queue = new PriorityQueue<>(nbRuns, (r1, r2) -> Long.compare(heads[r1], heads[r2]));
+			for (int run = 0; run < nbRuns; run++) {
+				cursors[run] = start + (long) run * maxSortedInMemory;
+				sortInMemory(data, cursors[run], runEnd(start, end, run));
+				heads[run] = data.getLong(cursors[run] * Long.BYTES);
+				queue.add(run);
+			}
+			try (MappedFile merged = MappedFile.create(directory.resolve(MERGED))) {
+				for (long i = 0; i < end - start; i++) {
+					int run = queue.poll();
+					merged.putLong(i * Long.BYTES, heads[run]);
+					cursors[run]++;
+					if (cursors[run] < runEnd(start, end, run)) {
+						heads[run] = data.getLong(cursors[run] * Long.BYTES);
+						queue.add(run);
+					}
+				}
+				for (long i = 0; i < end - start; i++)
+					data.putLong((start + i) * Long.BYTES, merged.getLong(i * Long.BYTES));
+			}
+			Files.delete(directory.resolve(MERGED));
+		}
+		
+		private long runEnd(long start, long end, int run) {
+			return Math.min(end, start + (long) (run + 1) * maxSortedInMemory);
+		}
+		
+		private static void sortInMemory(MappedFile data, long start, long end) {
+			long[] segment = new long[(int) (end - start)];
+			for (int i = 0; i < segment.length; i++)
+				segment[i] = data.getLong((start + i) * Long.BYTES);
+			Arrays.sort(segment);
+			for (int i = 0; i < segment.length; i++)
+				data.putLong((start + i) * Long.BYTES, segment[i]);
+		}
+
+		@Override
+		public void close() throws IOException {
+			termsData.close();
+			termsOffsets.close();
+			termsHash.close();
+			Files.move(termsHashPath, directory.resolve(TERMS_HASH), StandardCopyOption.REPLACE_EXISTING);
+			rawTriples.close();
+			Files.deleteIfExists(directory.resolve(RAW_TRIPLES));
+		}
+		
+		
+		private interface Scatter {
+			void write(long element, MappedFile cursors);
+		}
+	}
+}
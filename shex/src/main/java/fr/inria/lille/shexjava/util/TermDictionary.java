@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.RDFTerm;
+
+/** Associates a compact integer identifier with every RDF term that it is given.
+ * 
+ * Two terms get the same identifier if and only if {@link #sameTerm(RDFTerm, RDFTerm)} returns true, 
+ * which does not depend on the implementation of commons-rdf that created the terms.
+ * The identifiers are consecutive starting from 0, so they can be used as array indexes.
+ * The dictionary can be shared between threads.
+ * 
+ * @author Jérémie Dusart
+ */
+public class TermDictionary {
+	/** Returned by {@link #lookup(RDFTerm)} for the terms that are not in the dictionary. */
+	public static final int UNKNOWN = -1;
+	
+	private final Map<Object,Integer> ids = new ConcurrentHashMap<>();
+	private final List<RDFTerm> terms = new ArrayList<>();
+	
+	/** The identifier of the term, that is created if the term is not in the dictionary yet. */
+	public int getId(RDFTerm term) {
+		Object key = key(term);
+		Integer id = ids.get(key);
+		if (id != null)
+			return id;
+		synchronized (this) {
+			id = ids.get(key);
+			if (id == null) {
+				id = terms.size();
+				terms.add(term);
+				ids.put(key, id);
+			}
+		}
+		return id;
+	}
+	
+	/** The identifier of the term, or {@link #UNKNOWN} if the term is not in the dictionary. */
+	public int lookup(RDFTerm term) {
+		Integer id = ids.get(key(term));
+		if (id == null)
+			return UNKNOWN;
+		return id;
+	}
+	
+	/** The first term that was given with this identifier. */
+	public synchronized RDFTerm getTerm(int id) {
+		return terms.get(id);
+	}
+	
+	/** The number of identifiers. */
+	public int size() {
+		return ids.size();
+	}
+	
+	/** Tests whether two terms are the same RDF term.
+	 * IRIs and literals are compared with equals, which the commons-rdf API defines independently of the implementation and which does not allocate. 
+	 * Blank nodes are compared with their N-Triples representation, as the equality of blank nodes is specific to every implementation. 
+	 */
+	public static boolean sameTerm(RDFTerm term1, RDFTerm term2) {
+		if (term1 == term2)
+			return true;
+		if (term1 instanceof BlankNode || term2 instanceof BlankNode)
+			return term1.ntriplesString().equals(term2.ntriplesString());
+		return term1.equals(term2);
+	}
+	
+	private static Object key(RDFTerm term) {
+		if (term instanceof BlankNode)
+			return term.ntriplesString();
+		return term;
+	}
+}
@@ -20,9 +20,6 @@ import net.sf.saxon.expr.EarlyEvaluationContext;
 import net.sf.saxon.expr.XPathContext;
 import net.sf.saxon.functions.Matches;
 import net.sf.saxon.s9api.Processor;
-import net.sf.saxon.s9api.XdmAtomicValue;
-import net.sf.saxon.trans.XPathException;
-import net.sf.saxon.value.AtomicValue;
 
 /** Wrapper to connect and used XPath 3.1.
  * 
@@ -34,21 +31,10 @@ public class XPath {
 	
 	
 	/** Respecting syntaxe in 3.1
-	 * 
+	 * The regular expression is compiled once and cached, see {@link XPathRegex}.
 	 */
 	public static boolean matches(String input, String regex, String flags) {
-		String tmpregex = regex.replaceAll("\00","NULLCHARACTER0000REPLACEMENT");
-		String tmpinput = input.replaceAll("\00","NULLCHARACTER0000REPLACEMENT");
-
-		AtomicValue inputAV = new XdmAtomicValue(tmpinput).getUnderlyingValue();
-		AtomicValue regexAV = new XdmAtomicValue(tmpregex).getUnderlyingValue();
-		if (flags == null) flags = "";
-		try {
-			return matcher.evalMatches(inputAV, regexAV, flags, context);
-		} catch (XPathException e) {
-			e.printStackTrace();
-			return false;
-		}
+		return XPathRegex.compile(regex, flags).matches(input);
 	}
 	
 	
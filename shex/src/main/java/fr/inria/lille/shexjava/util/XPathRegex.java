@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.Version;
+import net.sf.saxon.regex.RegularExpression;
+import net.sf.saxon.trans.XPathException;
+
+/** A XPath 3.1 regular expression compiled once, that tests whether a string contains a match like the function fn:matches.
+ * 
+ * The regular expression is always compiled by Saxon, which checks that it is valid.
+ * When the expression uses only constructs whose semantics is the same in XPath and in {@link java.util.regex}, it is translated to a {@link Pattern}, which is faster to match.
+ * The translated constructs are the characters, the single character escapes, the classes without subtraction, \d, \D, \s, \S, \w and \W, the wildcard, the anchors and the quantifiers, with no flags or the flag s.
+ * Otherwise the Saxon regular expression is used.
+ * 
+ * The compiled regular expressions are immutable and are shared through a cache, see {@link #compile(String, String)}.
+ * 
+ * @author Jérémie Dusart
+ */
+public class XPathRegex {
+	private static final String NULL_CHARACTER_REPLACEMENT = "NULLCHARACTER0000REPLACEMENT";
+	private static final Map<Pair<String,String>,XPathRegex> cache = new ConcurrentHashMap<>();
+	
+	private final String regex;
+	private final String flags;
+	private final Pattern javaPattern;
+	private final RegularExpression saxonRegex;
+	
+	private XPathRegex(String regex, String flags) {
+		this.regex = regex;
+		this.flags = flags;
+		this.saxonRegex = compileWithSaxon(regex, flags);
+		this.javaPattern = saxonRegex == null ? null : translate(regex, flags);
+	}
+	
+	/** Returns the compiled regular expression, from the cache if it was already compiled.
+	 * 
+	 * @param regex a XPath regular expression
+	 * @param flags the XPath flags, or null
+	 * @return the compiled regular expression, that does not match anything if the expression is not valid
+	 */
+	public static XPathRegex compile(String regex, String flags) {
+		if (flags == null)
+			flags = "";
+		Pair<String,String> key = new Pair<>(regex, flags);
+		XPathRegex result = cache.get(key);
+		if (result == null)
+			result = cache.computeIfAbsent(key, k -> new XPathRegex(k.one, k.two));
+		return result;
+	}
+	
+	/** True if the input contains a match of the regular expression. */
+	public boolean matches(String input) {
+		if (saxonRegex == null)
+			return false;
+		if (input.indexOf('\0') >= 0)
+			input = input.replace("\0", NULL_CHARACTER_REPLACEMENT);
+		if (javaPattern != null)
+			return javaPattern.matcher(input).find();
+		return saxonRegex.containsMatch(input);
+	}
+	
+	public String getRegex() {
+		return regex;
+	}
+	
+	public String getFlags() {
+		return flags;
+	}
+	
+	/** True if the regular expression is matched by {@link java.util.regex}. */
+	boolean isTranslated() {
+		return javaPattern != null;
+	}
+	
+	/** Compiles as fn:matches does, or returns null if the expression is not valid. */
+	private static RegularExpression compileWithSaxon(String regex, String flags) {
+		Configuration config = XPath.context.getConfiguration();
+		String hostLanguage = "XP30";
+		if (config.getXsdVersion() == Configuration.XSD11)
+			hostLanguage += "/XSD11";
+		try {
+			return Version.platform.compileRegularExpression(config, regex.replace("\0", NULL_CHARACTER_REPLACEMENT), flags, hostLanguage, null);
+		} catch (XPathException | RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/** Translates a valid XPath regular expression to an equivalent {@link Pattern}, or returns null if it uses a construct that is not translated. */
+	static Pattern translate(String regex, String flags) {
+		if (! flags.isEmpty() && ! flags.equals("s"))
+			return null;
+		boolean dotAll = flags.equals("s");
+		StringBuilder result = new StringBuilder(regex.length() + 16);
+		boolean inClass = false;
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\0')
+				return null;
+			if (c == '\\') {
+				if (i + 1 == regex.length())
+					return null;
+				char next = regex.charAt(++i);
+				if ("nrt\\|.-^?*+{}()[]$".indexOf(next) >= 0) {
+					result.append('\\').append(next);
+					continue;
+				}
+				switch (next) {
+				case 'd':
+					result.append("\\p{Nd}");
+					break;
+				case 'D':
+					result.append("\\P{Nd}");
+					break;
+				case 's':
+					result.append(inClass ? " \\t\\n\\r" : "[ \\t\\n\\r]");
+					break;
+				case 'S':
+					if (inClass)
+						return null;
+					result.append("[^ \\t\\n\\r]");
+					break;
+				case 'w':
+					if (inClass)
+						return null;
+					result.append("[^\\p{P}\\p{Z}\\p{C}]");
+					break;
+				case 'W':
+					if (inClass)
+						return null;
+					result.append("[\\p{P}\\p{Z}\\p{C}]");
+					break;
+				default:
+					// \i, \c, \p{..}, back references
+					return null;
+				}
+				continue;
+			}
+			if (inClass) {
+				switch (c) {
+				case ']':
+					inClass = false;
+					result.append(c);
+					break;
+				case '[':
+					// subtraction
+					return null;
+				case '&':
+					result.append("\\&");
+					break;
+				default:
+					result.append(c);
+				}
+				continue;
+			}
+			switch (c) {
+			case '[':
+				inClass = true;
+				result.append(c);
+				if (i + 1 < regex.length() && regex.charAt(i+1) == '^')
+					result.append(regex.charAt(++i));
+				break;
+			case '.':
+				// without the flag s, the wildcard does not match the newline and the carriage return only
+				result.append(dotAll ? "." : "[^\\n\\r]");
+				break;
+			case '$':
+				// the end of the string, not a final line terminator
+				result.append("\\z");
+				break;
+			default:
+				result.append(c);
+			}
+		}
+		if (inClass)
+			return null;
+		try {
+			return Pattern.compile(result.toString(), dotAll ? Pattern.DOTALL : 0);
+		} catch (PatternSyntaxException e) {
+			return null;
+		}
+	}
+}
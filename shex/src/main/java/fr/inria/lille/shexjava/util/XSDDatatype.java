@@ -0,0 +1,538 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.Types;
+
+/** The XML Schema datatypes whose lexical forms are checked during the validation, with scanners that do not create any object.
+ * 
+ * The accepted lexical forms are the ones accepted by {@link DatatypeUtil#isValidValue(org.apache.commons.rdf.api.Literal)}, including the leading and trailing white spaces that RDF4J collapses,
+ * except for xsd:dateTime whose fields must be made of ASCII digits and which cannot end with a separator that is not followed by a timezone.
+ * 
+ * @author Jérémie Dusart
+ */
+public enum XSDDatatype {
+	INTEGER(Types.XSD_INTEGER, Kind.INTEGER, null, null),
+	DECIMAL(Types.XSD_DECIMAL, Kind.DECIMAL, null, null),
+	FLOAT(Types.XSD_FLOAT, Kind.FLOAT, null, null),
+	DOUBLE(Types.XSD_DOUBLE, Kind.DOUBLE, null, null),
+	STRING(Types.XSD_STRING, Kind.STRING, null, null),
+	BOOLEAN(Types.XSD_BOOLEAN, Kind.BOOLEAN, null, null),
+	DATETIME(Types.XSD_DATETIME, Kind.DATETIME, null, null),
+	NONPOSITIVEINTEGER(Types.XSD_NONPOSITIVEINTEGER, Kind.INTEGER, null, "0"),
+	NEGATIVEINTEGER(Types.XSD_NEGATIVEINTEGER, Kind.INTEGER, null, "-1"),
+	LONG(Types.XSD_LONG, Kind.INTEGER, "-9223372036854775808", "9223372036854775807"),
+	INT(Types.XSD_INT, Kind.INTEGER, "-2147483648", "2147483647"),
+	SHORT(Types.XSD_SHORT, Kind.INTEGER, "-32768", "32767"),
+	BYTE(Types.XSD_BYTE, Kind.INTEGER, "-128", "127"),
+	NONNEGATIVEINTEGER(Types.XSD_NONNEGATIVEINTEGER, Kind.INTEGER, "0", null),
+	UNSIGNEDLONG(Types.XSD_UNSIGNEDLONG, Kind.INTEGER, "0", "18446744073709551615"),
+	UNSIGNEDINT(Types.XSD_UNSIGNEDINT, Kind.INTEGER, "0", "4294967295"),
+	UNSIGNEDSHORT(Types.XSD_UNSIGNEDSHORT, Kind.INTEGER, "0", "65535"),
+	UNSIGNEDBYTE(Types.XSD_UNSIGNEDBYTE, Kind.INTEGER, "0", "255"),
+	POSITIVEINTEGER(Types.XSD_POSITIVEINTEGER, Kind.INTEGER, "1", null),
+	TIME(Types.XSD_TIME, Kind.TIME, null, null),
+	DATE(Types.XSD_DATE, Kind.DATE, null, null);
+
+	private enum Kind { INTEGER, DECIMAL, FLOAT, DOUBLE, STRING, BOOLEAN, DATETIME, TIME, DATE }
+	
+	/** Bounds of the exponent of the scientific notation, mantissa in [1, 10[, as checked by RDF4J. */
+	private static final int FLOAT_MIN_EXPONENT = -149, FLOAT_MAX_EXPONENT = 104;
+	private static final int DOUBLE_MIN_EXPONENT = -1075, DOUBLE_MAX_EXPONENT = 970;
+	/** Maximal number of characters, sign included, of the integer lexical forms decoded as a long. */
+	private static final int MAX_LONG_LENGTH = 18;
+	/** Maximal number of significant digits and absolute decimal exponent of the values decoded as a double, see {@link #comparableDoubleValue(String)}. */
+	private static final int MAX_DOUBLE_DIGITS = 15, MAX_DOUBLE_EXPONENT = 22;
+	/** The powers of ten that are exact doubles. */
+	private static final double[] POWERS_OF_TEN = new double[MAX_DOUBLE_EXPONENT + 1];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i <= MAX_DOUBLE_EXPONENT; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+	/** Bound of the timezone offset in minutes. */
+	private static final int MAX_TIMEZONE_OFFSET = 14 * 60;
+	
+	private static final Map<IRI,XSDDatatype> byIri = new HashMap<>();
+	static {
+		for (XSDDatatype datatype : values())
+			byIri.put(datatype.iri, datatype);
+	}
+	
+	private final IRI iri;
+	private final Kind kind;
+	/** The canonical lexical forms of the bounds of an integer datatype, or null if it is unbounded. */
+	private final String minInclusive, maxInclusive;
+	
+	private XSDDatatype(IRI iri, Kind kind, String minInclusive, String maxInclusive) {
+		this.iri = iri;
+		this.kind = kind;
+		this.minInclusive = minInclusive;
+		this.maxInclusive = maxInclusive;
+	}
+	
+	/** Returns the checked datatype with the given IRI, or null if the lexical forms of this datatype are not checked. */
+	public static XSDDatatype forIri(IRI datatypeIri) {
+		return byIri.get(datatypeIri);
+	}
+	
+	public IRI getIri() {
+		return iri;
+	}
+	
+	/** True for xsd:decimal, xsd:float, xsd:double and the datatypes derived from xsd:integer. */
+	public boolean isNumeric() {
+		return kind == Kind.INTEGER || kind == Kind.DECIMAL || kind == Kind.FLOAT || kind == Kind.DOUBLE;
+	}
+	
+	/** True for the datatypes derived from xsd:integer. */
+	public boolean isInteger() {
+		return kind == Kind.INTEGER;
+	}
+	
+	/** True for xsd:decimal and the datatypes derived from xsd:integer. */
+	public boolean isDecimal() {
+		return kind == Kind.INTEGER || kind == Kind.DECIMAL;
+	}
+	
+	/** True if the lexical form is valid for this datatype. */
+	public boolean isValid(String lexicalForm) {
+		switch (kind) {
+		case STRING:
+			return true;
+		case DATE:
+			return isValidDate(lexicalForm);
+		case TIME:
+			return isValidTime(lexicalForm);
+		default:
+			break;
+		}
+		int from = trimStart(lexicalForm), to = trimEnd(lexicalForm, from);
+		switch (kind) {
+		case INTEGER:
+			return isValidInteger(lexicalForm, from, to, minInclusive, maxInclusive);
+		case DECIMAL:
+			return isValidDecimal(lexicalForm, from, to);
+		case FLOAT:
+			return isValidFloatingPoint(lexicalForm, from, to, FLOAT_MIN_EXPONENT, FLOAT_MAX_EXPONENT);
+		case DOUBLE:
+			return isValidFloatingPoint(lexicalForm, from, to, DOUBLE_MIN_EXPONENT, DOUBLE_MAX_EXPONENT);
+		case BOOLEAN:
+			return isValidBoolean(lexicalForm, from, to);
+		case DATETIME:
+			return isValidDateTime(lexicalForm, from, to);
+		default:
+			throw new IllegalStateException("Unknown datatype kind: " + kind);
+		}
+	}
+	
+	/** Validates the lexical form of a numeric datatype and decodes its value in the same pass.
+	 * 
+	 * @param lexicalForm
+	 * @return the value, or null if the datatype is not numeric, if the lexical form is not valid, or if it has no finite value (INF, -INF, NaN, or no digit at all)
+	 */
+	public BigDecimal decimalValue(String lexicalForm) {
+		if (! isNumeric() || ! isValid(lexicalForm))
+			return null;
+		if (hasLongValue(lexicalForm))
+			return BigDecimal.valueOf(longValue(lexicalForm));
+		int from = trimStart(lexicalForm), to = trimEnd(lexicalForm, from);
+		if (! hasMantissaDigit(lexicalForm, from, to))
+			return null;
+		return new BigDecimal(from == 0 && to == lexicalForm.length() ? lexicalForm : lexicalForm.substring(from, to));
+	}
+	
+	/** True if the lexical form, which must be valid, is decoded by {@link #longValue(String)}: the datatype is derived from xsd:integer and the value has less than 19 digits. */
+	public boolean hasLongValue(String lexicalForm) {
+		if (kind != Kind.INTEGER)
+			return false;
+		int from = trimStart(lexicalForm);
+		return trimEnd(lexicalForm, from) - from <= MAX_LONG_LENGTH;
+	}
+	
+	/** Decodes without creating any object a lexical form for which {@link #hasLongValue(String)} is true. */
+	public static long longValue(String lexicalForm) {
+		int from = trimStart(lexicalForm);
+		return parseLong(lexicalForm, from, trimEnd(lexicalForm, from));
+	}
+	
+	/** Decodes without creating any object a valid lexical form of a numeric datatype, if its value has at most 15 significant digits and a small decimal exponent.
+	 * 
+	 * The value is then rounded to the nearest double by a single operation.
+	 * As two different decimal numbers with at most 15 significant digits are never rounded to the same double,
+	 * the comparison of two such doubles gives the same result as the comparison of the exact values, see {@link #isComparableAsDouble(BigDecimal)}.
+	 * 
+	 * @param lexicalForm
+	 * @return the rounded value, or NaN if the value is not decoded
+	 */
+	public static double comparableDoubleValue(String lexicalForm) {
+		int from = trimStart(lexicalForm), to = trimEnd(lexicalForm, from);
+		if (from == to)
+			return Double.NaN;
+		int i = from;
+		boolean negative = lexicalForm.charAt(i) == '-';
+		if (negative || lexicalForm.charAt(i) == '+')
+			i++;
+		// value = significand * 10^exponent, with the zeros that follow the last significant digit not yet in the significand
+		long significand = 0;
+		int nbDigits = 0, pendingZeros = 0, exponent = 0;
+		boolean point = false, digit = false;
+		for (; i < to; i++) {
+			char c = lexicalForm.charAt(i);
+			if (c == '.') {
+				point = true;
+				continue;
+			}
+			if (! isDigit(c))
+				break;
+			digit = true;
+			if (point)
+				exponent--;
+			if (c == '0') {
+				if (significand != 0)
+					pendingZeros++;
+				continue;
+			}
+			nbDigits += pendingZeros + 1;
+			if (nbDigits > MAX_DOUBLE_DIGITS)
+				return Double.NaN;
+			for (; pendingZeros > 0; pendingZeros--)
+				significand *= 10;
+			significand = significand * 10 + (c - '0');
+		}
+		if (! digit)
+			return Double.NaN;
+		exponent += pendingZeros;
+		if (i < to) {
+			// Exponent, or INF or NaN
+			char c = lexicalForm.charAt(i);
+			if ((c != 'e' && c != 'E') || i + 1 == to)
+				return Double.NaN;
+			i++;
+			boolean negativeExponent = lexicalForm.charAt(i) == '-';
+			if (negativeExponent || lexicalForm.charAt(i) == '+')
+				i++;
+			int explicitExponent = 0;
+			for (; i < to; i++) {
+				if (! isDigit(lexicalForm.charAt(i)) || explicitExponent > 1000)
+					return Double.NaN;
+				explicitExponent = explicitExponent * 10 + (lexicalForm.charAt(i) - '0');
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (significand == 0)
+			return 0;
+		if (exponent < -MAX_DOUBLE_EXPONENT || exponent > MAX_DOUBLE_EXPONENT)
+			return Double.NaN;
+		double value = exponent >= 0 ? significand * POWERS_OF_TEN[exponent] : significand / POWERS_OF_TEN[-exponent];
+		return negative ? -value : value;
+	}
+	
+	/** True if the value has at most 15 significant digits and a small decimal exponent, so that it can be compared to the results of {@link #comparableDoubleValue(String)}
+	 * after being rounded to the nearest double by {@link BigDecimal#doubleValue()}.
+	 */
+	public static boolean isComparableAsDouble(BigDecimal value) {
+		if (value.signum() == 0)
+			return true;
+		value = value.stripTrailingZeros();
+		return value.precision() <= MAX_DOUBLE_DIGITS && -MAX_DOUBLE_EXPONENT <= value.scale() && value.scale() <= MAX_DOUBLE_EXPONENT;
+	}
+	
+	
+	//--------------------------------------------------
+	// Numeric and boolean datatypes
+	//--------------------------------------------------
+	
+	/** The characters removed by the white space collapsing of RDF4J. */
+	private static boolean isWhiteSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+	
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+	
+	private static int trimStart(String s) {
+		int from = 0;
+		while (from < s.length() && isWhiteSpace(s.charAt(from)))
+			from++;
+		return from;
+	}
+	
+	private static int trimEnd(String s, int from) {
+		int to = s.length();
+		while (to > from && isWhiteSpace(s.charAt(to - 1)))
+			to--;
+		return to;
+	}
+	
+	/** True if there is a digit before the exponent, if any. */
+	private static boolean hasMantissaDigit(String s, int from, int to) {
+		for (int i = from; i < to && s.charAt(i) != 'e' && s.charAt(i) != 'E'; i++)
+			if (isDigit(s.charAt(i)))
+				return true;
+		return false;
+	}
+	
+	/** Parses a valid integer lexical form with at most 18 characters. */
+	private static long parseLong(String s, int from, int to) {
+		boolean negative = s.charAt(from) == '-';
+		if (negative || s.charAt(from) == '+')
+			from++;
+		long value = 0;
+		for (int i = from; i < to; i++)
+			value = value * 10 + (s.charAt(i) - '0');
+		return negative ? -value : value;
+	}
+	
+	private static boolean isValidInteger(String s, int from, int to, String minInclusive, String maxInclusive) {
+		if (from == to)
+			return false;
+		boolean negative = s.charAt(from) == '-';
+		if (negative || s.charAt(from) == '+')
+			from++;
+		if (from == to)
+			return false;
+		for (int i = from; i < to; i++)
+			if (! isDigit(s.charAt(i)))
+				return false;
+		while (from < to - 1 && s.charAt(from) == '0')
+			from++;
+		negative = negative && s.charAt(from) != '0';
+		if (minInclusive != null && compareInteger(negative, s, from, to, minInclusive) < 0)
+			return false;
+		if (maxInclusive != null && compareInteger(negative, s, from, to, maxInclusive) > 0)
+			return false;
+		return true;
+	}
+	
+	/** Compares the integer whose absolute value is written by the digits s[from, to[ without leading zeros to a canonical integer lexical form. */
+	private static int compareInteger(boolean negative, String s, int from, int to, String bound) {
+		boolean boundNegative = bound.charAt(0) == '-';
+		if (negative != boundNegative)
+			return negative ? -1 : 1;
+		int boundFrom = boundNegative ? 1 : 0;
+		int result = Integer.compare(to - from, bound.length() - boundFrom);
+		for (int i = 0; result == 0 && i < to - from; i++)
+			result = Character.compare(s.charAt(from + i), bound.charAt(boundFrom + i));
+		return negative ? -result : result;
+	}
+	
+	/** Accepts an optional sign followed by digits with at most one decimal point, like RDF4J which also accepts "." for zero. */
+	private static boolean isValidDecimal(String s, int from, int to) {
+		if (from == to)
+			return false;
+		if (s.charAt(from) == '-' || s.charAt(from) == '+')
+			from++;
+		if (from == to)
+			return false;
+		boolean point = false;
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c == '.' && ! point)
+				point = true;
+			else if (! isDigit(c))
+				return false;
+		}
+		return true;
+	}
+	
+	/** A decimal mantissa and an optional integer exponent, or one of the special values.
+	 * The exponent of the value written in scientific notation must be in the given bounds.
+	 */
+	private static boolean isValidFloatingPoint(String s, int from, int to, int minExponent, int maxExponent) {
+		if (s.startsWith("INF", from) && to - from == 3 || s.startsWith("-INF", from) && to - from == 4 || s.startsWith("NaN", from) && to - from == 3)
+			return true;
+		int mantissaEnd = from;
+		while (mantissaEnd < to && s.charAt(mantissaEnd) != 'e' && s.charAt(mantissaEnd) != 'E')
+			mantissaEnd++;
+		if (! isValidDecimal(s, from, mantissaEnd))
+			return false;
+		long exponent = 0;
+		if (mantissaEnd < to) {
+			int i = mantissaEnd + 1;
+			if (! isValidInteger(s, i, to, null, null))
+				return false;
+			boolean negative = s.charAt(i) == '-';
+			if (negative || s.charAt(i) == '+')
+				i++;
+			for (; i < to; i++)
+				exponent = Math.min(exponent * 10 + (s.charAt(i) - '0'), Integer.MAX_VALUE);
+			if (negative)
+				exponent = -exponent;
+		}
+		// Position of the decimal point and of the first significant digit
+		int point = mantissaEnd, firstSignificant = -1;
+		for (int i = from; i < mantissaEnd; i++) {
+			char c = s.charAt(i);
+			if (c == '.')
+				point = i;
+			else if (c >= '1' && c <= '9' && firstSignificant < 0)
+				firstSignificant = i;
+		}
+		if (firstSignificant >= 0) {
+			if (firstSignificant < point)
+				exponent += point - firstSignificant - 1;
+			else
+				exponent -= firstSignificant - point;
+		}
+		return minExponent <= exponent && exponent <= maxExponent;
+	}
+	
+	private static boolean isValidBoolean(String s, int from, int to) {
+		int length = to - from;
+		return length == 4 && s.startsWith("true", from)
+				|| length == 5 && s.startsWith("false", from)
+				|| length == 1 && (s.charAt(from) == '1' || s.charAt(from) == '0');
+	}
+	
+	
+	//--------------------------------------------------
+	// Date and time datatypes
+	//--------------------------------------------------
+	
+	/** The value of the two digits at s[from, from+2[, or -1 if they are not digits. */
+	private static int twoDigits(String s, int from) {
+		char c1 = s.charAt(from), c2 = s.charAt(from + 1);
+		if (! isDigit(c1) || ! isDigit(c2))
+			return -1;
+		return (c1 - '0') * 10 + (c2 - '0');
+	}
+	
+	private static boolean isLeapYear(int year) {
+		return year % 400 == 0 || year % 4 == 0 && year % 100 != 0;
+	}
+	
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4: case 6: case 9: case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+	
+	/** Checks a timezone at s[from, end[, that is empty, Z, or (+|-)hh:mm whose offset is at most 14:00, like {@link javax.xml.datatype.XMLGregorianCalendar}. */
+	private static boolean isValidCalendarTimezone(String s, int from) {
+		int length = s.length() - from;
+		if (length == 0)
+			return true;
+		if (length == 1)
+			return s.charAt(from) == 'Z';
+		if (length != 6 || (s.charAt(from) != '+' && s.charAt(from) != '-') || s.charAt(from + 3) != ':')
+			return false;
+		int hours = twoDigits(s, from + 1), minutes = twoDigits(s, from + 4);
+		return hours >= 0 && minutes >= 0 && hours * 60 + minutes <= MAX_TIMEZONE_OFFSET;
+	}
+	
+	/** -?yyyy-mm-dd followed by a timezone, checked like {@link javax.xml.datatype.XMLGregorianCalendar}. */
+	private static boolean isValidDate(String s) {
+		int from = s.startsWith("-") ? 1 : 0;
+		if (s.length() - from < 10 || s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-')
+			return false;
+		int century = twoDigits(s, from), yearOfCentury = twoDigits(s, from + 2);
+		int month = twoDigits(s, from + 5), day = twoDigits(s, from + 8);
+		if (century < 0 || yearOfCentury < 0 || month < 0 || day < 0)
+			return false;
+		int year = century * 100 + yearOfCentury;
+		if (year == 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+			return false;
+		return isValidCalendarTimezone(s, from + 10);
+	}
+	
+	/** hh:mm:ss(.s+)? followed by a timezone, checked like {@link javax.xml.datatype.XMLGregorianCalendar} which accepts leap seconds and 24:00:00. */
+	private static boolean isValidTime(String s) {
+		if (s.length() < 8 || s.charAt(2) != ':' || s.charAt(5) != ':')
+			return false;
+		int hours = twoDigits(s, 0), minutes = twoDigits(s, 3), seconds = twoDigits(s, 6);
+		if (hours < 0 || minutes < 0 || seconds < 0)
+			return false;
+		int end = 8;
+		boolean zeroFraction = true;
+		if (end < s.length() && s.charAt(end) == '.') {
+			end++;
+			int fractionStart = end;
+			while (end < s.length() && isDigit(s.charAt(end))) {
+				zeroFraction = zeroFraction && s.charAt(end) == '0';
+				end++;
+			}
+			if (end == fractionStart)
+				return false;
+		}
+		if (hours > 24 || minutes > 59 || seconds > 60)
+			return false;
+		if (hours == 24 && (minutes != 0 || seconds != 0 || ! zeroFraction))
+			return false;
+		return isValidCalendarTimezone(s, end);
+	}
+	
+	/** -?yyyy-mm-ddThh:mm:ss(.s+)?(Z|(+|-)hh:mm)?, checked like RDF4J's XMLDateTime.
+	 * The year has at least four digits and no leading zero if it has more, the fractional seconds are not used when checking 24:00:00.
+	 */
+	private static boolean isValidDateTime(String s, int from, int to) {
+		if (to - from < 19)
+			return false;
+		int i = from;
+		if (s.charAt(i) == '-')
+			i++;
+		int yearStart = i;
+		long year = 0;
+		while (i < to && isDigit(s.charAt(i))) {
+			year = Math.min(year * 10 + (s.charAt(i) - '0'), Integer.MAX_VALUE + 1L);
+			i++;
+		}
+		int yearDigits = i - yearStart;
+		if (yearDigits < 4 || yearDigits > 4 && s.charAt(yearStart) == '0' || year == 0 || year > Integer.MAX_VALUE)
+			return false;
+		// -mm-ddThh:mm:ss
+		if (to - i < 15 || s.charAt(i) != '-' || s.charAt(i + 3) != '-' || s.charAt(i + 6) != 'T' || s.charAt(i + 9) != ':' || s.charAt(i + 12) != ':')
+			return false;
+		int month = twoDigits(s, i + 1), day = twoDigits(s, i + 4);
+		int hours = twoDigits(s, i + 7), minutes = twoDigits(s, i + 10), seconds = twoDigits(s, i + 13);
+		if (month < 1 || month > 12 || day < 1 || day > daysInMonth((int) year, month))
+			return false;
+		if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59)
+			return false;
+		if (hours == 24 && (minutes != 0 || seconds != 0))
+			return false;
+		i += 15;
+		if (i < to && s.charAt(i) == '.') {
+			int fractionStart = ++i;
+			while (i < to && isDigit(s.charAt(i)))
+				i++;
+			if (i == fractionStart)
+				return false;
+		}
+		if (i == to)
+			return true;
+		if (to - i == 1)
+			return s.charAt(i) == 'Z';
+		if (to - i != 6 || (s.charAt(i) != '+' && s.charAt(i) != '-') || s.charAt(i + 3) != ':')
+			return false;
+		int timezoneHours = twoDigits(s, i + 1), timezoneMinutes = twoDigits(s, i + 4);
+		if (timezoneHours < 0 || timezoneMinutes < 0)
+			return false;
+		return timezoneHours < 14 && timezoneMinutes <= 59 || timezoneHours == 14 && timezoneMinutes == 0;
+	}
+}
@@ -16,49 +16,136 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.validation;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 
-/**
+/** With every triple constraint associates its number of occurrences.
+ * 
+ * Every triple constraint of the bag has an ordinal, and the multiplicities are stored in an int array indexed by the ordinals, 
+ * so a bag can be updated in place with {@link #increment(int)} and {@link #decrement(int)} instead of being rebuilt.
+ * The ordinals are either fixed when the bag is created, for instance those of an {@link IntervalProgram}, or assigned in the order in which the triple constraints are added.
  * 
  * @author Iovka Boneva
  * 10 oct. 2017
  */
 public class Bag {
 
-	private Map<TripleConstraint, Integer> theMap;
+	private List<TripleConstraint> tripleConstraints;
+	private Map<TripleConstraint,Integer> ordinals;
+	/** If true, the triple constraints without an ordinal cannot be added. */
+	private boolean fixedOrdinals;
+	private int[] multiplicities;
 
+	/** Creates an empty bag that assigns the ordinals in the order in which the triple constraints are added. */
 	public Bag(){
-		theMap = new HashMap<>();
+		this.tripleConstraints = new ArrayList<>();
+		this.ordinals = new IdentityHashMap<>();
+		this.fixedOrdinals = false;
+		this.multiplicities = new int[8];
+	}
+	
+	/** Creates an empty bag in which the ordinal of a triple constraint is its position in the list.
+	 * 
+	 * @param tripleConstraints the only triple constraints that can be added to the bag
+	 */
+	public Bag(List<TripleConstraint> tripleConstraints) {
+		this.tripleConstraints = tripleConstraints;
+		this.ordinals = new IdentityHashMap<>();
+		for (TripleConstraint tc : tripleConstraints)
+			ordinals.putIfAbsent(tc, ordinals.size());
+		this.fixedOrdinals = true;
+		this.multiplicities = new int[tripleConstraints.size()];
+	}
+	
+	/** Creates an empty bag that uses the ordinals of the program, see {@link IntervalProgram#getOrdinal(TripleConstraint)}. */
+	public Bag(IntervalProgram program) {
+		this.tripleConstraints = program.getTripleConstraints();
+		this.ordinals = program.getOrdinals();
+		this.fixedOrdinals = true;
+		this.multiplicities = new int[program.getNbOrdinals()];
 	}
 
+	/** The ordinal of the triple constraint, or -1 if it has none. */
+	public int getOrdinal(TripleConstraint tripleConstraint) {
+		Integer ord = ordinals.get(tripleConstraint);
+		return ord == null ? -1 : ord;
+	}
+	
+	Map<TripleConstraint,Integer> getOrdinals() {
+		return ordinals;
+	}
+	
 	public void increment(TripleConstraint tripleConstraint){
-		if (theMap.containsKey(tripleConstraint))
-			theMap.put(tripleConstraint, theMap.get(tripleConstraint) + 1);
-		else
-			theMap.put(tripleConstraint, 1);
+		int ord = getOrdinal(tripleConstraint);
+		if (ord == -1) {
+			if (fixedOrdinals)
+				throw new IllegalArgumentException("Invalid argument value: the triple constraint has no ordinal in the bag.");
+			ord = ordinals.size();
+			ordinals.put(tripleConstraint, ord);
+			tripleConstraints.add(tripleConstraint);
+			if (ord == multiplicities.length)
+				multiplicities = Arrays.copyOf(multiplicities, 2 * ord);
+		}
+		multiplicities[ord]++;
+	}
+	
+	/** Adds one occurrence of the triple constraint that has the ordinal. */
+	public void increment(int ordinal) {
+		multiplicities[ordinal]++;
+	}
+
+	/** Removes one occurrence of the triple constraint, that must be in the bag. */
+	void decrement(TripleConstraint tripleConstraint){
+		multiplicities[ordinals.get(tripleConstraint)]--;
+	}
+	
+	/** Removes one occurrence of the triple constraint that has the ordinal, that must be in the bag. */
+	void decrement(int ordinal) {
+		multiplicities[ordinal]--;
 	}
 
 	public int getMult(TripleConstraint tripleConstraint){
-		if (theMap.containsKey(tripleConstraint))
-			return theMap.get(tripleConstraint);
-		else 
+		Integer ord = ordinals.get(tripleConstraint);
+		if (ord == null)
 			return 0;
+		return multiplicities[ord];
+	}
+	
+	public int getMult(int ordinal) {
+		return multiplicities[ordinal];
+	}
+	
+	/** The multiplicities indexed by the ordinals. The array is the one updated by the bag, it must not be modified and can be longer than the number of ordinals. */
+	public int[] getMultiplicities() {
+		return multiplicities;
 	}
 
 	public Set<TripleConstraint> alphabet() {
-		return Collections.unmodifiableSet(theMap.keySet());
+		Set<TripleConstraint> result = new HashSet<>();
+		for (Map.Entry<TripleConstraint,Integer> e : ordinals.entrySet())
+			if (multiplicities[e.getValue()] != 0)
+				result.add(e.getKey());
+		return Collections.unmodifiableSet(result);
 	}
 
 	public String toString(){
-		return "Bag[" + theMap.toString() + "]";
+		return "Bag[" + getMap().toString() + "]";
 	}
 	
 	protected Map<TripleConstraint, Integer> getMap() {
-		return Collections.unmodifiableMap(theMap);
+		Map<TripleConstraint, Integer> result = new HashMap<>();
+		for (Map.Entry<TripleConstraint,Integer> e : ordinals.entrySet())
+			if (multiplicities[e.getValue()] != 0)
+				result.put(e.getKey(), multiplicities[e.getValue()]);
+		return Collections.unmodifiableMap(result);
 	}
 }
@@ -30,6 +30,7 @@ import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 
 /** Starting from a map that with every {@link Triple} associates a set of matching {@link TripleConstraint}s, allows to iterate over all possible ways to match every triple with a unique constraint.
  * For each such matching, the iterator returns the corresponding bag that with every triple constraint associates the number of matching triples. 
+ * The same bag is returned by all the calls to {@link #next()}: when the iterator advances, only the triples whose constraint changes are updated in the bag.
  * 
  * @author Iovka Boneva
  * 10 oct. 2017
@@ -45,6 +46,10 @@ public class BagIterator implements Iterator<Bag>{
 	private int[] sizes;
 	/** Used for the iteration:  <= currentIndexes[i] < sizes[i] */
 	private int[] currentIndexes;
+	/** The bag of the current indexes */
+	private Bag bag;
+	/** True if the current bag was returned by {@link #next()} and the iterator must advance before it is used again */
+	private boolean advancePending;
 	 
 	/** 
 	 * 
@@ -52,6 +57,15 @@ public class BagIterator implements Iterator<Bag>{
 	 * @param allMatches allMatches.get(i) contains the triple constraints matching with neighbourhood.get(i)
 	 */
 	public BagIterator(PreMatching preMatching) {
+		this(preMatching, null);
+	}
+	
+	/** 
+	 * 
+	 * @param preMatching
+	 * @param program if not null, the returned bag uses the ordinals of the program
+	 */
+	public BagIterator(PreMatching preMatching, IntervalProgram program) {
 		neighbourhood = new ArrayList<>();
 		allMatches = new ArrayList<>();
 		
@@ -67,10 +81,27 @@ public class BagIterator implements Iterator<Bag>{
 		}
 		currentIndexes[0] = 0;
 		sizes[0] = 1;
+		
+		if (program != null) {
+			bag = new Bag(program);
+		} else {
+			List<TripleConstraint> tripleConstraints = new ArrayList<>();
+			for (List<TripleConstraint> candidates : allMatches)
+				tripleConstraints.addAll(candidates);
+			bag = new Bag(tripleConstraints);
+		}
+		if (hasNext())
+			for (List<TripleConstraint> candidates : allMatches)
+				bag.increment(candidates.get(0));
+		advancePending = false;
 	}
 
 	@Override
 	public boolean hasNext() {
+		if (advancePending) {
+			goToNext();
+			advancePending = false;
+		}
 		for (int i = 0; i < currentIndexes.length; i++)
 			if (currentIndexes[i] >= sizes[i])
 				return false;
@@ -81,7 +112,10 @@ public class BagIterator implements Iterator<Bag>{
 		int i = currentIndexes.length - 1;
 		boolean incrementsToZero = true;
 		while (i > 0 && incrementsToZero) {
+			List<TripleConstraint> candidates = allMatches.get(i-1);
+			bag.decrement(candidates.get(currentIndexes[i]));
 			currentIndexes[i] = (currentIndexes[i]+1) % sizes[i];
+			bag.increment(candidates.get(currentIndexes[i]));
 			incrementsToZero = currentIndexes[i]==0;
 			i--;
 		}
@@ -94,17 +128,15 @@ public class BagIterator implements Iterator<Bag>{
 		if (! hasNext())
 			throw new NoSuchElementException();
 		
-		Bag next = new Bag();
-		for (int i = 1; i < currentIndexes.length; i++) {
-			next.increment(allMatches.get(i-1).get(currentIndexes[i]));
-		}
-		
-		goToNext();
-		
-		return next;
+		advancePending = true;
+		return bag;
 	}
 	
 	public Map<Triple, Label> getCurrentBag(){
+		if (advancePending) {
+			goToNext();
+			advancePending = false;
+		}
 		Map<Triple, Label> currentMatch = new HashMap<>();
 		
 		Iterator<List<TripleConstraint>> ite = allMatches.iterator();
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.commons.rdf.api.Triple;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+
+/** Searches for a way to match every triple of a pre-matching with a unique triple constraint, such that the corresponding bag satisfies a SORBE triple expression.
+ * 
+ * The search returns the same matching as the first bag of {@link BagIterator} that satisfies the expression, but it enumerates far fewer bags:
+ * <ul>
+ * <li>The triples that match the same list of triple constraints are interchangeable, so only the assignments in which the triple constraints of such triples 
+ * appear in the order of the list are enumerated. This enumerates the possible multiplicities of the triple constraints instead of all the permutations.</li>
+ * <li>A partial assignment is abandoned as soon as no way to complete it can satisfy the expression. The multiplicities of its bag are lower bounds of the multiplicities of the complete bags, 
+ * and adding the numbers of the remaining triples that can match each triple constraint gives upper bounds, with which {@link IntervalProgram#isSatisfiable(int[], int[], int[])} 
+ * rejects for instance the assignments in which two sub-expressions of a ONE_OF are used, or in which a minimal cardinality cannot be reached anymore.</li>
+ * </ul>
+ * A single {@link Bag} is updated incrementally during the search, and the bags of the complete assignments are checked with an {@link IntervalProgram} or with an {@link IntervalComputation}.
+ * 
+ * @author Jérémie Dusart
+ */
+public class BagSearch {
+	private List<Triple> neighbourhood;
+	/** allMatches.get(i) contains all triple constraints matched with the triple neighbourhood.get(i) */
+	private List<List<TripleConstraint>> allMatches;
+	/** The position of the previous triple that has the same list of triple constraints, or -1 */
+	private int[] previousInGroup;
+	private int nbVisitedNodes;
+	
+	/**
+	 * @param preMatching the triples to match and their candidate triple constraints
+	 */
+	public BagSearch(PreMatching preMatching) {
+		this.neighbourhood = new ArrayList<>();
+		this.allMatches = new ArrayList<>();
+		
+		Map<List<TripleConstraint>,Integer> lastOfGroup = new HashMap<>();
+		for (Map.Entry<Triple, List<TripleConstraint>> e: preMatching.getPreMatching().entrySet()) {
+			neighbourhood.add(e.getKey());
+			allMatches.add(e.getValue());
+		}
+		previousInGroup = new int[allMatches.size()];
+		for (int i = 0; i < allMatches.size(); i++) {
+			Integer previous = lastOfGroup.put(allMatches.get(i), i);
+			previousInGroup[i] = previous == null ? -1 : previous;
+		}
+	}
+	
+	/** Searches for an assignment whose bag satisfies the triple expression.
+	 * 
+	 * @param tripleExpression the SORBE triple expression
+	 * @param intervalComputation used to check the bags
+	 * @param arguments the additional arguments given to the interval computation
+	 * @return with every triple associates the label of its triple constraint, or null if there is no such assignment
+	 */
+	public Map<Triple, Label> search(TripleExpr tripleExpression, IntervalComputation intervalComputation, Object... arguments) {
+		IntervalProgram program = new IntervalProgram(tripleExpression, new DynamicCollectorOfTripleConstraints().getTCs(tripleExpression));
+		Object[] visitorArguments = new Object[arguments.length + 1];
+		System.arraycopy(arguments, 0, visitorArguments, 1, arguments.length);
+		int[] choice = search(new Bag(program), program, bag -> {
+			visitorArguments[0] = bag;
+			tripleExpression.accept(intervalComputation, visitorArguments);
+			return intervalComputation.getResult().contains(1);
+		});
+		return choice == null ? null : getMatching(choice);
+	}
+	
+	/** Searches for an assignment whose bag satisfies the compiled triple expression.
+	 * 
+	 * @param program the compiled SORBE triple expression
+	 * @return with every triple associates the label of its triple constraint, or null if there is no such assignment
+	 */
+	public Map<Triple, Label> search(IntervalProgram program) {
+		Map<Triple, TripleConstraint> assignment = findAssignment(program);
+		if (assignment == null)
+			return null;
+		Map<Triple, Label> result = new HashMap<>();
+		for (Map.Entry<Triple, TripleConstraint> e : assignment.entrySet())
+			result.put(e.getKey(), e.getValue().getId());
+		return result;
+	}
+	
+	/** Searches for an assignment whose bag satisfies the compiled triple expression.
+	 * 
+	 * @param program the compiled SORBE triple expression
+	 * @return with every triple associates its triple constraint, or null if there is no such assignment
+	 */
+	public Map<Triple, TripleConstraint> findAssignment(IntervalProgram program) {
+		int[] registers = program.createRegisters();
+		int[] choice = search(new Bag(program), program, bag -> program.isSatisfied(bag.getMultiplicities(), registers));
+		if (choice == null)
+			return null;
+		Map<Triple, TripleConstraint> result = new HashMap<>();
+		for (int i = 0; i < choice.length; i++)
+			result.put(neighbourhood.get(i), allMatches.get(i).get(choice[i]));
+		return result;
+	}
+	
+	/** The number of triples to which a triple constraint was assigned during the last search, including the assignments that were abandoned. */
+	public int getNbVisitedNodes() {
+		return nbVisitedNodes;
+	}
+	
+	/** Enumerates the assignments and updates the bag incrementally.
+	 * 
+	 * @param bag an empty bag that uses the ordinals of the program
+	 * @param program used to abandon the partial assignments
+	 * @param satisfies tests the bag of a complete assignment
+	 * @return the index of the triple constraint chosen for every triple, or null if there is no such assignment
+	 */
+	private int[] search(Bag bag, IntervalProgram program, Predicate<Bag> satisfies) {
+		int size = allMatches.size();
+		int nbOrdinals = bag.getMultiplicities().length;
+		// upper[ord] is the multiplicity of ord in the bag plus the number of the remaining triples that can match it
+		int[] upper = new int[nbOrdinals];
+		int[][] candidateOrdinals = new int[size][];
+		for (int i = 0; i < size; i++) {
+			List<TripleConstraint> candidates = allMatches.get(i);
+			candidateOrdinals[i] = new int[candidates.size()];
+			for (int j = 0; j < candidates.size(); j++) {
+				TripleConstraint tc = candidates.get(j);
+				int ord = bag.getOrdinal(tc);
+				candidateOrdinals[i][j] = ord;
+				upper[ord]++;
+			}
+		}
+		int[] registers = program.createPartialRegisters();
+		nbVisitedNodes = 0;
+		if (! program.isSatisfiable(bag.getMultiplicities(), upper, registers))
+			return null;
+		
+		// choice[i] is the index of the triple constraint chosen for the triple i, if assigned[i]
+		// otherwise the index after which the next choice is looked for
+		int[] choice = new int[size];
+		boolean[] assigned = new boolean[size];
+		int i = 0;
+		if (size > 0)
+			choice[0] = -1;
+		while (i >= 0) {
+			if (i == size) {
+				if (satisfies.test(bag))
+					return choice;
+				i--;
+				continue;
+			}
+			int[] candidates = candidateOrdinals[i];
+			if (assigned[i]) {
+				bag.decrement(candidates[choice[i]]);
+				upper[candidates[choice[i]]]--;
+				for (int ord : candidates)
+					upper[ord]++;
+			}
+			int next = choice[i] + 1;
+			if (next == candidates.length) {
+				assigned[i] = false;
+				i--;
+				continue;
+			}
+			choice[i] = next;
+			assigned[i] = true;
+			bag.increment(candidates[next]);
+			for (int ord : candidates)
+				upper[ord]--;
+			upper[candidates[next]]++;
+			nbVisitedNodes++;
+			// the next choice for the same triple is tried if the partial assignment cannot be completed
+			if (! program.isSatisfiable(bag.getMultiplicities(), upper, registers))
+				continue;
+			i++;
+			if (i < size) {
+				// the triples of a group are assigned to non decreasing indexes
+				choice[i] = previousInGroup[i] >= 0 ? choice[previousInGroup[i]] - 1 : -1;
+				assigned[i] = false;
+			}
+		}
+		return null;
+	}
+	
+	private Map<Triple, Label> getMatching(int[] choice) {
+		Map<Triple, Label> result = new HashMap<>();
+		for (int i = 0; i < choice.length; i++)
+			result.put(neighbourhood.get(i), allMatches.get(i).get(choice[i]).getId());
+		return result;
+	}
+}
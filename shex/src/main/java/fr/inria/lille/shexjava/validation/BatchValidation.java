@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.util.CommonGraph;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Validates a large collection of pairs (node, label), as a shape map, using several threads.
+ * 
+ * The pairs are split in contiguous partitions, one per thread of the {@link ForkJoinPool}.
+ * Every partition is validated by its own {@link SORBEBasedValidation} whose typing is kept for all the pairs of the partition, 
+ * so that an algorithm that memorizes its results (e.g. {@link RecursiveValidationWithMemorization}) reuses them from one pair to the next. 
+ * The algorithms are created once, when the batch validation is created, and their typing is reset at the beginning of every call to {@link #validateAll(Collection)}.
+ * The nodes of the graph and its average degree are computed once and shared by all the algorithms, which must not modify them.
+ * The SORBE expressions and the triple constraints of the schema are shared by all the threads through the {@link CompiledSchema} of the schema, 
+ * and the neighbourhoods retrieved from the graph through a single {@link NeighbourhoodCache}.
+ * 
+ * The graph must not be modified while the batch validation is used, since its nodes and its neighbourhoods are collected only once.
+ * Observers of the matchings are not supported.
+ * 
+ * @author Jérémie Dusart
+ */
+public class BatchValidation {
+	/** The maximal number of entries of the neighbourhood cache used by default. */
+	public static final int DEFAULT_NEIGHBOURHOOD_CACHE_SIZE = 1 << 16;
+	
+	private ShexSchema schema;
+	private ForkJoinPool pool;
+	private List<SORBEBasedValidation> algorithms;
+	private NeighbourhoodCache neighbourhoodCache;
+	
+	private long nbValidatedPairs;
+	private long elapsedTime;
+	
+	/** Creates the algorithm of a partition from the nodes and the expected degree of the graph shared by all the partitions. 
+	 * The constructors of the algorithms that take these arguments can be used, e.g. <code>RecursiveValidationWithMemorization::new</code>.
+	 */
+	public interface AlgorithmFactory {
+		public SORBEBasedValidation create(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes, long expectedDegree);
+	}
+	
+	/** Uses {@link RecursiveValidationWithMemorization} and the common {@link ForkJoinPool}. */
+	public BatchValidation(ShexSchema schema, Graph graph) {
+		this(schema, graph, RecursiveValidationWithMemorization::new, ForkJoinPool.commonPool());
+	}
+	
+	/** Uses a neighbourhood cache of {@link #DEFAULT_NEIGHBOURHOOD_CACHE_SIZE} entries.
+	 * 
+	 * @param schema
+	 * @param graph
+	 * @param algorithmFactory creates the algorithm used by one partition
+	 * @param pool the pool whose parallelism gives the number of partitions
+	 */
+	public BatchValidation(ShexSchema schema, Graph graph, AlgorithmFactory algorithmFactory, ForkJoinPool pool) {
+		this(schema, graph, algorithmFactory, pool, DEFAULT_NEIGHBOURHOOD_CACHE_SIZE);
+	}
+	
+	/** 
+	 * @param schema
+	 * @param graph
+	 * @param algorithmFactory creates the algorithm used by one partition, called once per thread of the pool
+	 * @param pool the pool whose parallelism gives the number of partitions
+	 * @param neighbourhoodCacheSize the maximal number of entries of the neighbourhood cache shared by the algorithms, must be positive
+	 */
+	public BatchValidation(ShexSchema schema, Graph graph, AlgorithmFactory algorithmFactory, ForkJoinPool pool, int neighbourhoodCacheSize) {
+		this.schema = schema;
+		this.pool = pool;
+		this.neighbourhoodCache = new NeighbourhoodCache(neighbourhoodCacheSize);
+		Set<RDFTerm> allGraphNodes = Collections.unmodifiableSet(CommonGraph.getAllNodes(graph));
+		long expectedDegree = CommonGraph.getAverageDegree(graph, allGraphNodes.size());
+		this.algorithms = new ArrayList<>();
+		for (int i = 0; i < pool.getParallelism(); i++) {
+			SORBEBasedValidation algorithm = algorithmFactory.create(schema, graph, allGraphNodes, expectedDegree);
+			algorithm.setNeighbourhoodCache(neighbourhoodCache);
+			algorithms.add(algorithm);
+		}
+	}
+	
+	/** The cache of the neighbourhoods shared by the algorithms, that must be cleared when the graph is modified. */
+	public NeighbourhoodCache getNeighbourhoodCache() {
+		return neighbourhoodCache;
+	}
+	
+	/** Validates every given pair.
+	 * 
+	 * @param pairs the pairs to validate
+	 * @return a typing that contains the status of every given pair
+	 * @exception IllegalArgumentException if a label does not belong to the schema
+	 */
+	public synchronized Typing validateAll(Collection<Pair<RDFTerm,Label>> pairs) {
+		for (Pair<RDFTerm,Label> nl : pairs) {
+			if (nl.one==null || nl.two==null)
+				throw new IllegalArgumentException("Invalid argument value: focusNode or label cannot be null.");
+			if (!schema.getShapeExprsMap().containsKey(nl.two))
+				throw new IllegalArgumentException("Unknown label: "+nl.two);
+		}
+		long start = System.nanoTime();
+		
+		List<Pair<RDFTerm,Label>> elements = new ArrayList<>(pairs);
+		int nbPartitions = Math.max(1, Math.min(pool.getParallelism(), elements.size()));
+		List<Callable<Typing>> tasks = new ArrayList<>();
+		for (int i = 0; i < nbPartitions; i++) {
+			List<Pair<RDFTerm,Label>> partition = elements.subList(i * elements.size() / nbPartitions, (i+1) * elements.size() / nbPartitions);
+			SORBEBasedValidation algorithm = algorithms.get(i);
+			tasks.add(() -> {
+				algorithm.resetTyping();
+				return algorithm.validateAll(partition);
+			});
+		}
+		
+		TypingForValidation result = new TypingForValidation();
+		try {
+			for (Future<Typing> future : pool.invokeAll(tasks))
+				for (Entry<Pair<RDFTerm,Label>,Status> entry : future.get().getStatusMap().entrySet())
+					result.setStatus(entry.getKey().one, entry.getKey().two, entry.getValue());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Validation interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		
+		nbValidatedPairs = elements.size();
+		elapsedTime = System.nanoTime() - start;
+		return result;
+	}
+	
+	/** The number of pairs validated by the last call to {@link #validateAll(Collection)}. */
+	public long getNbValidatedPairs() {
+		return nbValidatedPairs;
+	}
+	
+	/** The duration of the last call to {@link #validateAll(Collection)}, in nanoseconds. */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+	
+	/** The number of pairs validated per second by the last call to {@link #validateAll(Collection)}. */
+	public double getThroughput() {
+		if (elapsedTime == 0)
+			return 0;
+		return nbValidatedPairs * 1e9 / elapsedTime;
+	}
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.RDFTerm;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+import fr.inria.lille.shexjava.util.TermDictionary;
+
+/** A {@link TypingForValidation} that stores the statuses in packed arrays instead of a map of pairs.
+ * 
+ * Every node is identified by its identifier in a {@link TermDictionary} and every label by an ordinal.
+ * For every label, the status of the nodes is stored with 2 bits per node in an array of longs, so reading or updating a status does not allocate.
+ * The map returned by {@link #getStatusMap()} is constructed only when it is requested, and is reused until the typing is modified.
+ * 
+ * Not thread-safe, see {@link ConcurrentTypingForValidation}.
+ * 
+ * @author Jérémie Dusart
+ */
+public class CompactTypingForValidation extends TypingForValidation {
+	private static final int STATUS_NOTCOMPUTED = 0;
+	private static final int STATUS_CONFORMANT = 1;
+	private static final int STATUS_NONCONFORMANT = 2;
+	/** Number of statuses stored in a long. */
+	private static final int STATUSES_PER_WORD = 32;
+	
+	private final TermDictionary nodes;
+	private final Map<Label,Integer> labelOrdinals;
+	private final List<Label> labels;
+	private final List<long[]> statuses;
+	
+	private Map<Pair<RDFTerm,Label>,Status> statusMap;
+
+	public CompactTypingForValidation() {
+		this(Collections.emptyList());
+	}
+	
+	/** 
+	 * @param labels the labels that are expected in the typing, other labels are added when needed
+	 */
+	public CompactTypingForValidation(Collection<Label> labels) {
+		this(labels, new TermDictionary());
+	}
+	
+	/** 
+	 * @param labels the labels that are expected in the typing, other labels are added when needed
+	 * @param nodes the dictionary that gives the identifiers of the nodes, which can be shared with other typings
+	 */
+	public CompactTypingForValidation(Collection<Label> labels, TermDictionary nodes) {
+		this.nodes = nodes;
+		this.labelOrdinals = new HashMap<>();
+		this.labels = new ArrayList<>();
+		this.statuses = new ArrayList<>();
+		for (Label label : labels)
+			getOrCreateOrdinal(label);
+	}
+	
+	@Override
+	public void setStatus(RDFTerm node, Label label, Status status) {
+		set(nodes.getId(node), getOrCreateOrdinal(label), encode(status));
+	}
+	
+	@Override
+	public Status getStatus(RDFTerm node, Label label) {
+		return decode(get(node, label));
+	}
+	
+	@Override
+	public boolean isConformant(RDFTerm node, Label label) {
+		return get(node, label) == STATUS_CONFORMANT;
+	}
+	
+	@Override
+	public boolean isNonConformant(RDFTerm node, Label label) {
+		return get(node, label) != STATUS_CONFORMANT;
+	}
+	
+	@Override
+	public Set<Label> getShapesLabel(RDFTerm node) {
+		int nodeId = nodes.lookup(node);
+		if (nodeId == TermDictionary.UNKNOWN)
+			return Collections.emptySet();
+		Set<Label> result = new HashSet<>();
+		for (int ordinal = 0; ordinal < labels.size(); ordinal++)
+			if (get(nodeId, ordinal) != STATUS_NOTCOMPUTED)
+				result.add(labels.get(ordinal));
+		return result;
+	}
+	
+	@Override
+	public Set<RDFTerm> getNodes(Label label) {
+		Integer ordinal = labelOrdinals.get(label);
+		if (ordinal == null)
+			return Collections.emptySet();
+		Set<RDFTerm> result = new HashSet<>();
+		long[] words = statuses.get(ordinal);
+		for (int nodeId = 0; nodeId < words.length * STATUSES_PER_WORD; nodeId++)
+			if (get(nodeId, ordinal) != STATUS_NOTCOMPUTED)
+				result.add(nodes.getTerm(nodeId));
+		return result;
+	}
+	
+	@Override
+	public void removeNodeLabel(RDFTerm node, Label label) {
+		int nodeId = nodes.lookup(node);
+		Integer ordinal = labelOrdinals.get(label);
+		if (nodeId != TermDictionary.UNKNOWN && ordinal != null)
+			set(nodeId, ordinal, STATUS_NOTCOMPUTED);
+	}
+	
+	@Override
+	public Map<Pair<RDFTerm, Label>, Status> getStatusMap() {
+		if (statusMap == null) {
+			Map<Pair<RDFTerm, Label>, Status> result = new HashMap<>();
+			for (int ordinal = 0; ordinal < labels.size(); ordinal++) {
+				long[] words = statuses.get(ordinal);
+				for (int nodeId = 0; nodeId < words.length * STATUSES_PER_WORD; nodeId++) {
+					int status = get(nodeId, ordinal);
+					if (status != STATUS_NOTCOMPUTED)
+						result.put(new Pair<>(nodes.getTerm(nodeId), labels.get(ordinal)), decode(status));
+				}
+			}
+			statusMap = Collections.unmodifiableMap(result);
+		}
+		return statusMap;
+	}
+	
+	private int get(RDFTerm node, Label label) {
+		int nodeId = nodes.lookup(node);
+		Integer ordinal = labelOrdinals.get(label);
+		if (nodeId == TermDictionary.UNKNOWN || ordinal == null)
+			return STATUS_NOTCOMPUTED;
+		return get(nodeId, ordinal);
+	}
+	
+	private int get(int nodeId, int ordinal) {
+		long[] words = statuses.get(ordinal);
+		int index = nodeId / STATUSES_PER_WORD;
+		if (index >= words.length)
+			return STATUS_NOTCOMPUTED;
+		return (int) (words[index] >>> shift(nodeId)) & 3;
+	}
+	
+	private void set(int nodeId, int ordinal, int status) {
+		long[] words = statuses.get(ordinal);
+		int index = nodeId / STATUSES_PER_WORD;
+		if (index >= words.length) {
+			if (status == STATUS_NOTCOMPUTED)
+				return;
+			words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+			statuses.set(ordinal, words);
+		}
+		words[index] = (words[index] & ~(3L << shift(nodeId))) | ((long) status << shift(nodeId));
+		statusMap = null;
+	}
+	
+	private static int shift(int nodeId) {
+		return (nodeId % STATUSES_PER_WORD) * 2;
+	}
+	
+	private int getOrCreateOrdinal(Label label) {
+		Integer ordinal = labelOrdinals.get(label);
+		if (ordinal == null) {
+			ordinal = labels.size();
+			labelOrdinals.put(label, ordinal);
+			labels.add(label);
+			statuses.add(new long[0]);
+		}
+		return ordinal;
+	}
+	
+	private static int encode(Status status) {
+		switch (status) {
+		case CONFORMANT: return STATUS_CONFORMANT;
+		case NONCONFORMANT: return STATUS_NONCONFORMANT;
+		default: return STATUS_NOTCOMPUTED;
+		}
+	}
+	
+	private static Status decode(int status) {
+		switch (status) {
+		case STATUS_CONFORMANT: return Status.CONFORMANT;
+		case STATUS_NONCONFORMANT: return Status.NONCONFORMANT;
+		default: return Status.NOTCOMPUTED;
+		}
+	}
+}
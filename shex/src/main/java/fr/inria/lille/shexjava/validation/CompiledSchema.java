@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+
+/** The structures that the validation algorithms compute from a schema: the SORBE version of the triple expression of every shape, the triple constraints of every SORBE triple expression, their {@link TripleConstraintIndex} and the {@link IntervalProgram} of the expression.
+ * 
+ * They are computed once for all the shapes when the compiled schema is created, and are then only read, so that a compiled schema can be shared by all the validation algorithms and all the threads that use the same schema.
+ * Use {@link ShexSchema#getCompiledSchema()} to get the compiled schema attached to a schema.
+ * 
+ * @author Jérémie Dusart
+ */
+public class CompiledSchema {
+	private final SORBEGenerator sorbeGenerator;
+	private final DynamicCollectorOfTripleConstraints collectorTC;
+	private final Map<Label,TripleConstraintIndex> indexes;
+	private final Map<Label,IntervalProgram> intervalPrograms;
+	
+	public CompiledSchema(ShexSchema schema) {
+		this.sorbeGenerator = new SORBEGenerator(schema.getRdfFactory());
+		this.collectorTC = new DynamicCollectorOfTripleConstraints();
+		this.indexes = new ConcurrentHashMap<>();
+		this.intervalPrograms = new ConcurrentHashMap<>();
+		for (ShapeExpr expr : schema.getShapeExprsMap().values()) {
+			if (expr instanceof Shape) {
+				TripleExpr sorbe = sorbeGenerator.getSORBETripleExpr((Shape) expr);
+				getTripleConstraintIndex(sorbe);
+				getIntervalProgram(sorbe);
+			}
+		}
+	}
+	
+	/** The SORBE version of the triple expression of the shape. */
+	public TripleExpr getSORBETripleExpr(Shape shape) {
+		return sorbeGenerator.getSORBETripleExpr(shape);
+	}
+	
+	/** The triple constraints that appear in a SORBE triple expression. */
+	public List<TripleConstraint> getTCs(TripleExpr texpr) {
+		return collectorTC.getTCs(texpr);
+	}
+	
+	/** The index by predicate of the triple constraints that appear in a SORBE triple expression. */
+	public TripleConstraintIndex getTripleConstraintIndex(TripleExpr texpr) {
+		TripleConstraintIndex result = indexes.get(texpr.getId());
+		if (result == null)
+			result = indexes.computeIfAbsent(texpr.getId(), k -> new TripleConstraintIndex(collectorTC.getTCs(texpr)));
+		return result;
+	}
+	
+	/** The SORBE triple expression compiled for the evaluation of the bags, whose ordinals are the positions in {@link #getTCs(TripleExpr)}. */
+	public IntervalProgram getIntervalProgram(TripleExpr texpr) {
+		IntervalProgram result = intervalPrograms.get(texpr.getId());
+		if (result == null)
+			result = intervalPrograms.computeIfAbsent(texpr.getId(), k -> new IntervalProgram(texpr, collectorTC.getTCs(texpr)));
+		return result;
+	}
+	
+	public SORBEGenerator getSORBEGenerator() {
+		return sorbeGenerator;
+	}
+	
+	public DynamicCollectorOfTripleConstraints getCollectorOfTripleConstraints() {
+		return collectorTC;
+	}
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** A {@link TypingForValidation} that can be read and updated by several threads at the same time.
+ * Used by {@link ParallelRefineValidation}.
+ * 
+ * @author Jérémie Dusart
+ */
+public class ConcurrentTypingForValidation extends TypingForValidation {
+
+	public ConcurrentTypingForValidation() {
+		super(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+	}
+	
+	@Override
+	protected <T> Set<T> createSet() {
+		return ConcurrentHashMap.newKeySet();
+	}
+
+}
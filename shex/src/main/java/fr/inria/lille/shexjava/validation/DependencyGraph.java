@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A directed graph without multiple edges, where the vertices are numbered and the edges are stored in arrays of integers.
+ * 
+ * The ids of the removed vertices are not reused, so a vertex that is added again gets a new id and no edge.
+ * 
+ * @author Jérémie Dusart
+ */
+public class DependencyGraph<V> {
+	private static final int[] EMPTY = new int[0];
+	
+	private Map<V,Integer> ids = new HashMap<>();
+	private List<V> vertices = new ArrayList<>();
+	private int[][] outgoing = new int[16][];
+	private int[] outDegree = new int[16];
+	private int[][] incoming = new int[16][];
+	private int[] inDegree = new int[16];
+	/** The edges encoded as source*2^32+target+1, in an open addressing hash table where 0 is an empty slot. */
+	private long[] edges = new long[64];
+	private int nbEdges = 0;
+	
+	public boolean containsVertex(V vertex) {
+		return ids.containsKey(vertex);
+	}
+	
+	/** Adds the vertex if it is not in the graph. Returns true if the vertex was added. */
+	public boolean addVertex(V vertex) {
+		if (ids.containsKey(vertex))
+			return false;
+		int id = vertices.size();
+		if (id == outDegree.length) {
+			int capacity = 2*id;
+			outgoing = Arrays.copyOf(outgoing, capacity);
+			outDegree = Arrays.copyOf(outDegree, capacity);
+			incoming = Arrays.copyOf(incoming, capacity);
+			inDegree = Arrays.copyOf(inDegree, capacity);
+		}
+		ids.put(vertex, id);
+		vertices.add(vertex);
+		outgoing[id] = EMPTY;
+		incoming[id] = EMPTY;
+		return true;
+	}
+	
+	/** Adds an edge between two vertices of the graph if it does not exist yet. Returns true if the edge was added. */
+	public boolean addEdge(V source, V target) {
+		int s = getId(source);
+		int t = getId(target);
+		if (! addEdgeKey((((long) s) << 32) + t + 1))
+			return false;
+		outgoing[s] = append(outgoing[s], outDegree[s]++, t);
+		incoming[t] = append(incoming[t], inDegree[t]++, s);
+		return true;
+	}
+	
+	/** Removes the vertex and its edges, if it is in the graph. */
+	public void removeVertex(V vertex) {
+		Integer id = ids.remove(vertex);
+		if (id == null)
+			return;
+		for (int i = 0; i < outDegree[id]; i++) {
+			int t = outgoing[id][i];
+			inDegree[t] = remove(incoming[t], inDegree[t], id);
+		}
+		for (int i = 0; i < inDegree[id]; i++) {
+			int s = incoming[id][i];
+			outDegree[s] = remove(outgoing[s], outDegree[s], id);
+		}
+		// The edges of the vertex stay in the hash table, but its id is never used again
+		vertices.set(id, null);
+		outgoing[id] = EMPTY;
+		outDegree[id] = 0;
+		incoming[id] = EMPTY;
+		inDegree[id] = 0;
+	}
+	
+	public int outDegreeOf(V vertex) {
+		return outDegree[getId(vertex)];
+	}
+	
+	public int inDegreeOf(V vertex) {
+		return inDegree[getId(vertex)];
+	}
+	
+	/** The sources of the edges whose target is the vertex, in the order the edges were added. The list must not be used after the graph is modified. */
+	public List<V> predecessorsOf(V vertex) {
+		int id = getId(vertex);
+		int[] sources = incoming[id];
+		int size = inDegree[id];
+		return new AbstractList<V>() {
+			@Override
+			public V get(int index) {
+				if (index >= size)
+					throw new IndexOutOfBoundsException();
+				return vertices.get(sources[index]);
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+	
+	public int vertexCount() {
+		return ids.size();
+	}
+	
+	private int getId(V vertex) {
+		Integer id = ids.get(vertex);
+		if (id == null)
+			throw new IllegalArgumentException("Vertex not in the graph: "+vertex);
+		return id;
+	}
+	
+	private static int[] append(int[] array, int size, int value) {
+		if (size == array.length)
+			array = Arrays.copyOf(array, Math.max(4, 2*size));
+		array[size] = value;
+		return array;
+	}
+	
+	private static int remove(int[] array, int size, int value) {
+		for (int i = 0; i < size; i++) {
+			if (array[i] == value) {
+				System.arraycopy(array, i+1, array, i, size-i-1);
+				return size-1;
+			}
+		}
+		return size;
+	}
+	
+	private boolean addEdgeKey(long key) {
+		if (2*(nbEdges+1) > edges.length) {
+			long[] old = edges;
+			edges = new long[2*old.length];
+			for (long k : old)
+				if (k != 0)
+					insert(edges, k);
+		}
+		if (! insert(edges, key))
+			return false;
+		nbEdges++;
+		return true;
+	}
+	
+	private static boolean insert(long[] table, long key) {
+		int mask = table.length-1;
+		int slot = (int) (key ^ (key >>> 32)) * 0x9E3779B9 & mask;
+		while (table[slot] != 0) {
+			if (table[slot] == key)
+				return false;
+			slot = (slot+1) & mask;
+		}
+		table[slot] = key;
+		return true;
+	}
+}
@@ -18,9 +18,9 @@ package fr.inria.lille.shexjava.validation;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
@@ -34,20 +34,22 @@ import fr.inria.lille.shexjava.schema.analysis.TripleExpressionVisitor;
 
 /** Allows to compute the triple constraints that appear in a shape.
  * Memorizes already computed results. 
+ * The collector can be shared between threads: the memorized results are read without locking and the computation of a new result is synchronized.
  * 
  * @author Jérémie Dusart
  */
 public class DynamicCollectorOfTripleConstraints {
 
-	private Map<Label, List<TripleConstraint>> collectedTCs = new HashMap<>();
+	private Map<Label, List<TripleConstraint>> collectedTCs = new ConcurrentHashMap<>();
 	
 	public List<TripleConstraint> getTCs (TripleExpr texpr) {
 		List<TripleConstraint> result = collectedTCs.get(texpr.getId());
-		if (result == null) {
+		if (result != null)
+			return result;
+		synchronized (this) {
 			texpr.accept(collector);
-			result = collector.getResult();
+			return collector.getResult();
 		}
-		return result;
 	}
 	
 	private final TripleExpressionVisitor<List<TripleConstraint>> collector = new TripleExpressionVisitor<List<TripleConstraint>>() {
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Implements the Refinement validation algorithm restricted to the part of the graph that is needed to validate the focus node.
+ *
+ * A call to {@link #validate(RDFTerm, Label)} first computes the pairs (node, label) that are reachable from the focus node and the label through the triple constraints,
+ * then computes the greatest typing on these pairs only.
+ * The status of the computed pairs is the same as in the complete typing constructed by {@link RefineValidation}, and the pairs that were not needed are {@link Status#NOTCOMPUTED}.
+ * Successive calls to {@link #validate(RDFTerm, Label)} enrich the typing and reuse the statuses that are already computed.
+ *
+ * @author Jérémie Dusart
+ */
+public class FocusedRefineValidation extends WorklistRefineValidation {
+
+	public FocusedRefineValidation(ShexSchema schema, Graph graph) {
+		super(schema, graph);
+	}
+
+	@Override
+	public boolean validate(RDFTerm focusNode, Label label) {
+		if (focusNode==null || label==null)
+			throw new IllegalArgumentException("Invalid argument value: focusNode or label cannot be null.");
+		if (!schema.getShapeExprsMap().containsKey(label))
+			throw new IllegalArgumentException("Unknown label: "+label);
+
+		if (typing.getStatus(focusNode, label) == Status.NOTCOMPUTED) {
+			Set<Pair<RDFTerm, Label>> reachable = computeReachablePairs(focusNode, label);
+			for (int stratum = 0; stratum < schema.getStratification().size(); stratum++) {
+				Set<Label> labels = schema.getStratification().get(stratum);
+				List<Pair<RDFTerm, Label>> elements = new ArrayList<>();
+				for (Pair<RDFTerm, Label> nl : reachable) {
+					if (labels.contains(nl.two)) {
+						elements.add(nl);
+						typing.setStatus(nl.one, nl.two, Status.CONFORMANT);
+					}
+				}
+				if (! elements.isEmpty())
+					refine(elements, labels);
+			}
+			// The status of the shapes is fixed, the other labels can be evaluated
+			for (Pair<RDFTerm, Label> nl : reachable) {
+				if (satisfies(nl,false))
+					typing.setStatus(nl.one, nl.two, Status.CONFORMANT);
+				else
+					typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+			}
+		}
+		return typing.isConformant(focusNode, label);
+	}
+
+	/** Computes the pairs whose status is needed to determine the status of the given pair, and that are not computed yet.
+	 *
+	 * @param focusNode
+	 * @param label
+	 * @return the reachable pairs, including the given one
+	 */
+	protected Set<Pair<RDFTerm, Label>> computeReachablePairs(RDFTerm focusNode, Label label) {
+		Set<Pair<RDFTerm, Label>> reachable = new LinkedHashSet<>();
+		Deque<Pair<RDFTerm, Label>> toVisit = new ArrayDeque<>();
+		addIfNotComputed(new Pair<>(focusNode, label), reachable, toVisit);
+		while (! toVisit.isEmpty()) {
+			Pair<RDFTerm, Label> nl = toVisit.poll();
+			ShapeExpr expr = schema.getShapeExprsMap().get(nl.two);
+			for (Label shapeLabel : getReferencedShapes(expr))
+				addIfNotComputed(new Pair<>(nl.one, shapeLabel), reachable, toVisit);
+			if (! (expr instanceof Shape))
+				continue;
+
+			Shape shape = (Shape) expr;
+			TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
+			TripleConstraintIndex tcIndex = compiledSchema.getTripleConstraintIndex(tripleExpression);
+			List<Triple> neighbourhood = getMatchableNeighbourhood(nl.one, tcIndex, shape.isClosed());
+			PreMatching preMatching = ValidationUtils.computePreMatching(nl.one, neighbourhood, tcIndex, shape.getExtraProperties(), ValidationUtils.getPredicateOnlyMatcher());
+			for (Entry<Triple,List<TripleConstraint>> entry:preMatching.getPreMatching().entrySet()) {
+				for (TripleConstraint tc:entry.getValue()) {
+					RDFTerm destNode = entry.getKey().getObject();
+					if (!tc.getProperty().isForward())
+						destNode = entry.getKey().getSubject();
+					addIfNotComputed(new Pair<>(destNode, tc.getShapeExpr().getId()), reachable, toVisit);
+				}
+			}
+		}
+		return reachable;
+	}
+
+	private void addIfNotComputed(Pair<RDFTerm, Label> nl, Set<Pair<RDFTerm, Label>> reachable, Deque<Pair<RDFTerm, Label>> toVisit) {
+		if (typing.getStatus(nl.one, nl.two) == Status.NOTCOMPUTED && reachable.add(nl))
+			toVisit.add(nl);
+	}
+}
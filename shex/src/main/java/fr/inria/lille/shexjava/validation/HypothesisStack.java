@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A stack of hypotheses without duplicates, where the membership test and the position of an element are computed in constant time.
+ * 
+ * @author Jérémie Dusart
+ */
+public class HypothesisStack<E> {
+	private List<E> elements = new ArrayList<>();
+	private Map<E,Integer> positions = new HashMap<>();
+	
+	/** Pushes the element, which must not be in the stack. */
+	public void push(E element) {
+		if (positions.putIfAbsent(element, elements.size()) != null)
+			throw new IllegalArgumentException("Element already in the stack: "+element);
+		elements.add(element);
+	}
+	
+	/** Removes and returns the top of the stack. */
+	public E pop() {
+		E element = elements.remove(elements.size()-1);
+		positions.remove(element);
+		return element;
+	}
+	
+	public E peek() {
+		return elements.get(elements.size()-1);
+	}
+	
+	public boolean contains(Object element) {
+		return positions.containsKey(element);
+	}
+	
+	/** The position of the element from the bottom of the stack, or -1 if the element is not in the stack. */
+	public int indexOf(Object element) {
+		Integer position = positions.get(element);
+		return position == null ? -1 : position;
+	}
+	
+	public int size() {
+		return elements.size();
+	}
+	
+	public boolean isEmpty() {
+		return elements.isEmpty();
+	}
+	
+	@Override
+	public String toString() {
+		return elements.toString();
+	}
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Literal;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Implements the Refinement validation algorithm on a graph that is modified, see {@link #applyDelta(Collection, Collection)}.
+ *
+ * After a modification, only the pairs (node, label) whose status may have changed are evaluated again:
+ * the pairs of the nodes that are the subject or the object of a modified triple, and the pairs that depend on them through the triple constraints.
+ * For every stratum, the pairs that may become {@link Status#CONFORMANT} are first assumed to be conformant, 
+ * then the greatest fixpoint is computed with a worklist, where a pair is checked again when a pair it depends on becomes {@link Status#NONCONFORMANT}.
+ * The dependencies are not stored, they are found in the graph from the triple constraints that reference the shapes.
+ * The constructed {@link Typing} is the same as the one constructed by {@link RefineValidation} on the modified graph.
+ *
+ * @author Jérémie Dusart
+ */
+public class IncrementalRefineValidation extends WorklistRefineValidation {
+	/** For every shape label S, associates with a predicate the shape labels that have a forward triple constraint on the predicate whose value references S. */
+	private Map<Label,Map<IRI,Set<Label>>> forwardDependents;
+	/** Same as {@link #forwardDependents} for the inverse triple constraints. */
+	private Map<Label,Map<IRI,Set<Label>>> inverseDependents;
+	private Map<Label,Integer> stratumOf;
+	private int nbEvaluatedPairs;
+
+	public IncrementalRefineValidation(ShexSchema schema, Graph graph) {
+		super(schema, graph);
+		stratumOf = new HashMap<>();
+		for (Entry<Integer,Set<Label>> stratum : schema.getStratification().entrySet())
+			for (Label label : stratum.getValue())
+				stratumOf.put(label, stratum.getKey());
+		
+		forwardDependents = new HashMap<>();
+		inverseDependents = new HashMap<>();
+		for (Label label : stratumOf.keySet()) {
+			Shape shape = (Shape) schema.getShapeExprsMap().get(label);
+			for (TripleConstraint tc : compiledSchema.getTCs(compiledSchema.getSORBETripleExpr(shape))) {
+				Map<Label,Map<IRI,Set<Label>>> dependents = tc.getProperty().isForward() ? forwardDependents : inverseDependents;
+				for (Label referenced : getReferencedShapes(tc.getShapeExpr()))
+					dependents.computeIfAbsent(referenced, k -> new HashMap<>())
+							  .computeIfAbsent(tc.getProperty().getIri(), k -> new HashSet<>())
+							  .add(label);
+			}
+		}
+	}
+	
+	/** Modifies the graph, and updates the typing if it is already computed.
+	 * The triples are removed before the triples are added.
+	 * The neighbourhood cache, if any, is cleared when the graph changes.
+	 * 
+	 * @param added the triples to add to the graph
+	 * @param removed the triples to remove from the graph
+	 */
+	public void applyDelta(Collection<Triple> added, Collection<Triple> removed) {
+		Set<RDFTerm> touched = new LinkedHashSet<>();
+		for (Triple triple : removed) {
+			if (graph.contains(triple)) {
+				graph.remove(triple);
+				touched.add(triple.getSubject());
+				touched.add(triple.getObject());
+			}
+		}
+		for (Triple triple : added) {
+			if (! graph.contains(triple)) {
+				graph.add(triple);
+				touched.add(triple.getSubject());
+				touched.add(triple.getObject());
+			}
+		}
+		if (getNeighbourhoodCache() != null && ! touched.isEmpty())
+			getNeighbourhoodCache().clear();
+		
+		nbEvaluatedPairs = 0;
+		for (RDFTerm node : touched) {
+			if (isInGraph(node)) {
+				allGraphNodes.add(node);
+			} else {
+				allGraphNodes.remove(node);
+				if (computed)
+					for (Label label : schema.getShapeExprsMap().keySet())
+						typing.removeNodeLabel(node, label);
+			}
+		}
+		touched.retainAll(allGraphNodes);
+		if (computed && ! touched.isEmpty())
+			updateTyping(touched);
+	}
+	
+	/** The number of pairs (node, label) that were evaluated by the last call to {@link #applyDelta(Collection, Collection)}. */
+	public int getNbEvaluatedPairs() {
+		return nbEvaluatedPairs;
+	}
+	
+	protected void updateTyping(Set<RDFTerm> touched) {
+		// The nodes whose labels that are not in a stratum must be evaluated again
+		Set<RDFTerm> region = new HashSet<>();
+		Map<Integer,Set<Pair<RDFTerm,Label>>> seeds = new TreeMap<>();
+		for (RDFTerm node : touched) {
+			addToRegion(node, region);
+			for (Label label : stratumOf.keySet())
+				seeds.computeIfAbsent(stratumOf.get(label), k -> new LinkedHashSet<>()).add(new Pair<>(node, label));
+		}
+		
+		for (int stratum = 0; stratum < schema.getStratification().size(); stratum++) {
+			Set<Pair<RDFTerm,Label>> candidates = seeds.get(stratum);
+			if (candidates == null)
+				continue;
+			final int current = stratum;
+			Predicate<Label> inStratum = label -> stratumOf.get(label) == current;
+			
+			// The pairs that may become conformant are assumed to be conformant
+			Deque<Pair<RDFTerm,Label>> toVisit = new ArrayDeque<>(candidates);
+			while (! toVisit.isEmpty())
+				for (Pair<RDFTerm,Label> dep : getDependents(toVisit.poll(), inStratum))
+					if (! typing.isConformant(dep.one, dep.two) && candidates.add(dep))
+						toVisit.add(dep);
+			Map<Pair<RDFTerm,Label>,Status> before = new HashMap<>();
+			for (Pair<RDFTerm,Label> nl : candidates) {
+				before.put(nl, typing.getStatus(nl.one, nl.two));
+				typing.setStatus(nl.one, nl.two, Status.CONFORMANT);
+				addToRegion(nl.one, region);
+			}
+			
+			Deque<Pair<RDFTerm,Label>> worklist = new ArrayDeque<>(candidates);
+			Set<Pair<RDFTerm,Label>> queued = new HashSet<>(candidates);
+			while (! worklist.isEmpty()) {
+				Pair<RDFTerm,Label> nl = worklist.poll();
+				queued.remove(nl);
+				nbEvaluatedPairs++;
+				if (! satisfies(nl,true)) {
+					before.putIfAbsent(nl, Status.CONFORMANT);
+					typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+					addToRegion(nl.one, region);
+					for (Pair<RDFTerm,Label> dep : getDependents(nl, inStratum))
+						if (typing.isConformant(dep.one, dep.two) && queued.add(dep))
+							worklist.add(dep);
+				}
+			}
+			
+			// The pairs of the upper strata that depend on a modified status must be evaluated again
+			for (Entry<Pair<RDFTerm,Label>,Status> entry : before.entrySet()) {
+				Pair<RDFTerm,Label> nl = entry.getKey();
+				if (typing.getStatus(nl.one, nl.two) != entry.getValue())
+					for (Pair<RDFTerm,Label> dep : getDependents(nl, label -> stratumOf.get(label) > current))
+						seeds.computeIfAbsent(stratumOf.get(dep.two), k -> new LinkedHashSet<>()).add(dep);
+			}
+		}
+		
+		// The status of the shapes is fixed, the other labels can be evaluated
+		for (RDFTerm node : region) {
+			for (Label label : schema.getShapeExprsMap().keySet()) {
+				if (stratumOf.containsKey(label))
+					continue;
+				if (satisfies(new Pair<>(node, label),false))
+					typing.setStatus(node, label, Status.CONFORMANT);
+				else
+					typing.setStatus(node, label, Status.NONCONFORMANT);
+			}
+		}
+	}
+	
+	/** Adds the node to the region, and sets the labels that are not in a stratum to {@link Status#NOTCOMPUTED} as they are computed from the status of the shapes. */
+	private void addToRegion(RDFTerm node, Set<RDFTerm> region) {
+		if (! region.add(node))
+			return;
+		for (Label label : schema.getShapeExprsMap().keySet())
+			if (! stratumOf.containsKey(label))
+				typing.removeNodeLabel(node, label);
+	}
+	
+	/** The pairs whose label is accepted by the filter and whose matching may use the status of the given pair, that is a node and the label of a shape. */
+	protected Set<Pair<RDFTerm,Label>> getDependents(Pair<RDFTerm,Label> nl, Predicate<Label> filter) {
+		Set<Pair<RDFTerm,Label>> result = new LinkedHashSet<>();
+		for (Entry<IRI,Set<Label>> entry : forwardDependents.getOrDefault(nl.two, Collections.emptyMap()).entrySet()) {
+			List<Label> labels = entry.getValue().stream().filter(filter).collect(Collectors.toList());
+			if (labels.isEmpty())
+				continue;
+			for (Triple triple : graph.iterate(null, entry.getKey(), nl.one))
+				for (Label label : labels)
+					result.add(new Pair<>(triple.getSubject(), label));
+		}
+		if (nl.one instanceof Literal)
+			return result;
+		for (Entry<IRI,Set<Label>> entry : inverseDependents.getOrDefault(nl.two, Collections.emptyMap()).entrySet()) {
+			List<Label> labels = entry.getValue().stream().filter(filter).collect(Collectors.toList());
+			if (labels.isEmpty())
+				continue;
+			for (Triple triple : graph.iterate((BlankNodeOrIRI) nl.one, entry.getKey(), null))
+				for (Label label : labels)
+					result.add(new Pair<>(triple.getObject(), label));
+		}
+		return result;
+	}
+	
+	private boolean isInGraph(RDFTerm node) {
+		if (graph.contains(null, null, node))
+			return true;
+		return ! (node instanceof Literal) && graph.contains((BlankNodeOrIRI) node, null, null);
+	}
+}
@@ -30,10 +30,10 @@ import fr.inria.lille.shexjava.util.Interval;
 
 /** Allows to compute the interval for a triple expression and a bag.
  * 
- * The Interval Algorithm is defined only for shape expressions that satisfy the following constraints:
- * - Arbitrary cardinalities are allowed only on triple constraints. An "arbitrary" cardinality is one different from {@link Interval#OPT}, {@link Interval#PLUS}, {@link Interval#STAR}.
- * - A {@link Interval#PLUS} cardinality is allowed only if the sub expression does not contain the empty bag.
- * If the expression does not satisfy one of these, a {@link IllegalArgumentException} is thrown.
+ * The Interval Algorithm is defined only for shape expressions in which a cardinality whose minimum is not 0 is allowed only if the sub expression does not contain the empty bag,
+ * which is the case of the SORBE expressions constructed by {@link SORBEGenerator}.
+ * The interval of a sub expression with an arbitrary cardinality {m,n} is the interval of the sub expression divided by [m; n], 
+ * i.e. the numbers of repetitions k such that some number of occurrences of the sub expression in its interval is in [k*m; k*n].
  * 
  * @author Iovka Boneva
  *
@@ -138,8 +138,12 @@ public class IntervalComputation extends TripleExpressionVisitor<Interval>{
 		}
 		
 		else {
-			//expression.getUnfoldedVersion().accept(this, arguments);
-			throw new IllegalArgumentException("Arbitrary repetition " + card + "allowed on triple constraints only.");
+			if (isEmptySubbag(bag, expression)) {
+				this.result = card.min == 0 ? Interval.STAR : Interval.ZERO;
+			} else {
+				subExpr.accept(this, arguments);
+				this.result = div(this.result, card);
+			}
 		}
 
 	}
@@ -205,6 +209,34 @@ public class IntervalComputation extends TripleExpressionVisitor<Interval>{
 
 	}
 
+	/** Divides the interval of a sub expression by the cardinality of its repetition.
+	 * 
+	 * @param sub
+	 * @param card
+	 * @return the interval [sub.min / card.max (upper bound); sub.max / card.min (lower bound)]
+	 */
+	private Interval div(Interval sub, Interval card) {
+		if (sub.equals(Interval.EMPTY))
+			return Interval.EMPTY;
+		int min, max;
+		if (card.max == Interval.UNBOUND) {
+			if (sub.min == 0)
+				min = 0;
+			else
+				min = 1;
+		} else {
+			if (sub.min % card.max == 0)
+				min = sub.min / card.max;
+			else
+				min = (sub.min / card.max) + 1;
+		}
+		if (card.min == 0 || sub.max == Interval.UNBOUND)
+			max = Interval.UNBOUND;
+		else
+			max = sub.max / card.min;
+		return new Interval(min, max);
+	}
+
 	private Interval add (Interval i1, Interval i2) {
 		int imin, imax;
 
@@ -0,0 +1,643 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.OneOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.RepeatedTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExprRef;
+import fr.inria.lille.shexjava.schema.analysis.TripleExpressionVisitor;
+import fr.inria.lille.shexjava.util.Interval;
+
+/** A SORBE triple expression compiled into a flat program that computes the same interval as {@link IntervalComputation}.
+ * 
+ * The triple constraints of the expression are identified by their ordinal, i.e. their position in the list of the triple constraints of the expression,
+ * and a bag is given as the array of the multiplicities of the ordinals.
+ * The instructions are stored in post-order in an int array, so the evaluation is a single loop over the program that uses a stack of primitive min and max registers.
+ * The triple constraints of the repeated sub-expressions are precomputed, and a sub-expression whose result is not needed because its sub-bag is empty is jumped over.
+ * Once the registers are allocated with {@link #createRegisters()}, the evaluation of a bag does not allocate.
+ * 
+ * The program can also be evaluated on a partial bag, given by a lower and an upper bound of every multiplicity, see {@link #isSatisfiable(int[], int[], int[])}.
+ * Every register then holds bounds of the minimum and of the maximum of the intervals of all the bags between the bounds, the empty interval being the pair [2; 1].
+ * 
+ * The program is immutable and can be shared between threads, each thread using its own registers.
+ * 
+ * @author Jérémie Dusart
+ */
+public class IntervalProgram {
+	/** Pushes the multiplicity of a triple constraint. Operand: ordinal. */
+	private static final int TC = 0;
+	/** Pushes {@link Interval#STAR}. */
+	private static final int EMPTY = 1;
+	/** Replaces the n topmost intervals by their sum. Operand: n. */
+	private static final int ONE_OF = 2;
+	/** Replaces the n topmost intervals by their intersection. Operand: n. */
+	private static final int EACH_OF = 3;
+	/** If the sub-bag is empty, pushes the interval and jumps to the target. Operands: min, max, target, start and length of the ordinals of the sub-expression. */
+	private static final int IF_EMPTY_SUBBAG = 4;
+	/** Replaces the topmost interval i by {@link Interval#PLUS}, unless i is empty. */
+	private static final int STAR = 5;
+	/** Replaces the topmost interval i by [1; i.max], unless i is empty. */
+	private static final int PLUS = 6;
+	/** Replaces the topmost interval by its sum with {@link Interval#STAR}. */
+	private static final int OPT = 7;
+	/** Pushes the division of the multiplicity of a triple constraint by a cardinality. Operands: ordinal, min, max. */
+	private static final int DIV = 8;
+	/** Pushes {@link Interval#EMPTY}. */
+	private static final int EMPTY_INTERVAL = 9;
+	/** Replaces the topmost interval by its division by a cardinality. Operands: min, max. */
+	private static final int DIV_INTERVAL = 10;
+	
+	private final List<TripleConstraint> tripleConstraints;
+	private final Map<TripleConstraint,Integer> ordinals;
+	private final int[] code;
+	private final int[] subbags;
+	private final int maxDepth;
+	private final int nbJumps;
+	
+	/** Compiles a SORBE triple expression.
+	 * 
+	 * @param texpr the SORBE triple expression
+	 * @param tripleConstraints the triple constraints of the expression, that determine the ordinals
+	 */
+	public IntervalProgram(TripleExpr texpr, List<TripleConstraint> tripleConstraints) {
+		this.tripleConstraints = tripleConstraints;
+		this.ordinals = new IdentityHashMap<>();
+		for (TripleConstraint tc : tripleConstraints)
+			ordinals.putIfAbsent(tc, ordinals.size());
+		Compiler compiler = new Compiler();
+		texpr.accept(compiler);
+		this.code = compiler.code.toArray();
+		this.subbags = compiler.subbags.toArray();
+		this.maxDepth = compiler.maxDepth;
+		this.nbJumps = compiler.nbJumps;
+	}
+	
+	/** The triple constraints of the expression, in the order of their ordinals. */
+	public List<TripleConstraint> getTripleConstraints() {
+		return tripleConstraints;
+	}
+	
+	/** The number of ordinals, i.e. the length of the array of multiplicities of a bag. */
+	public int getNbOrdinals() {
+		return tripleConstraints.size();
+	}
+	
+	/** The ordinal of a triple constraint of the expression, or -1 if the triple constraint does not appear in the expression. */
+	public int getOrdinal(TripleConstraint tc) {
+		Integer result = ordinals.get(tc);
+		return result == null ? -1 : result;
+	}
+	
+	/** With every triple constraint of the expression associates its ordinal. */
+	Map<TripleConstraint,Integer> getOrdinals() {
+		return ordinals;
+	}
+	
+	/** Allocates the registers needed to evaluate the program. */
+	public int[] createRegisters() {
+		return new int[2 * Math.max(maxDepth, 1)];
+	}
+	
+	/** Allocates the registers needed by {@link #isSatisfiable(int[], int[], int[])}. */
+	public int[] createPartialRegisters() {
+		return new int[4 * Math.max(maxDepth, 1) + 3 * nbJumps];
+	}
+	
+	/** Computes the interval of the expression for a bag.
+	 * 
+	 * @param multiplicities with every ordinal associates its multiplicity in the bag
+	 * @param registers allocated by {@link #createRegisters()}, the minimum and the maximum of the result are stored in registers[0] and registers[1]
+	 */
+	public void evaluate(int[] multiplicities, int[] registers) {
+		int sp = 0;
+		int pc = 0;
+		int[] code = this.code;
+		while (pc < code.length) {
+			switch (code[pc]) {
+			case TC: {
+				int nbOcc = multiplicities[code[pc+1]];
+				registers[sp] = nbOcc;
+				registers[sp+1] = nbOcc;
+				sp += 2;
+				pc += 2;
+				break;
+			}
+			case EMPTY:
+				registers[sp] = 0;
+				registers[sp+1] = Interval.UNBOUND;
+				sp += 2;
+				pc++;
+				break;
+			case EMPTY_INTERVAL:
+				registers[sp] = Interval.MIN_EMPTY;
+				registers[sp+1] = Interval.MAX_EMPTY;
+				sp += 2;
+				pc++;
+				break;
+			case ONE_OF: {
+				int first = sp - 2 * code[pc+1];
+				int min = 0, max = 0;
+				for (int r = first; r < sp; r += 2) {
+					min += registers[r];
+					max = add(max, registers[r+1]);
+					if (max < min) {
+						min = Interval.MIN_EMPTY;
+						max = Interval.MAX_EMPTY;
+					}
+				}
+				sp = push(registers, first, min, max);
+				pc += 2;
+				break;
+			}
+			case EACH_OF: {
+				int first = sp - 2 * code[pc+1];
+				int min = 0, max = Interval.UNBOUND;
+				for (int r = first; r < sp; r += 2) {
+					min = Math.max(min, registers[r]);
+					max = Math.min(max, registers[r+1]);
+					if (max < min) {
+						min = Interval.MIN_EMPTY;
+						max = Interval.MAX_EMPTY;
+					}
+				}
+				sp = push(registers, first, min, max);
+				pc += 2;
+				break;
+			}
+			case IF_EMPTY_SUBBAG:
+				if (isEmptySubbag(multiplicities, code[pc+4], code[pc+5])) {
+					sp = push(registers, sp, code[pc+1], code[pc+2]);
+					pc = code[pc+3];
+				} else {
+					pc += 6;
+				}
+				break;
+			case STAR:
+				if (! isEmpty(registers, sp-2)) {
+					registers[sp-2] = 1;
+					registers[sp-1] = Interval.UNBOUND;
+				}
+				pc++;
+				break;
+			case PLUS:
+				if (! isEmpty(registers, sp-2))
+					push(registers, sp-2, 1, registers[sp-1]);
+				pc++;
+				break;
+			case OPT:
+				registers[sp-1] = Interval.UNBOUND;
+				pc++;
+				break;
+			case DIV:
+				sp = div(registers, sp, multiplicities[code[pc+1]], code[pc+2], code[pc+3]);
+				pc += 4;
+				break;
+			case DIV_INTERVAL:
+				divInterval(registers, sp-2, code[pc+1], code[pc+2]);
+				pc += 3;
+				break;
+			default:
+				throw new IllegalStateException("Unknown instruction: "+code[pc]);
+			}
+		}
+	}
+	
+	/** Returns true if the interval of the expression for the bag contains 1, i.e. if the bag satisfies the expression.
+	 * 
+	 * @param multiplicities with every ordinal associates its multiplicity in the bag
+	 * @param registers allocated by {@link #createRegisters()}
+	 */
+	public boolean isSatisfied(int[] multiplicities, int[] registers) {
+		evaluate(multiplicities, registers);
+		return registers[0] <= 1 && 1 <= registers[1];
+	}
+	
+	/** Returns false if no bag whose multiplicities are between the lower and the upper bounds satisfies the expression.
+	 * Returns true if some of them may satisfy it, and exactly when the bag satisfies the expression if the bounds are equal.
+	 * 
+	 * The bounds of the minimum and of the maximum of every sub-expression are computed independently, so the result is an over-approximation:
+	 * for instance the bounds in which two sub-expressions of a ONE_OF that is not repeated have occurrences are rejected, 
+	 * but some bounds between which no bag satisfies the expression are not.
+	 * 
+	 * @param lower with every ordinal associates a lower bound of its multiplicity
+	 * @param upper with every ordinal associates an upper bound of its multiplicity
+	 * @param registers allocated by {@link #createPartialRegisters()}
+	 */
+	public boolean isSatisfiable(int[] lower, int[] upper, int[] registers) {
+		int sp = 0;
+		int pc = 0;
+		// the targets of the jumps whose condition is not decided, with the interval pushed by the jump
+		int jp = 4 * Math.max(maxDepth, 1);
+		int joins = jp;
+		int[] code = this.code;
+		while (true) {
+			while (jp > joins && registers[jp-3] == pc) {
+				join(registers, sp-4, registers[jp-2], registers[jp-2], registers[jp-1], registers[jp-1]);
+				jp -= 3;
+			}
+			if (pc == code.length)
+				break;
+			switch (code[pc]) {
+			case TC: {
+				int ord = code[pc+1];
+				sp = pushBounds(registers, sp, lower[ord], upper[ord], lower[ord], upper[ord]);
+				pc += 2;
+				break;
+			}
+			case EMPTY:
+				sp = pushBounds(registers, sp, 0, 0, Interval.UNBOUND, Interval.UNBOUND);
+				pc++;
+				break;
+			case EMPTY_INTERVAL:
+				sp = pushEmpty(registers, sp);
+				pc++;
+				break;
+			case ONE_OF: {
+				int first = sp - 4 * code[pc+1];
+				int minLo = 0, minHi = 0, maxLo = 0, maxHi = 0;
+				for (int r = first; r < sp; r += 4) {
+					pushBounds(registers, first, minLo + registers[r], minHi + registers[r+1], add(maxLo, registers[r+2]), add(maxHi, registers[r+3]));
+					minLo = registers[first];
+					minHi = registers[first+1];
+					maxLo = registers[first+2];
+					maxHi = registers[first+3];
+				}
+				sp = pushBounds(registers, first, minLo, minHi, maxLo, maxHi);
+				pc += 2;
+				break;
+			}
+			case EACH_OF: {
+				int first = sp - 4 * code[pc+1];
+				int minLo = 0, minHi = 0, maxLo = Interval.UNBOUND, maxHi = Interval.UNBOUND;
+				for (int r = first; r < sp; r += 4) {
+					pushBounds(registers, first, Math.max(minLo, registers[r]), Math.max(minHi, registers[r+1]), 
+							Math.min(maxLo, registers[r+2]), Math.min(maxHi, registers[r+3]));
+					minLo = registers[first];
+					minHi = registers[first+1];
+					maxLo = registers[first+2];
+					maxHi = registers[first+3];
+				}
+				sp = pushBounds(registers, first, minLo, minHi, maxLo, maxHi);
+				pc += 2;
+				break;
+			}
+			case IF_EMPTY_SUBBAG:
+				if (isEmptySubbag(upper, code[pc+4], code[pc+5])) {
+					sp = pushBounds(registers, sp, code[pc+1], code[pc+1], code[pc+2], code[pc+2]);
+					pc = code[pc+3];
+				} else {
+					if (isEmptySubbag(lower, code[pc+4], code[pc+5])) {
+						registers[jp] = code[pc+3];
+						registers[jp+1] = code[pc+1];
+						registers[jp+2] = code[pc+2];
+						jp += 3;
+					}
+					pc += 6;
+				}
+				break;
+			case STAR:
+				if (! isAlwaysEmpty(registers, sp-4)) {
+					boolean mayBeEmpty = mayBeEmpty(registers, sp-4);
+					pushBounds(registers, sp-4, 1, 1, Interval.UNBOUND, Interval.UNBOUND);
+					if (mayBeEmpty)
+						join(registers, sp-4, Interval.MIN_EMPTY, Interval.MIN_EMPTY, Interval.MAX_EMPTY, Interval.MAX_EMPTY);
+				}
+				pc++;
+				break;
+			case PLUS:
+				if (! isAlwaysEmpty(registers, sp-4)) {
+					boolean mayBeEmpty = mayBeEmpty(registers, sp-4);
+					pushBounds(registers, sp-4, 1, 1, registers[sp-2], registers[sp-1]);
+					if (mayBeEmpty)
+						join(registers, sp-4, Interval.MIN_EMPTY, Interval.MIN_EMPTY, Interval.MAX_EMPTY, Interval.MAX_EMPTY);
+				}
+				pc++;
+				break;
+			case OPT:
+				registers[sp-2] = Interval.UNBOUND;
+				registers[sp-1] = Interval.UNBOUND;
+				pc++;
+				break;
+			case DIV: {
+				int ord = code[pc+1], cardMin = code[pc+2], cardMax = code[pc+3];
+				if (cardMin == 0 && cardMax == 0) {
+					if (upper[ord] == 0)
+						sp = pushBounds(registers, sp, 0, 0, Interval.UNBOUND, Interval.UNBOUND);
+					else {
+						sp = pushEmpty(registers, sp);
+						if (lower[ord] == 0)
+							join(registers, sp-4, 0, 0, Interval.UNBOUND, Interval.UNBOUND);
+					}
+				} else {
+					sp = pushBounds(registers, sp, divideMin(lower[ord], cardMax), divideMin(upper[ord], cardMax), 
+							divideMax(lower[ord], cardMin), divideMax(upper[ord], cardMin));
+				}
+				pc += 4;
+				break;
+			}
+			case DIV_INTERVAL: {
+				int r = sp-4, cardMin = code[pc+1], cardMax = code[pc+2];
+				if (! isAlwaysEmpty(registers, r)) {
+					boolean mayBeEmpty = mayBeEmpty(registers, r);
+					pushBounds(registers, r, divideMin(registers[r], cardMax), divideMin(registers[r+1], cardMax), 
+							divideMax(registers[r+2], cardMin), divideMax(registers[r+3], cardMin));
+					if (mayBeEmpty)
+						join(registers, r, Interval.MIN_EMPTY, Interval.MIN_EMPTY, Interval.MAX_EMPTY, Interval.MAX_EMPTY);
+				}
+				pc += 3;
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unknown instruction: "+code[pc]);
+			}
+		}
+		return registers[0] <= 1 && 1 <= registers[3];
+	}
+	
+	/** Computes the interval of the expression for a bag. Allocates the registers and the result, see {@link #evaluate(int[], int[])} to avoid it. */
+	public Interval evaluate(int[] multiplicities) {
+		int[] registers = createRegisters();
+		evaluate(multiplicities, registers);
+		return new Interval(registers[0], registers[1]);
+	}
+	
+	/** The multiplicities of the ordinals for a bag. If the bag uses the ordinals of the program, this is the array of the bag, that must not be modified. */
+	public int[] getMultiplicities(Bag bag) {
+		if (bag.getOrdinals() == ordinals)
+			return bag.getMultiplicities();
+		int[] result = new int[getNbOrdinals()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = bag.getMult(tripleConstraints.get(i));
+		return result;
+	}
+	
+	
+	private boolean isEmptySubbag(int[] multiplicities, int start, int length) {
+		for (int i = start; i < start + length; i++)
+			if (multiplicities[subbags[i]] != 0)
+				return false;
+		return true;
+	}
+	
+	private static boolean isEmpty(int[] registers, int r) {
+		return registers[r] == Interval.MIN_EMPTY && registers[r+1] == Interval.MAX_EMPTY;
+	}
+	
+	/** Stores the interval [min; max] at position r, with the representation of {@link Interval} for the empty interval, and returns the position after it. */
+	private static int push(int[] registers, int r, int min, int max) {
+		if (max < min) {
+			min = Interval.MIN_EMPTY;
+			max = Interval.MAX_EMPTY;
+		}
+		registers[r] = min;
+		registers[r+1] = max;
+		return r + 2;
+	}
+	
+	/** Same as the division of {@link IntervalComputation}. */
+	private static int div(int[] registers, int sp, int nbOcc, int cardMin, int cardMax) {
+		if (cardMin == 0 && cardMax == 0) {
+			if (nbOcc == 0)
+				return push(registers, sp, 0, Interval.UNBOUND);
+			return push(registers, sp, Interval.MIN_EMPTY, Interval.MAX_EMPTY);
+		}
+		return push(registers, sp, divideMin(nbOcc, cardMax), divideMax(nbOcc, cardMin));
+	}
+	
+	/** Same as the division of an interval of {@link IntervalComputation}. */
+	private static void divInterval(int[] registers, int r, int cardMin, int cardMax) {
+		if (isEmpty(registers, r))
+			return;
+		push(registers, r, divideMin(registers[r], cardMax), divideMax(registers[r+1], cardMin));
+	}
+	
+	/** The minimum of a division by a cardinality, i.e. min / cardMax rounded up, with n / {@link Interval#UNBOUND} = 1 for n != 0. Non decreasing in min. */
+	private static int divideMin(int min, int cardMax) {
+		if (cardMax == Interval.UNBOUND)
+			return min == 0 ? 0 : 1;
+		return min % cardMax == 0 ? min / cardMax : min / cardMax + 1;
+	}
+	
+	/** The maximum of a division by a cardinality, i.e. max / cardMin rounded down, with n / 0 = {@link Interval#UNBOUND}. Non decreasing in max. */
+	private static int divideMax(int max, int cardMin) {
+		if (cardMin == 0 || max == Interval.UNBOUND)
+			return Interval.UNBOUND;
+		return max / cardMin;
+	}
+	
+	/** Same as the sum of the maxima of {@link IntervalComputation}. */
+	private static int add(int max1, int max2) {
+		return (max1 == Interval.UNBOUND || max2 == Interval.UNBOUND) ? Interval.UNBOUND : max1 + max2;
+	}
+	
+	/** Stores at position r the bounds of the intervals [min; max] with min in [minLo; minHi] and max in [maxLo; maxHi], 
+	 * the intervals for which max &lt; min being replaced by the empty interval, and returns the position after them.
+	 */
+	private static int pushBounds(int[] registers, int r, int minLo, int minHi, int maxLo, int maxHi) {
+		if (maxHi < minLo) {
+			// always empty
+			minLo = minHi = Interval.MIN_EMPTY;
+			maxLo = maxHi = Interval.MAX_EMPTY;
+		} else if (maxLo < minHi) {
+			// may be empty
+			minLo = Math.min(minLo, Interval.MIN_EMPTY);
+			minHi = Math.max(minHi, Interval.MIN_EMPTY);
+			maxLo = Math.min(maxLo, Interval.MAX_EMPTY);
+			maxHi = Math.max(maxHi, Interval.MAX_EMPTY);
+		}
+		registers[r] = minLo;
+		registers[r+1] = minHi;
+		registers[r+2] = maxLo;
+		registers[r+3] = maxHi;
+		return r + 4;
+	}
+	
+	private static int pushEmpty(int[] registers, int r) {
+		return pushBounds(registers, r, Interval.MIN_EMPTY, Interval.MIN_EMPTY, Interval.MAX_EMPTY, Interval.MAX_EMPTY);
+	}
+	
+	/** Extends the bounds at position r so that they also contain the given bounds. */
+	private static void join(int[] registers, int r, int minLo, int minHi, int maxLo, int maxHi) {
+		registers[r] = Math.min(registers[r], minLo);
+		registers[r+1] = Math.max(registers[r+1], minHi);
+		registers[r+2] = Math.min(registers[r+2], maxLo);
+		registers[r+3] = Math.max(registers[r+3], maxHi);
+	}
+	
+	private static boolean isAlwaysEmpty(int[] registers, int r) {
+		return registers[r] == Interval.MIN_EMPTY && registers[r+1] == Interval.MIN_EMPTY 
+				&& registers[r+2] == Interval.MAX_EMPTY && registers[r+3] == Interval.MAX_EMPTY;
+	}
+	
+	private static boolean mayBeEmpty(int[] registers, int r) {
+		return registers[r] <= Interval.MIN_EMPTY && Interval.MIN_EMPTY <= registers[r+1] 
+				&& registers[r+2] <= Interval.MAX_EMPTY && Interval.MAX_EMPTY <= registers[r+3];
+	}
+	
+	
+	/** Emits the instructions of an expression in post-order and keeps track of the depth of the stack. */
+	class Compiler extends TripleExpressionVisitor<Void> {
+		private IntArray code = new IntArray();
+		private IntArray subbags = new IntArray();
+		private int depth = 0;
+		private int maxDepth = 0;
+		private int nbJumps = 0;
+		
+		@Override
+		public Void getResult() {
+			return null;
+		}
+		
+		private void pushed() {
+			depth++;
+			maxDepth = Math.max(maxDepth, depth);
+		}
+		
+		@Override
+		public void visitTripleConstraint(TripleConstraint tc, Object... arguments) {
+			code.add(TC);
+			code.add(getOrdinal(tc));
+			pushed();
+		}
+		
+		@Override
+		public void visitEmpty(EmptyTripleExpression expr, Object[] arguments) {
+			code.add(EMPTY);
+			pushed();
+		}
+		
+		@Override
+		public void visitOneOf(OneOf expr, Object... arguments) {
+			for (TripleExpr subExpr : expr.getSubExpressions())
+				subExpr.accept(this, arguments);
+			code.add(ONE_OF);
+			code.add(expr.getSubExpressions().size());
+			reduced(expr.getSubExpressions().size());
+		}
+		
+		@Override
+		public void visitEachOf(EachOf expr, Object... arguments) {
+			for (TripleExpr subExpr : expr.getSubExpressions())
+				subExpr.accept(this, arguments);
+			code.add(EACH_OF);
+			code.add(expr.getSubExpressions().size());
+			reduced(expr.getSubExpressions().size());
+		}
+		
+		/** The n topmost intervals were replaced by one interval. */
+		private void reduced(int n) {
+			if (n == 0)
+				pushed();
+			else
+				depth -= n - 1;
+		}
+		
+		@Override
+		public void visitRepeated(RepeatedTripleExpression expr, Object[] arguments) {
+			Interval card = expr.getCardinality();
+			TripleExpr subExpr = expr.getSubExpression();
+			if (card.equals(Interval.STAR)) {
+				int jump = ifEmptySubbag(expr, Interval.STAR);
+				subExpr.accept(this, arguments);
+				code.add(STAR);
+				code.set(jump, code.size());
+			} else if (card.equals(Interval.PLUS)) {
+				int jump = ifEmptySubbag(expr, Interval.ZERO);
+				subExpr.accept(this, arguments);
+				code.add(PLUS);
+				code.set(jump, code.size());
+			} else if (card.equals(Interval.OPT)) {
+				subExpr.accept(this, arguments);
+				code.add(OPT);
+			} else if (subExpr instanceof TripleConstraint) {
+				code.add(DIV);
+				code.add(getOrdinal((TripleConstraint) subExpr));
+				code.add(card.min);
+				code.add(card.max);
+				pushed();
+			} else if (card.equals(Interval.ZERO)) {
+				int jump = ifEmptySubbag(expr, Interval.STAR);
+				code.add(EMPTY_INTERVAL);
+				code.set(jump, code.size());
+				pushed();
+			} else {
+				int jump = ifEmptySubbag(expr, card.min == 0 ? Interval.STAR : Interval.ZERO);
+				subExpr.accept(this, arguments);
+				code.add(DIV_INTERVAL);
+				code.add(card.min);
+				code.add(card.max);
+				code.set(jump, code.size());
+			}
+		}
+		
+		/** Emits the test of the emptiness of the sub-bag of the expression and returns the position of the target of the jump. */
+		private int ifEmptySubbag(TripleExpr expr, Interval result) {
+			List<TripleConstraint> tcs = new DynamicCollectorOfTripleConstraints().getTCs(expr);
+			code.add(IF_EMPTY_SUBBAG);
+			nbJumps++;
+			code.add(result.min);
+			code.add(result.max);
+			int jump = code.size();
+			code.add(-1);
+			code.add(subbags.size());
+			code.add(tcs.size());
+			for (TripleConstraint tc : tcs)
+				subbags.add(getOrdinal(tc));
+			// the depth is the same on both branches
+			return jump;
+		}
+		
+		@Override
+		public void visitTripleExprReference(TripleExprRef expr, Object... arguments) {
+			expr.getTripleExp().accept(this, arguments);
+		}
+	}
+	
+	
+	/** A growable array of int. */
+	static class IntArray {
+		private int[] values = new int[16];
+		private int size = 0;
+		
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = value;
+		}
+		
+		void set(int index, int value) {
+			values[index] = value;
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -1,11 +1,14 @@
 package fr.inria.lille.shexjava.validation;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.apache.commons.rdf.api.Triple;
 
 import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 
 /** Data structure. 
  * Similarly to {@link PreMatching}, defines a tri-partition of a set of triples.
@@ -18,7 +21,10 @@ public class LocalMatching {
 	// TODO: see whether we want to implement it differently
 	// TODO having null for the matching to indicate that there is no matching is not satisfactory
 
-	private Map<Triple, Label> matching;
+	private volatile Map<Triple, Label> matching;
+	/** The triple constraints of the matching and the function that gives their labels, until the labels are requested */
+	private Map<Triple, TripleConstraint> assignment;
+	private Function<TripleConstraint, Label> labelOf;
 	private List<Triple> unmatched;
 	private List<Triple> matchedToExtra;	
 	
@@ -27,10 +33,35 @@ public class LocalMatching {
 		this.matchedToExtra = matchedToExtra;
 		this.unmatched = unmatched;
 	}
+	
+	/** Creates a matching whose labels are computed only when {@link #getMatching()} is called.
+	 * 
+	 * @param assignment with every triple associates its triple constraint, or null if there is no matching
+	 * @param labelOf gives the label of a triple constraint in the matching
+	 * @param matchedToExtra
+	 * @param unmatched
+	 */
+	LocalMatching (Map<Triple, TripleConstraint> assignment, Function<TripleConstraint, Label> labelOf, List<Triple> matchedToExtra, List<Triple> unmatched) {
+		this.assignment = assignment;
+		this.labelOf = labelOf;
+		this.matchedToExtra = matchedToExtra;
+		this.unmatched = unmatched;
+	}
 
+	/** True if a matching was found, i.e. if {@link #getMatching()} is not null. Does not compute the labels of the matching. */
+	public final boolean hasMatching() {
+		return matching != null || assignment != null;
+	}
 
 	public final Map<Triple, Label> getMatching() {
-		return matching;
+		Map<Triple, Label> result = matching;
+		if (result == null && assignment != null) {
+			result = new HashMap<>();
+			for (Map.Entry<Triple, TripleConstraint> e : assignment.entrySet())
+				result.put(e.getKey(), labelOf.apply(e.getValue()));
+			matching = result;
+		}
+		return result;
 	}
 
 	public final List<Triple> getUnmatched() {
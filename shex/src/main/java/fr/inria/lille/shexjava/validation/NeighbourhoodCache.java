@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+
+import fr.inria.lille.shexjava.util.CommonGraph;
+
+/** A bounded cache of the neighbourhoods retrieved from the graph to match a node against a shape.
+ * 
+ * The neighbourhood of a node is retrieved once per shape and per evaluation of the shape, that is several times for the same node 
+ * when it is validated against several shapes or when the refinement checks it again.
+ * The entries are identified by the node and the {@link TripleConstraintIndex#getSignature(boolean) signature} of the predicates retrieved for the shape, 
+ * which is computed once per index, so the shapes that use the same predicates share their entries and a lookup does not compare the predicates.
+ * The least recently used entry is evicted when the cache is full.
+ * 
+ * The cached neighbourhoods are valid only for the graph they were retrieved from: 
+ * the cache must be cleared with {@link #clear()} when the graph is modified, and must not be shared between validations of different graphs.
+ * The methods are synchronized, so a cache can be shared between several validation algorithms on the same graph. 
+ * 
+ * @author Jérémie Dusart
+ */
+public class NeighbourhoodCache {
+	private final int maxEntries;
+	private LinkedHashMap<Key,List<Triple>> entries;
+	private long hits, misses, evictions;
+	
+	/**
+	 * @param maxEntries the maximal number of entries, must be positive
+	 */
+	public NeighbourhoodCache(int maxEntries) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("Invalid argument value: maxEntries must be positive.");
+		this.maxEntries = maxEntries;
+		clear();
+	}
+	
+	/** Returns the neighbourhood of the node that must be matched against a shape whose triple constraints are indexed by the given index, 
+	 * and retrieves it from the graph if it is not in the cache.
+	 * 
+	 * @param graph
+	 * @param node
+	 * @param index
+	 * @param shapeIsClosed
+	 * @return the neighbourhood, that must not be modified
+	 * @see ValidationUtils#getMatchableNeighbourhood(Graph, RDFTerm, TripleConstraintIndex, boolean)
+	 */
+	public List<Triple> getMatchableNeighbourhood(Graph graph, RDFTerm node, TripleConstraintIndex index, boolean shapeIsClosed) {
+		return getMatchableNeighbourhood(graph, node, index, shapeIsClosed, CommonGraph.UNKNOWN_DEGREE);
+	}
+	
+	/** Returns the neighbourhood of the node, and retrieves it from the graph using the expected degree of the node if it is not in the cache.
+	 * 
+	 * @param graph
+	 * @param node
+	 * @param index
+	 * @param shapeIsClosed
+	 * @param expectedDegree
+	 * @return the neighbourhood, that must not be modified
+	 * @see ValidationUtils#getMatchableNeighbourhood(Graph, RDFTerm, TripleConstraintIndex, boolean, long)
+	 */
+	public List<Triple> getMatchableNeighbourhood(Graph graph, RDFTerm node, TripleConstraintIndex index, boolean shapeIsClosed, long expectedDegree) {
+		Key key = new Key(node, index.getSignature(shapeIsClosed));
+		synchronized (this) {
+			List<Triple> result = entries.get(key);
+			if (result != null) {
+				hits++;
+				return result;
+			}
+			misses++;
+		}
+		List<Triple> result = Collections.unmodifiableList(ValidationUtils.getMatchableNeighbourhood(graph, node, index, shapeIsClosed, expectedDegree));
+		synchronized (this) {
+			entries.put(key, result);
+		}
+		return result;
+	}
+	
+	/** Removes all the entries, the statistics are kept. */
+	public synchronized void clear() {
+		entries = new LinkedHashMap<Key,List<Triple>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,List<Triple>> eldest) {
+				if (size() > maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+	
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	/** The ratio of the lookups that found a cached neighbourhood, 0 if there was no lookup. */
+	public synchronized double getHitRatio() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return "NeighbourhoodCache[size="+size()+"/"+maxEntries+", hits="+hits+", misses="+misses+", evictions="+evictions+"]";
+	}
+	
+	
+	/** The signatures are interned, so they are compared by identity. */
+	private static class Key {
+		private final RDFTerm node;
+		private final TripleConstraintIndex.Signature signature;
+		private final int hash;
+		
+		Key(RDFTerm node, TripleConstraintIndex.Signature signature) {
+			this.node = node;
+			this.signature = signature;
+			this.hash = 31 * node.hashCode() + signature.hashCode();
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash == other.hash && signature == other.signature && node.equals(other.node);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Implements the Refinement validation algorithm using several threads.
+ *
+ * The candidate pairs (node, label) of every stratum are split across a {@link ForkJoinPool} and evaluated concurrently against a {@link ConcurrentTypingForValidation}.
+ * As the refinement of a stratum is monotone, the pairs that are removed by concurrent evaluations are removed from the greatest fixpoint as well,
+ * so the constructed {@link Typing} is the same as the one constructed by {@link RefineValidation}.
+ * The order in which the matchings are notified to the {@link MatchingCollector}s is however not deterministic.
+ *
+ * The graph must not be modified while the typing is being computed.
+ *
+ * @author Jérémie Dusart
+ */
+public class ParallelRefineValidation extends RefineValidation {
+	/** Number of pairs under which a task is not split anymore. */
+	private static final int SEQUENTIAL_THRESHOLD = 64;
+
+	private ForkJoinPool pool;
+
+	/** Uses the common {@link ForkJoinPool}. */
+	public ParallelRefineValidation(ShexSchema schema, Graph graph) {
+		this(schema, graph, ForkJoinPool.commonPool());
+	}
+
+	public ParallelRefineValidation(ShexSchema schema, Graph graph, ForkJoinPool pool) {
+		super(schema, graph);
+		this.pool = pool;
+	}
+
+	@Override
+	public void resetTyping() {
+		this.typing = new ConcurrentTypingForValidation();
+		computed = false;
+	}
+
+	@Override
+	public synchronized void notifyMatchingFound(RDFTerm focusNode, Label label, LocalMatching matching) {
+		super.notifyMatchingFound(focusNode, label, matching);
+	}
+
+	@Override
+	protected void refineStratum(int stratum) {
+		List<Pair<RDFTerm, Label>> elements = addAllLabelsForStratum(stratum);
+		boolean changed;
+		do {
+			changed = pool.invoke(new StratumRefinementTask(elements, 0, elements.size()));
+			elements.removeIf(nl -> ! typing.isConformant(nl.one, nl.two));
+		} while (changed);
+	}
+
+	/** The status of the shapes is fixed, so the other labels can be evaluated in any order. */
+	@Override
+	protected void completeTyping() {
+		List<Pair<RDFTerm, Label>> all = new ArrayList<>();
+		for (Label label:schema.getShapeExprsMap().keySet())
+			for (RDFTerm node : allGraphNodes)
+				all.add(new Pair<>(node, label));
+		pool.invoke(new TypingCompletionTask(all, 0, all.size()));
+	}
+
+
+	/** Removes from the typing the pairs of elements[from, to[ that are not satisfied. Returns true if some pair was removed. */
+	class StratumRefinementTask extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private List<Pair<RDFTerm, Label>> elements;
+		private int from, to;
+
+		StratumRefinementTask(List<Pair<RDFTerm, Label>> elements, int from, int to) {
+			this.elements = elements;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Boolean compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				boolean changed = false;
+				for (int i = from; i < to; i++) {
+					Pair<RDFTerm, Label> nl = elements.get(i);
+					if (! satisfies(nl,true)) {
+						typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+						changed = true;
+					}
+				}
+				return changed;
+			}
+			int middle = (from + to) >>> 1;
+			StratumRefinementTask left = new StratumRefinementTask(elements, from, middle);
+			left.fork();
+			boolean changed = new StratumRefinementTask(elements, middle, to).compute();
+			return left.join() || changed;
+		}
+	}
+
+
+	/** Sets the status of the pairs of elements[from, to[ according to the computed typing of the shapes. */
+	class TypingCompletionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private List<Pair<RDFTerm, Label>> elements;
+		private int from, to;
+
+		TypingCompletionTask(List<Pair<RDFTerm, Label>> elements, int from, int to) {
+			this.elements = elements;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					Pair<RDFTerm, Label> nl = elements.get(i);
+					if (satisfies(nl,false))
+						typing.setStatus(nl.one, nl.two, Status.CONFORMANT);
+					else
+						typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new TypingCompletionTask(elements, from, middle), new TypingCompletionTask(elements, middle, to));
+		}
+	}
+}
@@ -16,9 +16,14 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.validation;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.RDFTerm;
@@ -36,19 +41,54 @@ import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
 import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
+import fr.inria.lille.shexjava.util.Pair;
 
 
 /** Implements the Recursive validation algorithm.
  * This algorithm will check only the shape definition necessary. The result is store in a shape map and will contain only the result for the (node, label) the validate function is called by the user. The result obtain  by recursive calls are not store since some can be false positive. To have the store of recursive call, see the algorithm RecursivveValidationWithMemorization.                
  * 
+ * Optionally, a {@link ValidationCache} keeps the results that do not depend on a hypothesis made by a pending recursive call, so that they are reused by the recursive calls and by the successive calls to {@link #validate(RDFTerm, Label)}.
+ * 
  * @author Jérémie Dusart 
  */
 public class RecursiveValidation extends SORBEBasedValidation {
 	
 	private TypingForValidation typing;
+	private ValidationCache cache;
+	/** When the cache is used, with every pending recursive call associates its depth. */
+	private Map<Pair<RDFTerm,Label>,Integer> hypothesisDepth;
+	/** The lowest depth of a hypothesis used since the beginning of the current recursive call. */
+	private int lowestHypothesisUsed;
 	
 	public RecursiveValidation(ShexSchema schema, Graph graph) {
+		this(schema,graph,null);
+	}
+	
+	/** 
+	 * @param schema
+	 * @param graph
+	 * @param cache the cache of the final results, or null. It must be cleared if the graph is modified. 
+	 */
+	public RecursiveValidation(ShexSchema schema, Graph graph, ValidationCache cache) {
 		super(schema,graph);
+		this.cache = cache;
+	}
+	
+	/** @see ValidationAlgorithmAbstract#ValidationAlgorithmAbstract(ShexSchema, Graph, Set, long) */
+	public RecursiveValidation(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes, long expectedDegree) {
+		super(schema,graph,allGraphNodes,expectedDegree);
+	}
+	
+	public ValidationCache getCache() {
+		return cache;
+	}
+	
+	/** The references are evaluated as the referenced shape expression, so they share its cached results. */
+	private Label getCacheLabel(Label label) {
+		ShapeExpr expr = schema.getShapeExprsMap().get(label);
+		while (expr instanceof ShapeExprRef)
+			expr = ((ShapeExprRef) expr).getShapeDefinition();
+		return expr.getId();
 	}
 	
 
@@ -62,7 +102,12 @@ public class RecursiveValidation extends SORBEBasedValidation {
 //			throw new IllegalArgumentException("Node do not belong to the graph.");
 		
 		this.resetTyping();
-		boolean result = recursiveValidation(focusNode,label);
+		boolean result;
+		Status cached = cache == null ? Status.NOTCOMPUTED : cache.get(focusNode, getCacheLabel(label));
+		if (cached != Status.NOTCOMPUTED)
+			result = cached == Status.CONFORMANT;
+		else
+			result = recursiveValidation(focusNode,label);
 		if (result) {
 			this.typing.setStatus(focusNode, label, Status.CONFORMANT);
 		} else {
@@ -72,13 +117,53 @@ public class RecursiveValidation extends SORBEBasedValidation {
 	}
 	
 	
+	/** Computes the status of the pair under the hypotheses of the typing.
+	 * The recursive calls are evaluated with an explicit stack of {@link Frame}s, so the depth of the validation is not bounded by the size of the thread stack.
+	 */
 	protected boolean recursiveValidation(RDFTerm focusNode, Label label) {
+		Deque<Frame> stack = new ArrayDeque<>();
+		stack.push(startFrame(focusNode, label));
+		while (true) {
+			Frame frame = stack.peek();
+			EvaluateShapeExpressionVisitor visitor = new EvaluateShapeExpressionVisitor(frame);
+			schema.getShapeExprsMap().get(frame.label).accept(visitor);
+			if (visitor.pending != null) {
+				stack.push(startFrame(visitor.pending.one, visitor.pending.two));
+				continue;
+			}
+			
+			stack.pop();
+			boolean result = endFrame(frame, visitor);
+			if (stack.isEmpty())
+				return result;
+			ShapeEvaluation waiting = stack.peek().waiting;
+			waiting.localTyping.setStatus(frame.node, frame.label, result ? Status.CONFORMANT : Status.NONCONFORMANT);
+			waiting.next++;
+		}
+	}
+	
+	private Frame startFrame(RDFTerm focusNode, Label label) {
+		Frame frame = new Frame(focusNode, label);
 		this.typing.setStatus(focusNode, label, Status.CONFORMANT);
-		EvaluateShapeExpressionVisitor visitor = new EvaluateShapeExpressionVisitor(focusNode);
-		schema.getShapeExprsMap().get(label).accept(visitor);
-		this.typing.removeNodeLabel(focusNode, label);
+		if (cache != null) {
+			frame.depth = hypothesisDepth.size();
+			hypothesisDepth.put(new Pair<>(focusNode, label), frame.depth);
+			frame.lowestBefore = lowestHypothesisUsed;
+			lowestHypothesisUsed = Integer.MAX_VALUE;
+		}
+		return frame;
+	}
+	
+	private boolean endFrame(Frame frame, EvaluateShapeExpressionVisitor visitor) {
+		this.typing.removeNodeLabel(frame.node, frame.label);
+		if (cache != null) {
+			hypothesisDepth.remove(new Pair<>(frame.node, frame.label));
+			// The result is final if it only depends on the hypothesis of this call
+			if (lowestHypothesisUsed >= frame.depth)
+				cache.put(frame.node, getCacheLabel(frame.label), visitor.getResult() ? Status.CONFORMANT : Status.NONCONFORMANT);
+			lowestHypothesisUsed = Math.min(frame.lowestBefore, lowestHypothesisUsed);
+		}
 		return visitor.result;
-		
 	}
 	
 	@Override
@@ -89,15 +174,59 @@ public class RecursiveValidation extends SORBEBasedValidation {
 	@Override
 	public void resetTyping() {
 		this.typing = new TypingForValidation();
+		if (cache != null) {
+			this.hypothesisDepth = new HashMap<>();
+			this.lowestHypothesisUsed = Integer.MAX_VALUE;
+		}
+	}
+	
+	
+	/** The evaluation of a pair (node, label) on the stack. */
+	static class Frame {
+		private RDFTerm node;
+		private Label label;
+		/** The evaluations of the shapes in the order they are visited when evaluating the shape expression of the label. */
+		private List<ShapeEvaluation> shapes = new ArrayList<>();
+		/** The evaluation of the shape that waits for the result of the frame above. */
+		private ShapeEvaluation waiting;
+		private int depth, lowestBefore;
+		
+		Frame(RDFTerm node, Label label) {
+			this.node = node;
+			this.label = label;
+		}
 	}
 	
 	
+	/** The evaluation of a shape on the node of a frame, that is resumed every time the status of a required pair is known. */
+	static class ShapeEvaluation {
+		private Shape shape;
+		/** The pairs whose status is needed by the pre-matching, in the order in which they are evaluated. */
+		private List<Pair<RDFTerm,Label>> required = new ArrayList<>();
+		private int next = 0;
+		private TypingForValidation localTyping = new TypingForValidation();
+		private Boolean result;
+		
+		ShapeEvaluation(Shape shape) {
+			this.shape = shape;
+		}
+	}
+	
+	
+	/** Evaluates the shape expression of a frame. The evaluation stops as soon as a shape needs the status of a pair that is not computed, 
+	 * and this pair is given by {@link #pending}. The frame is evaluated again from the start when the status is known, 
+	 * and the shapes that are already evaluated are not evaluated again.
+	 */
 	class EvaluateShapeExpressionVisitor extends ShapeExpressionVisitor<Boolean> {
+		private Frame frame;
 		private RDFTerm node; 
 		private Boolean result;
+		private int nbVisitedShapes = 0;
+		private Pair<RDFTerm,Label> pending;
 		
-		public EvaluateShapeExpressionVisitor(RDFTerm one) {
-			this.node = one;
+		public EvaluateShapeExpressionVisitor(Frame frame) {
+			this.frame = frame;
+			this.node = frame.node;
 		}
 
 		@Override
@@ -110,7 +239,7 @@ public class RecursiveValidation extends SORBEBasedValidation {
 		public void visitShapeAnd(ShapeAnd expr, Object... arguments) {
 			for (ShapeExpr e : expr.getSubExpressions()) {
 				e.accept(this);
-				if (!result) break;
+				if (pending != null || !result) break;
 			}
 		}
 
@@ -118,19 +247,35 @@ public class RecursiveValidation extends SORBEBasedValidation {
 		public void visitShapeOr(ShapeOr expr, Object... arguments) {
 			for (ShapeExpr e : expr.getSubExpressions()) {
 				e.accept(this);
-				if (result) break;
+				if (pending != null || result) break;
 			}
 		}
 		
 		@Override
 		public void visitShapeNot(ShapeNot expr, Object... arguments) {
 			expr.getSubExpression().accept(this);
-			result = !result;
+			if (pending == null)
+				result = !result;
 		}
 		
 		@Override
 		public void visitShape(Shape expr, Object... arguments) {
-			result = isLocallyValid(node, expr);
+			ShapeEvaluation evaluation;
+			if (nbVisitedShapes < frame.shapes.size()) {
+				evaluation = frame.shapes.get(nbVisitedShapes);
+			} else {
+				evaluation = startShapeEvaluation(node, expr);
+				frame.shapes.add(evaluation);
+			}
+			nbVisitedShapes++;
+			if (evaluation.result == null) {
+				pending = resumeShapeEvaluation(node, evaluation);
+				if (pending != null) {
+					frame.waiting = evaluation;
+					return;
+				}
+			}
+			result = evaluation.result;
 		}
 
 		@Override
@@ -145,16 +290,16 @@ public class RecursiveValidation extends SORBEBasedValidation {
 	}
 	
 	
-	private boolean isLocallyValid (RDFTerm node, Shape shape) {
+	private ShapeEvaluation startShapeEvaluation (RDFTerm node, Shape shape) {
 		TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
 
-		List<TripleConstraint> constraints = collectorTC.getTCs(tripleExpression);	
-		List<Triple> neighbourhood = ValidationUtils.getMatchableNeighbourhood(graph, node, constraints, shape.isClosed());
+		TripleConstraintIndex tcIndex = compiledSchema.getTripleConstraintIndex(tripleExpression);
+		List<Triple> neighbourhood = getMatchableNeighbourhood(node, tcIndex, shape.isClosed());
 
 		// Match using only predicate and recursive test. The following lines is the only big difference with refine validation. 
-		TypingForValidation localTyping = new TypingForValidation();
+		ShapeEvaluation evaluation = new ShapeEvaluation(shape);
 		
-		PreMatching preMatching = ValidationUtils.computePreMatching(node, neighbourhood, constraints, shape.getExtraProperties(), ValidationUtils.getPredicateOnlyMatcher());
+		PreMatching preMatching = ValidationUtils.computePreMatching(node, neighbourhood, tcIndex, shape.getExtraProperties(), ValidationUtils.getPredicateOnlyMatcher());
 		Map<Triple,List<TripleConstraint>> matchingTC1 = preMatching.getPreMatching();
 			
 		for(Entry<Triple,List<TripleConstraint>> entry:matchingTC1.entrySet()) {		
@@ -162,19 +307,32 @@ public class RecursiveValidation extends SORBEBasedValidation {
 				RDFTerm destNode = entry.getKey().getObject();
 				if (!tc.getProperty().isForward())
 					destNode = entry.getKey().getSubject();
+				evaluation.required.add(new Pair<>(destNode, tc.getShapeExpr().getId()));
+			}
+		}
+		return evaluation;
+	}
 	
-				if (this.typing.getStatus(destNode, tc.getShapeExpr().getId()).equals(Status.NOTCOMPUTED)) {
-					if (this.recursiveValidation(destNode, tc.getShapeExpr().getId())) 
-						localTyping.setStatus(destNode, tc.getShapeExpr().getId(),Status.CONFORMANT);	
-					else
-						localTyping.setStatus(destNode, tc.getShapeExpr().getId(),Status.NONCONFORMANT);	
-				} else {
-					localTyping.setStatus(destNode, tc.getShapeExpr().getId(), typing.getStatus(destNode, tc.getShapeExpr().getId()));
-				}
+	/** Continues the evaluation of the shape. Returns the pair that must be evaluated before going on, or null if the result of the shape is computed. */
+	private Pair<RDFTerm,Label> resumeShapeEvaluation (RDFTerm node, ShapeEvaluation evaluation) {
+		TypingForValidation localTyping = evaluation.localTyping;
+		while (evaluation.next < evaluation.required.size()) {
+			Pair<RDFTerm,Label> nl = evaluation.required.get(evaluation.next);
+			Status cached = cache == null ? Status.NOTCOMPUTED : cache.get(nl.one, getCacheLabel(nl.two));
+			if (cached != Status.NOTCOMPUTED) {
+				localTyping.setStatus(nl.one, nl.two, cached);
+			} else if (this.typing.getStatus(nl.one, nl.two).equals(Status.NOTCOMPUTED)) {
+				return nl;
+			} else {
+				if (cache != null)
+					lowestHypothesisUsed = Math.min(lowestHypothesisUsed, hypothesisDepth.get(nl));
+				localTyping.setStatus(nl.one, nl.two, typing.getStatus(nl.one, nl.two));
 			}
+			evaluation.next++;
 		}
 				
-		return this.findMatching(node, shape, localTyping).getMatching() != null;
+		evaluation.result = this.findMatching(node, evaluation.shape, localTyping).hasMatching();
+		return null;
 	}	
 
 	
@@ -16,12 +16,12 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.validation;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -31,8 +31,6 @@ import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDFTerm;
 import org.apache.commons.rdf.api.Triple;
-import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.graph.DefaultEdge;
 
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
@@ -61,6 +59,12 @@ public class RecursiveValidationWithMemorization extends SORBEBasedValidation {
 
 	}
 	
+	/** @see ValidationAlgorithmAbstract#ValidationAlgorithmAbstract(ShexSchema, Graph, Set, long) */
+	public RecursiveValidationWithMemorization(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes, long expectedDegree) {
+		super(schema,graph,allGraphNodes,expectedDegree);
+		this.resetTyping();
+	}
+	
 
 	private TypingForValidation typing;
 
@@ -88,239 +92,359 @@ public class RecursiveValidationWithMemorization extends SORBEBasedValidation {
 //			throw new IllegalArgumentException("Node do not belong to the graph.");
 		return recursiveValidation(focusNode,
 								 label,
-								 new LinkedList<>(),
-								 new DefaultDirectedGraph<>(DefaultEdge.class),
+								 new HypothesisStack<>(),
+								 new DependencyGraph<>(),
 								 new HashMap<>(),
 								 new HashMap<>());		
 	}
 
 	
+	/** Computes the status of the pair. The recursive calls are evaluated with an explicit stack of {@link Frame}s, 
+	 * so the depth of the validation is not bounded by the size of the thread stack.
+	 */
 	protected boolean recursiveValidation(RDFTerm focusNode, 
 										  Label label, 
-										  LinkedList<Pair<RDFTerm,Label>> hyp,
-										  DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
+										  HypothesisStack<Pair<RDFTerm,Label>> hyp,
+										  DependencyGraph<Pair<RDFTerm,Label>> g,
 										  Map<Pair<RDFTerm,Label>,Boolean> results,
 										  Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
+		Evaluation ev = new Evaluation(hyp, g, results, lowestDep);
+		Boolean res = call(focusNode, label, ev);
+		if (res != null)
+			return res;
+		while (true) {
+			Frame frame = ev.stack.peek();
+			Pair<RDFTerm,Label> child = frame.next();
+			if (child != null) {
+				res = call(child.one, child.two, ev);
+				if (res != null)
+					frame.receive(res);
+				continue;
+			}
+			
+			ev.stack.pop();
+			Pair<RDFTerm,Label> key = hyp.pop();
+			if (g.containsVertex(key)) {
+				results.put(key, frame.result);
+				memorize(key.one,key.two,hyp,g,results,lowestDep);
+			}
+			if (ev.stack.isEmpty())
+				return frame.result;
+			ev.stack.peek().receive(frame.result);
+		}
+	}
+	
+	/** Starts the evaluation of the pair. Returns its status if it is known without evaluating the shape expression, otherwise pushes a new frame and returns null. */
+	private Boolean call(RDFTerm focusNode, Label label, Evaluation ev) {
 		Pair<RDFTerm,Label> key = new Pair<>(focusNode,label);
-		if (hyp.contains(key)) {
+		if (ev.hyp.contains(key)) {
 			return true;
 		}
 		if (!this.typing.getStatus(focusNode, label).equals(Status.NOTCOMPUTED))
 			return this.typing.isConformant(focusNode, label);
-		if (g.containsVertex(key))
-			return results.get(key);
+		if (ev.g.containsVertex(key))
+			return ev.results.get(key);
 		
-		if (schema.getShapeExprsMap().get(label) instanceof NodeConstraint) {
-			boolean res = ((NodeConstraint)schema.getShapeExprsMap().get(label)).contains(focusNode);
-			updateGraph(focusNode, label, Collections.emptySet(), res, hyp, g, results, lowestDep);		
+		ShapeExpr expr = schema.getShapeExprsMap().get(label);
+		if (expr instanceof NodeConstraint) {
+			boolean res = ((NodeConstraint)expr).contains(focusNode);
+			updateGraph(focusNode, label, Collections.emptySet(), res, ev.hyp, ev.g, ev.results, ev.lowestDep);		
 			return res;		
 		}
 		
-		hyp.addLast(key);
+		ev.hyp.push(key);
 		
-		boolean res=false;
-		if (schema.getShapeExprsMap().get(label) instanceof ShapeNot)
-			res=recursiveValidationShapeNot(focusNode,label,hyp,g,results,lowestDep);
-		if (schema.getShapeExprsMap().get(label) instanceof ShapeExprRef)
-			res=recursiveValidationShapeExprRef(focusNode,label,hyp,g,results,lowestDep);
-		if (schema.getShapeExprsMap().get(label) instanceof ShapeOr)
-			res=recursiveValidationShapeOr(focusNode,label,hyp,g,results,lowestDep);
-		if (schema.getShapeExprsMap().get(label) instanceof ShapeAnd)
-			res=recursiveValidationShapeAnd(focusNode,label,hyp,g,results,lowestDep);
-		if (schema.getShapeExprsMap().get(label) instanceof Shape)
-			res=recursiveValidationShape(focusNode,label,hyp,g,results,lowestDep);
-				
-		hyp.remove(key);
-		if (g.containsVertex(key)) {
-			results.put(key, res);
-			memorize(focusNode,label,hyp,g,results,lowestDep);
+		Frame frame;
+		if (expr instanceof ShapeNot)
+			frame = new ShapeNotFrame(focusNode, label, ev);
+		else if (expr instanceof ShapeExprRef)
+			frame = new ShapeExprRefFrame(focusNode, label, ev);
+		else if (expr instanceof ShapeOr)
+			frame = new ShapeOrFrame(focusNode, label, ev);
+		else if (expr instanceof ShapeAnd)
+			frame = new ShapeAndFrame(focusNode, label, ev);
+		else if (expr instanceof Shape)
+			frame = new ShapeFrame(focusNode, label, ev);
+		else
+			frame = new Frame(focusNode, label, ev);
+		ev.stack.push(frame);
+		return null;
+	}
+	
+	
+	/** The structures shared by the frames of a call to {@link RecursiveValidationWithMemorization#recursiveValidation}. */
+	static class Evaluation {
+		private HypothesisStack<Pair<RDFTerm,Label>> hyp;
+		private DependencyGraph<Pair<RDFTerm,Label>> g;
+		private Map<Pair<RDFTerm,Label>,Boolean> results;
+		private Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep;
+		private Deque<Frame> stack = new ArrayDeque<>();
+		
+		Evaluation(HypothesisStack<Pair<RDFTerm,Label>> hyp,
+				DependencyGraph<Pair<RDFTerm,Label>> g,
+				Map<Pair<RDFTerm,Label>,Boolean> results,
+				Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
+			this.hyp = hyp;
+			this.g = g;
+			this.results = results;
+			this.lowestDep = lowestDep;
 		}
-		return res;
 	}
 	
 	
-	protected boolean recursiveValidationShapeNot(RDFTerm focusNode, 
-			  Label label, 
-			  LinkedList<Pair<RDFTerm,Label>> hyp,
-			  DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
-			  Map<Pair<RDFTerm,Label>,Boolean> results,
-			  Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
+	/** The evaluation of the shape expression of a pair (node, label) that is on the hypothesis stack. 
+	 * The frame asks for the status of the pairs it depends on one at a time, and updates the graph of dependencies when its result is known.
+	 * This frame is used for the shape expressions that are not supported, and its result is false.
+	 */
+	class Frame {
+		protected RDFTerm node;
+		protected Label label;
+		protected Evaluation ev;
+		protected boolean result = false;
 		
-		ShapeNot shape = (ShapeNot) schema.getShapeExprsMap().get(label);
+		Frame(RDFTerm node, Label label, Evaluation ev) {
+			this.node = node;
+			this.label = label;
+			this.ev = ev;
+		}
 		
-		boolean res = ! this.recursiveValidation(focusNode, shape.getSubExpression().getId(),hyp,g,results,lowestDep);
-				
-		Set<Pair<RDFTerm,Label>> required = new HashSet<>();
-		required.add(new Pair<>(focusNode,shape.getSubExpression().getId()));
-				
-		updateGraph(focusNode, label, required, res, hyp, g, results, lowestDep);			
+		/** Returns the next pair whose status is needed, or null if the result is computed. */
+		Pair<RDFTerm,Label> next() {
+			return null;
+		}
 		
-		return res;
+		/** Receives the status of the last pair returned by {@link #next()}. */
+		void receive(boolean childResult) {
+		}
+		
+		protected void updateGraph(Set<Pair<RDFTerm,Label>> required, boolean res) {
+			RecursiveValidationWithMemorization.this.updateGraph(node, label, required, res, ev.hyp, ev.g, ev.results, ev.lowestDep);
+		}
 	}
 	
 	
-	
-	protected boolean recursiveValidationShapeExprRef(RDFTerm focusNode, 
-			  Label label, 
-			  LinkedList<Pair<RDFTerm,Label>> hyp,
-			  DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
-			  Map<Pair<RDFTerm,Label>,Boolean> results,
-			  Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
+	class ShapeNotFrame extends Frame {
+		private Pair<RDFTerm,Label> child;
+		private Boolean childResult;
+		
+		ShapeNotFrame(RDFTerm node, Label label, Evaluation ev) {
+			super(node, label, ev);
+			ShapeNot shape = (ShapeNot) schema.getShapeExprsMap().get(label);
+			child = new Pair<>(node, shape.getSubExpression().getId());
+		}
 		
-		ShapeExprRef shape = (ShapeExprRef) schema.getShapeExprsMap().get(label);
+		@Override
+		Pair<RDFTerm,Label> next() {
+			if (childResult == null)
+				return child;
+			result = ! childResult;
+			Set<Pair<RDFTerm,Label>> required = new HashSet<>();
+			required.add(child);
+			updateGraph(required, result);
+			return null;
+		}
 		
-		boolean res = this.recursiveValidation(focusNode, shape.getLabel(),hyp,g,results,lowestDep);
+		@Override
+		void receive(boolean childResult) {
+			this.childResult = childResult;
+		}
+	}
+	
+	
+	class ShapeExprRefFrame extends Frame {
+		private Pair<RDFTerm,Label> child;
+		private Boolean childResult;
 		
-		Set<Pair<RDFTerm,Label>> required = new HashSet<>();
-		required.add(new Pair<>(focusNode,shape.getLabel()));
-				
-		updateGraph(focusNode, label, required, res, hyp, g, results, lowestDep);			
+		ShapeExprRefFrame(RDFTerm node, Label label, Evaluation ev) {
+			super(node, label, ev);
+			ShapeExprRef shape = (ShapeExprRef) schema.getShapeExprsMap().get(label);
+			child = new Pair<>(node, shape.getLabel());
+		}
+		
+		@Override
+		Pair<RDFTerm,Label> next() {
+			if (childResult == null)
+				return child;
+			result = childResult;
+			Set<Pair<RDFTerm,Label>> required = new HashSet<>();
+			required.add(child);
+			updateGraph(required, result);
+			return null;
+		}
 		
-		return res;
+		@Override
+		void receive(boolean childResult) {
+			this.childResult = childResult;
+		}
 	}
 	
-	protected boolean recursiveValidationShapeAnd(RDFTerm focusNode, 
-			  Label label, 
-			  LinkedList<Pair<RDFTerm,Label>> hyp,
-			  DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
-			  Map<Pair<RDFTerm,Label>,Boolean> results,
-			  Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
+	
+	class ShapeAndFrame extends Frame {
+		private Set<Pair<RDFTerm,Label>> required = new HashSet<>();
+		private Iterator<ShapeExpr> iter;
+		private Pair<RDFTerm,Label> current;
+		
+		ShapeAndFrame(RDFTerm node, Label label, Evaluation ev) {
+			super(node, label, ev);
+			iter = ((ShapeAnd) schema.getShapeExprsMap().get(label)).getSubExpressions().iterator();
+			result = true;
+		}
 		
-		ShapeAnd shape = (ShapeAnd) schema.getShapeExprsMap().get(label);
-		boolean res = true;
-		Set<Pair<RDFTerm,Label>> required = new HashSet<>();
-		Iterator<ShapeExpr> iter = shape.getSubExpressions().iterator();
+		@Override
+		Pair<RDFTerm,Label> next() {
+			if (result && iter.hasNext()) {
+				current = new Pair<>(node, iter.next().getId());
+				return current;
+			}
+			updateGraph(required, result);
+			return null;
+		}
 		
-		while(res && iter.hasNext()) {
-			ShapeExpr next = iter.next();
-			res = this.recursiveValidation(focusNode, next.getId(), hyp, g, results, lowestDep);
-			if (res) {
-				required.add(new Pair<>(focusNode,next.getId()));
+		@Override
+		void receive(boolean childResult) {
+			result = childResult;
+			if (result) {
+				required.add(current);
 			} else {
 				required = new HashSet<>();
-				required.add(new Pair<>(focusNode,next.getId()));
+				required.add(current);
 			}
 		}
-		
-		updateGraph(focusNode, label, required, res, hyp, g, results, lowestDep);			
-		
-		return res;	
 	}
 	
-	protected boolean recursiveValidationShapeOr(RDFTerm focusNode, 
-			  Label label, 
-			  LinkedList<Pair<RDFTerm,Label>> hyp,
-			  DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
-			  Map<Pair<RDFTerm,Label>,Boolean> results,
-			  Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
+	
+	class ShapeOrFrame extends Frame {
+		private Set<Pair<RDFTerm,Label>> required = new HashSet<>();
+		private Iterator<ShapeExpr> iter;
+		private Pair<RDFTerm,Label> current;
 		
-		ShapeOr shape = (ShapeOr) schema.getShapeExprsMap().get(label);
-		boolean res = false;
-		Set<Pair<RDFTerm,Label>> required = new HashSet<>();
-		Iterator<ShapeExpr> iter = shape.getSubExpressions().iterator();
+		ShapeOrFrame(RDFTerm node, Label label, Evaluation ev) {
+			super(node, label, ev);
+			iter = ((ShapeOr) schema.getShapeExprsMap().get(label)).getSubExpressions().iterator();
+			result = false;
+		}
 		
-		while(!res && iter.hasNext()) {
-			ShapeExpr next = iter.next();
-			res = this.recursiveValidation(focusNode, next.getId(), hyp, g, results, lowestDep);
-			if (res) {
+		@Override
+		Pair<RDFTerm,Label> next() {
+			if (!result && iter.hasNext()) {
+				current = new Pair<>(node, iter.next().getId());
+				return current;
+			}
+			updateGraph(required, result);
+			return null;
+		}
+		
+		@Override
+		void receive(boolean childResult) {
+			result = childResult;
+			if (result) {
 				required = new HashSet<>();
-				required.add(new Pair<>(focusNode,next.getId()));
+				required.add(current);
 			} else {
-				required.add(new Pair<>(focusNode,next.getId()));
+				required.add(current);
 			}
 		}
-				
-		updateGraph(focusNode, label, required, res, hyp, g, results, lowestDep);			
-		
-		return res;	
 	}
 	
 	
-	private boolean recursiveValidationShape (RDFTerm node,
-			Label label, 
-			LinkedList<Pair<RDFTerm,Label>> hyp,
-			DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
-			Map<Pair<RDFTerm,Label>,Boolean> results,
-			Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep){
-
-		Set<Pair<RDFTerm,Label>> required = new HashSet<>();
-		List<Triple> extraNeighbours = new ArrayList<>();
-		
-		Shape shape = (Shape) schema.getShapeExprsMap().get(label);
+	class ShapeFrame extends Frame {
+		private Set<Pair<RDFTerm,Label>> required = new HashSet<>();
+		private Shape shape;
+		private TypingForValidation localTyping = new TypingForValidation();
+		private Iterator<Entry<Triple,List<TripleConstraint>>> entries;
+		private Entry<Triple,List<TripleConstraint>> entry;
+		/** The index of the current triple constraint in the entry, and the number of triple constraints of the entry that are satisfied. */
+		private int tcIndex, nb;
 		
-		TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
-		List<TripleConstraint> constraints = collectorTC.getTCs(tripleExpression);		
-		List<Triple> neighbourhood = ValidationUtils.getMatchableNeighbourhood(graph, node, constraints, shape.isClosed());
+		ShapeFrame(RDFTerm node, Label label, Evaluation ev) {
+			super(node, label, ev);
+			shape = (Shape) schema.getShapeExprsMap().get(label);
+			
+			TripleExpr tripleExpression = sorbeGenerator.getSORBETripleExpr(shape);
+			TripleConstraintIndex tcIndex = compiledSchema.getTripleConstraintIndex(tripleExpression);
+			List<Triple> neighbourhood = getMatchableNeighbourhood(node, tcIndex, shape.isClosed());
+			
+			// Match using only predicate and recursive test.
+			Matcher matcher = ValidationUtils.getPredicateOnlyMatcher();
+			entries = ValidationUtils.computePreMatching(node, neighbourhood, tcIndex, shape.getExtraProperties(), matcher).getPreMatching().entrySet().iterator();
+		}
 		
-		// Match using only predicate and recursive test.
-		TypingForValidation localTyping = new TypingForValidation();
-		Matcher matcher = ValidationUtils.getPredicateOnlyMatcher();
-		Map<Triple,List<TripleConstraint>> matchingTC1 = 
-				ValidationUtils.computePreMatching(node, neighbourhood, constraints, shape.getExtraProperties(), matcher).getPreMatching();
-
-		for(Entry<Triple,List<TripleConstraint>> entry:matchingTC1.entrySet()) {			
-			int nb=0;
-			for (TripleConstraint tc:entry.getValue()) {
-				RDFTerm destNode = entry.getKey().getObject();
-
-				if (!tc.getProperty().isForward())
-					destNode = entry.getKey().getSubject();
-	
-				if (this.typing.getStatus(destNode, tc.getShapeExpr().getId()).equals(Status.NOTCOMPUTED)) {
-					if (this.recursiveValidation(destNode, tc.getShapeExpr().getId(),hyp,g,results,lowestDep)) {
-						localTyping.setStatus(destNode, tc.getShapeExpr().getId(),Status.CONFORMANT);
-						nb++;
-					} else {
-						localTyping.setStatus(destNode, tc.getShapeExpr().getId(),Status.NONCONFORMANT);
+		@Override
+		Pair<RDFTerm,Label> next() {
+			while (true) {
+				if (entry != null) {
+					while (tcIndex < entry.getValue().size()) {
+						TripleConstraint tc = entry.getValue().get(tcIndex);
+						RDFTerm destNode = getDestNode(tc);
+						if (typing.getStatus(destNode, tc.getShapeExpr().getId()).equals(Status.NOTCOMPUTED))
+							return new Pair<>(destNode, tc.getShapeExpr().getId());
+						localTyping.setStatus(destNode, tc.getShapeExpr().getId(), typing.getStatus(destNode, tc.getShapeExpr().getId()));
+						if (typing.isConformant(destNode, tc.getShapeExpr().getId()))
+							nb++;
+						tcIndex++;
+					}
+					
+					if (nb==0) {
+						boolean success = false;
+						for (IRI extra : shape.getExtraProperties())
+							if (extra.equals(entry.getKey().getPredicate()))
+								success = true;
+						if (!success) {
+							// Looking at the calls that fails
+							for (TripleConstraint tc:entry.getValue()){
+								RDFTerm destNode = entry.getKey().getObject();
+								required.add(new Pair<>(destNode,tc.getShapeExpr().getId()));
+							}
+							result = false;
+							updateGraph(required, false);
+							return null;
+						}
 					}
-				} else {
-					localTyping.setStatus(destNode, tc.getShapeExpr().getId(), typing.getStatus(destNode, tc.getShapeExpr().getId()));
-					if (typing.isConformant(destNode, tc.getShapeExpr().getId()))
-						nb++;
 				}
+				if (! entries.hasNext())
+					break;
+				entry = entries.next();
+				tcIndex = 0;
+				nb = 0;
 			}
 			
-			if (nb==0) {
-				boolean success = false;
-				for (IRI extra : shape.getExtraProperties())
-					if (extra.equals(entry.getKey().getPredicate()))
-						success = true;
-				if (!success) {
-					// Looking at the calls that fails
-					for (TripleConstraint tc:matchingTC1.get(entry.getKey())){
-						RDFTerm destNode = entry.getKey().getObject();
-						required.add(new Pair<>(destNode,tc.getShapeExpr().getId()));
-					}
-					updateGraph(node, label, required, false, hyp, g, results, lowestDep);
-					return false;
+			Map<Triple, Label> matching = findMatching(node, shape, localTyping).getMatching();
+			if (matching!=null) {
+				for (Triple tr:matching.keySet()) {
+					Label depLabel = ((TripleConstraint) schema.getTripleExprsMap().get(matching.get(tr))).getShapeExpr().getId();
+					required.add(new Pair<>(getOther(tr,node), depLabel));
 				}
+				result = true;
+				updateGraph(required, true);		
+				return null;
 			}
-
+			
+			// Update the graph if necessary
+			for (Pair<RDFTerm,Label> pair:localTyping.getStatusMap().keySet())
+				if (localTyping.isNonConformant(pair.one,pair.two))
+					required.add(pair);		
+			result = false;
+			updateGraph(required, false);		
+			return null;
 		}
 		
-		Map<Triple, Label> result = this.findMatching(node, shape, localTyping).getMatching();
-		if (result!=null) {
-			for (Triple tr:result.keySet()) {
-				Label depLabel = ((TripleConstraint) schema.getTripleExprsMap().get(result.get(tr))).getShapeExpr().getId();
-				required.add(new Pair<>(getOther(tr,node), depLabel));
-			}
-			for (Triple tri:extraNeighbours) {
-				RDFTerm other = getOther(tri,node);
-				for (Label l:localTyping.getShapesLabel(other))
-					required.add(new Pair<>(other, l));
+		@Override
+		void receive(boolean childResult) {
+			TripleConstraint tc = entry.getValue().get(tcIndex);
+			if (childResult) {
+				localTyping.setStatus(getDestNode(tc), tc.getShapeExpr().getId(),Status.CONFORMANT);
+				nb++;
+			} else {
+				localTyping.setStatus(getDestNode(tc), tc.getShapeExpr().getId(),Status.NONCONFORMANT);
 			}
-			updateGraph(node, label, required, true, hyp, g, results, lowestDep);		
-
-			return true;
+			tcIndex++;
 		}
 		
-		// Update the graph if necessary
-		for (Pair<RDFTerm,Label> pair:localTyping.getStatusMap().keySet())
-			if (localTyping.isNonConformant(pair.one,pair.two))
-				required.add(pair);		
-		updateGraph(node, label, required, false, hyp, g, results, lowestDep);		
-				
-		return false;
+		private RDFTerm getDestNode(TripleConstraint tc) {
+			if (!tc.getProperty().isForward())
+				return entry.getKey().getSubject();
+			return entry.getKey().getObject();
+		}
 	}
 	
 	
@@ -329,12 +453,12 @@ public class RecursiveValidationWithMemorization extends SORBEBasedValidation {
 	
 	protected void memorize(RDFTerm focusNode, 
 			  Label label, 
-			  LinkedList<Pair<RDFTerm,Label>> hyp,
-			  DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
+			  HypothesisStack<Pair<RDFTerm,Label>> hyp,
+			  DependencyGraph<Pair<RDFTerm,Label>> g,
 			  Map<Pair<RDFTerm,Label>,Boolean> results,
 			  Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
 		
-		LinkedList<Pair<RDFTerm,Label>> S = new LinkedList<>();
+		Deque<Pair<RDFTerm,Label>> S = new ArrayDeque<>();
 		S.add(new Pair<>(focusNode,label));
 		if (results.get(new Pair<>(focusNode,label))) {
 			while (! S.isEmpty()) {
@@ -346,8 +470,7 @@ public class RecursiveValidationWithMemorization extends SORBEBasedValidation {
 					else
 						this.typing.setStatus(key.one, key.two, Status.NONCONFORMANT);
 				}
-				for(DefaultEdge edge: g.incomingEdgesOf(key)) {
-					Pair<RDFTerm,Label> dest = g.getEdgeSource(edge);
+				for(Pair<RDFTerm,Label> dest: g.predecessorsOf(key)) {
 					if (this.typing.getStatus(dest.one, dest.two).equals(Status.NOTCOMPUTED))
 						S.add(dest);
 				}
@@ -355,8 +478,7 @@ public class RecursiveValidationWithMemorization extends SORBEBasedValidation {
 		} else {
 			while (S.isEmpty()) {
 				Pair<RDFTerm,Label> key = S.pollFirst();
-				for(DefaultEdge edge: g.incomingEdgesOf(key))
-					S.add(g.getEdgeSource(edge));	
+				S.addAll(g.predecessorsOf(key));
 				if (!key.equals(new Pair<>(focusNode,label))) {
 					g.removeVertex(key);
 					notifyMatchingFound(key.one, key.two, null);
@@ -377,8 +499,8 @@ public class RecursiveValidationWithMemorization extends SORBEBasedValidation {
 			Label label,
 			Set<Pair<RDFTerm,Label>> required,
 			boolean res,
-			LinkedList<Pair<RDFTerm,Label>> hyp,
-			DefaultDirectedGraph<Pair<RDFTerm,Label>, DefaultEdge> g,
+			HypothesisStack<Pair<RDFTerm,Label>> hyp,
+			DependencyGraph<Pair<RDFTerm,Label>> g,
 			Map<Pair<RDFTerm,Label>,Boolean> results,
 			Map<Pair<RDFTerm,Label>,Pair<RDFTerm,Label>> lowestDep) {
 		
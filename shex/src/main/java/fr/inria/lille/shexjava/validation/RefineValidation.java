@@ -56,13 +56,18 @@ import fr.inria.lille.shexjava.util.Pair;
  *
  */
 public class RefineValidation extends SORBEBasedValidation {
-	private boolean computed = false;
-	private TypingForValidation typing;
+	protected boolean computed = false;
+	protected TypingForValidation typing;
 
 
 	public RefineValidation(ShexSchema schema, Graph graph) {
 		super(schema,graph);
 	}
+	
+	/** @see ValidationAlgorithmAbstract#ValidationAlgorithmAbstract(ShexSchema, Graph, Set, long) */
+	public RefineValidation(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes, long expectedDegree) {
+		super(schema,graph,allGraphNodes,expectedDegree);
+	}
 
 	@Override
 	public Typing getTyping() {
@@ -71,7 +76,7 @@ public class RefineValidation extends SORBEBasedValidation {
 	
 	@Override
 	public void resetTyping() {
-		this.typing = new TypingForValidation();
+		this.typing = new CompactTypingForValidation(schema.getShapeExprsMap().keySet());
 		computed = false;
 	}
 	
@@ -94,27 +99,37 @@ public class RefineValidation extends SORBEBasedValidation {
 	}
 
 
-	private void computeMaximalTyping(RDFTerm focusNode) {
+	protected void computeMaximalTyping(RDFTerm focusNode) {
 		if (computed)
 			return;
 		// This will compute the typing for the shape only
-		for (int stratum = 0; stratum < schema.getStratification().size(); stratum++) {
-			List<Pair<RDFTerm, Label>> elements = addAllLabelsForStratum(stratum);		
-			boolean changed;
-			do {
-				changed = false;
-				Iterator<Pair<RDFTerm, Label>> typesIt = elements.iterator();
-				while (typesIt.hasNext()) {
-					Pair<RDFTerm, Label> nl = typesIt.next();
-					if (! satisfies(nl,true)) {
-						typesIt.remove();
-						typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
-						changed = true;
-					}
-				}
-			} while (changed);
-		}
+		for (int stratum = 0; stratum < schema.getStratification().size(); stratum++)
+			refineStratum(stratum);
 		// This populate the typing with everything else
+		completeTyping();
+		computed = true;
+	}
+	
+	/** Computes the greatest typing for the shapes of the stratum, assuming that the typing of the lower strata is already computed. */
+	protected void refineStratum(int stratum) {
+		List<Pair<RDFTerm, Label>> elements = addAllLabelsForStratum(stratum);		
+		boolean changed;
+		do {
+			changed = false;
+			Iterator<Pair<RDFTerm, Label>> typesIt = elements.iterator();
+			while (typesIt.hasNext()) {
+				Pair<RDFTerm, Label> nl = typesIt.next();
+				if (! satisfies(nl,true)) {
+					typesIt.remove();
+					typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+					changed = true;
+				}
+			}
+		} while (changed);
+	}
+	
+	/** Sets the status of every node for every label of the schema, using the typing computed for the shapes. */
+	protected void completeTyping() {
 		for (Label label:schema.getShapeExprsMap().keySet()) {
 			for (RDFTerm node : allGraphNodes) {		
 				if (satisfies(new Pair<>(node, label),false)) {
@@ -124,12 +139,11 @@ public class RefineValidation extends SORBEBasedValidation {
 				}
 			}
 		}
-		computed = true;
 	}
 
 	/** Tests whether the node satisfies the shape expresion with specified label and with the current typing 
 	 *  If validateShape is set to true, then the typing will not be used*/
-	private boolean satisfies(Pair<RDFTerm, Label> nl, boolean validateShape) {
+	protected boolean satisfies(Pair<RDFTerm, Label> nl, boolean validateShape) {
 		EvaluateShapeExpressionVisitor shexprEvaluator = new EvaluateShapeExpressionVisitor(validateShape);
 		shexprEvaluator.setNode(nl.one);
 		schema.getShapeExprsMap().get(nl.two).accept(shexprEvaluator);
@@ -138,16 +152,17 @@ public class RefineValidation extends SORBEBasedValidation {
 	
 	
 	/** Tests whether the node's neighbourhood matches the shape with the current typing */
-	private boolean matches (RDFTerm node, Shape shape) {
+	protected boolean matches (RDFTerm node, Shape shape) {
 		// Since the algorithm first computing the typing with the shape only, in the same fashion as for the recursive algorithm, a localtyping must be computed without any cal to compute shape.
 		TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
-		List<TripleConstraint> constraints = collectorTC.getTCs(tripleExpression);	
-		List<Triple> neighbourhood = ValidationUtils.getMatchableNeighbourhood(graph, node, constraints, shape.isClosed());
+		TripleConstraintIndex tcIndex = compiledSchema.getTripleConstraintIndex(tripleExpression);
+		List<Triple> neighbourhood = getMatchableNeighbourhood(node, tcIndex, shape.isClosed());
 
 		// Match using only predicate and recursive test. The following lines is the only big difference with refine validation. 
 		TypingForValidation localTyping = new TypingForValidation();
 		
-		PreMatching preMatching = ValidationUtils.computePreMatching(node, neighbourhood, constraints, shape.getExtraProperties(), ValidationUtils.getPredicateOnlyMatcher());
+		PreMatching preMatching = ValidationUtils.computePreMatching(node, neighbourhood, tcIndex, shape.getExtraProperties(), ValidationUtils.getPredicateOnlyMatcher());
+		preMatchingComputed(node, shape, preMatching);
 		Map<Triple,List<TripleConstraint>> matchingTC1 = preMatching.getPreMatching();
 			
 		for(Entry<Triple,List<TripleConstraint>> entry:matchingTC1.entrySet()) {		
@@ -166,9 +181,16 @@ public class RefineValidation extends SORBEBasedValidation {
 				}
 			}
 		}
-		return this.findMatching(node, shape, localTyping).getMatching() != null;
+		return this.findMatching(node, shape, localTyping).hasMatching();
 	}	
 	
+	/** Called by {@link #matches(RDFTerm, Shape)} with the pre-matching of the neighbourhood of the node that uses only the predicates. 
+	 * Does nothing by default.
+	 */
+	protected void preMatchingComputed (RDFTerm node, Shape shape, PreMatching preMatching) {
+		// Nothing to do
+	}
+	
 
 	class EvaluateShapeExpressionVisitor extends ShapeExpressionVisitor<Boolean> {		
 		private RDFTerm node; 
@@ -234,7 +256,7 @@ public class RefineValidation extends SORBEBasedValidation {
 
 	// Typing utils
 
-	private List<Pair<RDFTerm, Label>> addAllLabelsForStratum(int stratum) {
+	protected List<Pair<RDFTerm, Label>> addAllLabelsForStratum(int stratum) {
 		ArrayList<Pair<RDFTerm, Label>> result = new ArrayList<>();
 		Set<Label> labels = schema.getStratification().get(stratum); 
 		for (Label label: labels) {
@@ -18,13 +18,12 @@ package fr.inria.lille.shexjava.validation;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.RDFTerm;
 import org.apache.commons.rdf.api.Triple;
 
-import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
 import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
@@ -39,7 +38,13 @@ public abstract class SORBEBasedValidation extends ValidationAlgorithmAbstract {
 	
 	public SORBEBasedValidation(ShexSchema schema, Graph graph) {
 		super(schema,graph);
-		this.sorbeGenerator = new SORBEGenerator(schema.getRdfFactory());
+		this.sorbeGenerator = compiledSchema.getSORBEGenerator();
+	}
+	
+	/** @see ValidationAlgorithmAbstract#ValidationAlgorithmAbstract(ShexSchema, Graph, Set, long) */
+	protected SORBEBasedValidation(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes, long expectedDegree) {
+		super(schema,graph,allGraphNodes,expectedDegree);
+		this.sorbeGenerator = compiledSchema.getSORBEGenerator();
 	}
 	
 	/** Try to find a matching for the shape on the node using the typing. See also the MatchingCollector or FailureReportsCollecto.
@@ -51,26 +56,20 @@ public abstract class SORBEBasedValidation extends ValidationAlgorithmAbstract {
 	 */
 	protected LocalMatching findMatching (RDFTerm node, Shape shape, Typing typing) {
 		TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
-		List<TripleConstraint> constraints = collectorTC.getTCs(tripleExpression);
-		List<Triple> neighbourhood = ValidationUtils.getMatchableNeighbourhood(graph, node, constraints, shape.isClosed());
+		TripleConstraintIndex tcIndex = compiledSchema.getTripleConstraintIndex(tripleExpression);
+		List<Triple> neighbourhood = getMatchableNeighbourhood(node, tcIndex, shape.isClosed());
 		
-		PreMatching preMatching = ValidationUtils.computePreMatching(node, neighbourhood, constraints, shape.getExtraProperties(), ValidationUtils.getPredicateAndValueMatcher(typing));
+		PreMatching preMatching = ValidationUtils.computePreMatching(node, neighbourhood, tcIndex, shape.getExtraProperties(), ValidationUtils.getPredicateAndValueMatcher(typing));
 		
 		LocalMatching result = null;
 		// Look for correct matching within the pre-matching
 		if (preMatching.getUnmatched().size()==0) {
-			BagIterator bagIt = new BagIterator(preMatching);
-			IntervalComputation intervalComputation = new IntervalComputation(this.collectorTC);
-			while(result==null && bagIt.hasNext()){
-				Bag bag = bagIt.next();
-				tripleExpression.accept(intervalComputation, bag, this);
-				if (intervalComputation.getResult().contains(1)) {
-					Map<Triple, Label> matching = bagIt.getCurrentBag();
-					matching = matching.entrySet().stream()
-							.collect(Collectors.toMap(x -> x.getKey(), x -> sorbeGenerator.getOriginalNonsorbeVersion(x.getValue())));
-					result = new LocalMatching(matching, preMatching.getMatchedToExtra(), preMatching.getUnmatched());
-					notifyMatchingFound(node, shape.getId(), result);
-				}
+			BagSearch bagSearch = new BagSearch(preMatching);
+			Map<Triple, TripleConstraint> assignment = bagSearch.findAssignment(compiledSchema.getIntervalProgram(tripleExpression));
+			if (assignment != null) {
+				// the labels of the original triple constraints are computed only if the matching is requested
+				result = new LocalMatching(assignment, tc -> sorbeGenerator.getOriginalTripleConstraint(tc).getId(), preMatching.getMatchedToExtra(), preMatching.getUnmatched());
+				notifyMatchingFound(node, shape.getId(), result);
 			}
 		}		
 
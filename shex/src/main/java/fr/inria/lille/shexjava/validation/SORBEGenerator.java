@@ -17,9 +17,9 @@
 package fr.inria.lille.shexjava.validation;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.rdf.api.RDF;
 
@@ -37,7 +37,10 @@ import fr.inria.lille.shexjava.util.Interval;
 
 /** Allows to compute a SORBE version of a triple expression. 
  * The computation results are memorized and won't be recomputed by further calls.
- * The SORBE version does not contains any triple expression reference, cardinality other than *, ? or + and an empty triple expression with the + cardinality.
+ * The SORBE version does not contains any triple expression reference, and no repeated sub-expression that contains the empty bag has a minimal cardinality other than 0.
+ * The cardinalities {m,n} are kept as they are instead of being expanded into m copies of the sub-expression followed by n-m optional copies, 
+ * so the size of the SORBE version is the size of the original expression, see {@link IntervalComputation} for their evaluation.
+ * The generator can be shared between threads: the memorized results are read without locking and the computation of a new result is synchronized.
  * 
  * @author Jérémie Dusart
  */
@@ -47,10 +50,13 @@ public class SORBEGenerator {
 	public static final String SORBE_TRIPLE_LABEL_SUFFIXE = "_SORBE_";
 	
 	private Map<Label,TripleExpr> sorbeMap;
+	/** With every generated triple constraint associates the triple constraint of the original expression. The triple constraints are compared by identity. */
+	private Map<TripleConstraint,TripleConstraint> originalTripleConstraints;
 	
 	public SORBEGenerator(RDF rdfFactory) {
 		this.rdfFactory=rdfFactory;
-		this.sorbeMap=new HashMap<>();
+		this.sorbeMap=new ConcurrentHashMap<>();
+		this.originalTripleConstraints=new ConcurrentHashMap<>();
 	}
 	
 	
@@ -61,14 +67,31 @@ public class SORBEGenerator {
 	 * @return
 	 */
 	public TripleExpr getSORBETripleExpr(Shape shape) {
-		if (this.sorbeMap.containsKey(shape.getId()))
-			return this.sorbeMap.get(shape.getId());
-		shape.getTripleExpression().accept(generatorTE);
-		this.sorbeMap.put(shape.getId(), generatorTE.getResult());
-		return generatorTE.getResult();
+		TripleExpr result = this.sorbeMap.get(shape.getId());
+		if (result != null)
+			return result;
+		synchronized (this) {
+			result = this.sorbeMap.get(shape.getId());
+			if (result == null) {
+				shape.getTripleExpression().accept(generatorTE);
+				result = generatorTE.getResult();
+				this.sorbeMap.put(shape.getId(), result);
+			}
+		}
+		return result;
+	}
+	
+	/** Returns the triple constraint of the original expression for which the given triple constraint is the sorbe version.
+	 * 
+	 * @param tc a triple constraint of a SORBE triple expression constructed by the generator
+	 * @return the original triple constraint, or null if the triple constraint was not constructed by the generator
+	 */
+	public TripleConstraint getOriginalTripleConstraint(TripleConstraint tc) {
+		return originalTripleConstraints.get(tc);
 	}
 	
 	/** Returns the label of the original expression for which the expression with the given label is the sorbe version.
+	 * Prefer {@link #getOriginalTripleConstraint(TripleConstraint)} for the triple constraints, that does not compute a new label.
 	 * 
 	 * @param label
 	 * @return
@@ -98,7 +121,8 @@ public class SORBEGenerator {
 		@Override
 		public void visitTripleConstraint(TripleConstraint tc, Object... arguments) {
 			result = tc.clone();
-			setTripleLabel(result,tc);			
+			setTripleLabel(result,tc);
+			originalTripleConstraints.put((TripleConstraint) result, tc);
 		}
 
 		@Override
@@ -140,44 +164,13 @@ public class SORBEGenerator {
 			CheckIfContainsEmpty visitor = new CheckIfContainsEmpty();
 			expr.accept(visitor);
 			expr.getSubExpression().accept(this);
-			if (expr.getCardinality().equals(Interval.PLUS) & visitor.result) {
-				result = new RepeatedTripleExpression(result,Interval.STAR);
-				setTripleLabel(result,expr);
-			} else if(expr.getCardinality().equals(Interval.PLUS)
-					  || expr.getCardinality().equals(Interval.STAR)
-					  || expr.getCardinality().equals(Interval.OPT)
-					  || expr.getCardinality().equals(Interval.ZERO)){
-				result = new RepeatedTripleExpression(result,expr.getCardinality());
-				setTripleLabel(result,expr);
-			} else {
-				Interval card = expr.getCardinality();
-				int nbClones = 0;
-				int	nbOptClones = 0;
-				List<TripleExpr> clones = new ArrayList<>();
-
-				if (card.max == Interval.UNBOUND) {
-					nbClones = card.min -1;
-					TripleExpr tmp = new RepeatedTripleExpression(result, Interval.PLUS);
-					setTripleLabel(tmp,expr);
-					clones.add(tmp);
-				}else {
-					nbClones = card.min;
-					nbOptClones = card.max - card.min;
-				}
-
-				for (int i=0; i<nbClones;i++) {
-					expr.getSubExpression().accept(this);
-					clones.add(result);	
-				}
-				for (int i=0; i<nbOptClones;i++) {
-					expr.getSubExpression().accept(this);
-					TripleExpr tmp = new RepeatedTripleExpression(result, Interval.OPT);
-					setTripleLabel(tmp,expr);
-					clones.add(tmp);
-				}
-				result = new EachOf(clones);
-				setTripleLabel(result,expr);
+			Interval card = expr.getCardinality();
+			if (visitor.result && card.min > 0) {
+				// the sub-expression contains the empty bag, so the minimal number of repetitions does not constrain the bags
+				card = card.isUnbound() ? Interval.STAR : new Interval(0, card.max);
 			}
+			result = new RepeatedTripleExpression(result,card);
+			setTripleLabel(result,expr);
 		}
 		
 	}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExternal;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
+import fr.inria.lille.shexjava.util.TermDictionary;
+
+/** Validates the subjects of a stream of triples sorted by subject, without loading the whole data.
+ * 
+ * The triples must be sorted by the N-Triples representation of their subject, compared code point by code point, 
+ * as in an N-Triples file sorted with <code>LC_ALL=C sort</code> whose subjects contain no escape sequence.
+ * Every block of triples with the same subject is loaded in a small graph, the subject is validated against every label, and the results are given to a {@link ResultHandler} before the next block is read.
+ * The memory used is thus bounded by the size of the largest block.
+ * The order of the subjects is checked, so that a subject that appears again after its block is detected instead of being validated twice on partial blocks.
+ * 
+ * This is correct only for the labels whose validation depends on the triples of the subject only, see {@link #isLocal(Label)}: 
+ * the shapes must not contain inverse triple constraints, and the values of the triple constraints must be tested by node constraints only.
+ * 
+ * @author Jérémie Dusart
+ */
+public class StreamingValidation {
+	private ShexSchema schema;
+	private List<Label> labels;
+	private CompiledSchema compiledSchema;
+	
+	/** Receives the result of the validation of a subject against a label. */
+	public interface ResultHandler {
+		public void handleResult(RDFTerm node, Label label, boolean conformant);
+	}
+	
+	/** 
+	 * @param schema
+	 * @param labels the labels against which every subject is validated
+	 * @exception IllegalArgumentException if a label does not belong to the schema or cannot be validated on the triples of the subject only
+	 */
+	public StreamingValidation(ShexSchema schema, Collection<Label> labels) {
+		this.schema = schema;
+		this.labels = new ArrayList<>(labels);
+		this.compiledSchema = schema.getCompiledSchema();
+		for (Label label : labels) {
+			if (!schema.getShapeExprsMap().containsKey(label))
+				throw new IllegalArgumentException("Unknown label: "+label);
+			if (!isLocal(label))
+				throw new IllegalArgumentException("Label "+label+" cannot be validated on the triples of the subject only.");
+		}
+	}
+	
+	/** Tests whether the validation of a node against the label depends only on the triples whose subject is the node.
+	 * This is the case when the shapes used by the label have no inverse triple constraint, and the values of their triple constraints are tested by node constraints only.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public boolean isLocal(Label label) {
+		LocalityChecker checker = new LocalityChecker();
+		schema.getShapeExprsMap().get(label).accept(checker, false);
+		return checker.getResult();
+	}
+	
+	/** Validates the subjects of the triples, which must be sorted by subject.
+	 * 
+	 * @param triples
+	 * @param handler
+	 * @exception IllegalStateException if the triples are not sorted by subject, in particular if a subject appears again after its block
+	 */
+	public void validate(Iterator<Triple> triples, ResultHandler handler) {
+		RDF4J rdfFactory = new RDF4J();
+		Graph block = rdfFactory.asGraph(new LinkedHashModel());
+		BlankNodeOrIRI subject = null;
+		while (triples.hasNext()) {
+			Triple triple = triples.next();
+			if (subject != null && ! TermDictionary.sameTerm(subject, triple.getSubject())) {
+				checkOrder(subject, triple.getSubject());
+				validateBlock(subject, block, handler);
+				block = rdfFactory.asGraph(new LinkedHashModel());
+			}
+			subject = triple.getSubject();
+			block.add(triple);
+		}
+		if (subject != null)
+			validateBlock(subject, block, handler);
+	}
+	
+	/** Parses the input with a streaming parser, and validates the subjects of the statements, which must be sorted by subject.
+	 * The graph names of the quads are ignored. The labels of the blank nodes of the input are kept.
+	 * 
+	 * @param input
+	 * @param format usually {@link RDFFormat#NTRIPLES} or {@link RDFFormat#NQUADS}
+	 * @param baseURI
+	 * @param handler
+	 * @throws IOException
+	 * @exception IllegalStateException if the statements are not sorted by subject, in particular if a subject appears again after its block
+	 */
+	public void validate(InputStream input, RDFFormat format, String baseURI, ResultHandler handler) throws IOException {
+		RDF4J rdfFactory = new RDF4J();
+		RDFParser parser = Rio.createParser(format);
+		// the parser renames and may hash the blank nodes, which would change their order and the nodes given to the handler
+		parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+		parser.setRDFHandler(new AbstractRDFHandler() {
+			private Model block = new LinkedHashModel();
+			private Resource subject = null;
+			
+			@Override
+			public void handleStatement(Statement st) {
+				if (subject != null && ! subject.equals(st.getSubject())) {
+					checkOrder(rdfFactory.asRDFTerm(subject), rdfFactory.asRDFTerm(st.getSubject()));
+					validateBlock(rdfFactory.asRDFTerm(subject), rdfFactory.asGraph(block), handler);
+					block = new LinkedHashModel();
+				}
+				subject = st.getSubject();
+				block.add(st.getSubject(), st.getPredicate(), st.getObject());
+			}
+			
+			@Override
+			public void endRDF() {
+				if (subject != null)
+					validateBlock(rdfFactory.asRDFTerm(subject), rdfFactory.asGraph(block), handler);
+			}
+		});
+		parser.parse(input, baseURI);
+	}
+	
+	/** Checks that the next subject follows the previous one, comparing their N-Triples representations code point by code point, 
+	 * which is the order of the UTF-8 bytes used by <code>LC_ALL=C sort</code>.
+	 */
+	private static void checkOrder(RDFTerm previous, RDFTerm next) {
+		String p = previous.ntriplesString(), n = next.ntriplesString();
+		int i = 0;
+		while (i < p.length() && i < n.length() && p.codePointAt(i) == n.codePointAt(i))
+			i += Character.charCount(p.codePointAt(i));
+		boolean sorted;
+		if (i < p.length() && i < n.length())
+			sorted = p.codePointAt(i) < n.codePointAt(i);
+		else
+			sorted = i == p.length();
+		if (! sorted)
+			throw new IllegalStateException("The triples are not sorted by subject: "+n+" follows "+p+".");
+	}
+	
+	private void validateBlock(RDFTerm subject, Graph block, ResultHandler handler) {
+		RecursiveValidation validation = new RecursiveValidation(schema, block);
+		for (Label label : labels)
+			handler.handleResult(subject, label, validation.validate(subject, label));
+	}
+	
+	
+	/** The result is true if the visited expression is local. The argument tells whether the expression constrains the value of a triple. */
+	class LocalityChecker extends ShapeExpressionVisitor<Boolean> {
+		private boolean result = true;
+		private Set<Label> visited = new HashSet<>();
+		
+		@Override
+		public Boolean getResult() {
+			return result;
+		}
+
+		@Override
+		public void visitShape(Shape expr, Object... arguments) {
+			boolean isValue = (Boolean) arguments[0];
+			if (isValue) {
+				result = false;
+				return;
+			}
+			if (! visited.add(expr.getId()))
+				return;
+			for (TripleConstraint tc : compiledSchema.getTCs(compiledSchema.getSORBETripleExpr(expr))) {
+				if (! tc.getProperty().isForward())
+					result = false;
+				tc.getShapeExpr().accept(this, true);
+			}
+		}
+
+		@Override
+		public void visitNodeConstraint(NodeConstraint expr, Object... arguments) {
+			// Nothing to do
+		}
+
+		@Override
+		public void visitShapeExprRef(ShapeExprRef shapeRef, Object[] arguments) {
+			shapeRef.getShapeDefinition().accept(this, arguments);
+		}
+
+		@Override
+		public void visitShapeExternal(ShapeExternal shapeExt, Object[] arguments) {
+			result = false;
+		}
+	}
+}
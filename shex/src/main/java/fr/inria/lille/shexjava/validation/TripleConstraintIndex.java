@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.util.TermDictionary;
+
+/** Indexes a list of triple constraints by predicate and direction.
+ * 
+ * Allows to retrieve the triple constraints that can match a neighbour triple with a single lookup instead of testing all the triple constraints.
+ * The predicates are identified by a {@link TermDictionary}, so a lookup does not allocate.
+ * The candidates are returned in the order of the indexed list.
+ * The index is immutable and can be shared between threads.
+ * 
+ * @author Jérémie Dusart
+ */
+public class TripleConstraintIndex {
+	private final List<TripleConstraint> tripleConstraints;
+	private final TermDictionary predicates;
+	private final List<List<TripleConstraint>> forwardIndex;
+	private final List<List<TripleConstraint>> inverseIndex;
+	private final Set<IRI> forwardPredicates;
+	private final Set<IRI> inversePredicates;
+	private final Map<TripleConstraint,Integer> positions;
+	private final Signature openSignature, closedSignature;
+	
+	public TripleConstraintIndex(List<TripleConstraint> tripleConstraints) {
+		this.tripleConstraints = tripleConstraints;
+		this.predicates = new TermDictionary();
+		this.forwardIndex = new ArrayList<>();
+		this.inverseIndex = new ArrayList<>();
+		this.forwardPredicates = new HashSet<>();
+		this.inversePredicates = new HashSet<>();
+		this.positions = new IdentityHashMap<>();
+		for (TripleConstraint tc : tripleConstraints) {
+			positions.put(tc, positions.size());
+			IRI predicate = tc.getProperty().getIri();
+			int id = predicates.getId(predicate);
+			if (id == forwardIndex.size()) {
+				forwardIndex.add(new ArrayList<>());
+				inverseIndex.add(new ArrayList<>());
+			}
+			if (tc.getProperty().isForward()) {
+				forwardPredicates.add(predicate);
+				forwardIndex.get(id).add(tc);
+			} else {
+				inversePredicates.add(predicate);
+				inverseIndex.get(id).add(tc);
+			}
+		}
+		this.openSignature = Signature.intern(new Signature(forwardPredicates, inversePredicates));
+		this.closedSignature = Signature.intern(new Signature(null, inversePredicates));
+	}
+	
+	/** The indexed triple constraints. */
+	public List<TripleConstraint> getTripleConstraints() {
+		return tripleConstraints;
+	}
+	
+	/** The predicates of the forward triple constraints. */
+	public Set<IRI> getForwardPredicates() {
+		return forwardPredicates;
+	}
+	
+	/** The predicates of the inverse triple constraints. */
+	public Set<IRI> getInversePredicates() {
+		return inversePredicates;
+	}
+	
+	/** The signature of the predicates whose triples are retrieved to match a node against a shape whose triple constraints are indexed, 
+	 * that is the forward and inverse predicates, or only the inverse predicates for a closed shape since all the outgoing triples are retrieved.
+	 * The indexes that retrieve the triples of the same predicates return the same signature, so the signatures can be compared by identity.
+	 * 
+	 * @param shapeIsClosed
+	 * @return
+	 */
+	public Signature getSignature(boolean shapeIsClosed) {
+		return shapeIsClosed ? closedSignature : openSignature;
+	}
+	
+	/** The triple constraints that have the predicate of the triple and whose direction is compatible with the position of the focus node in the triple.
+	 * 
+	 * @param focusNode
+	 * @param triple a triple of the neighbourhood of the focus node
+	 * @return the candidate triple constraints, that must not be modified
+	 */
+	public List<TripleConstraint> getCandidates(RDFTerm focusNode, Triple triple) {
+		int id = predicates.lookup(triple.getPredicate());
+		if (id == TermDictionary.UNKNOWN)
+			return Collections.emptyList();
+		List<TripleConstraint> forward = Collections.emptyList();
+		List<TripleConstraint> inverse = Collections.emptyList();
+		if (! forwardIndex.get(id).isEmpty() && TermDictionary.sameTerm(triple.getSubject(), focusNode))
+			forward = forwardIndex.get(id);
+		if (! inverseIndex.get(id).isEmpty() && TermDictionary.sameTerm(triple.getObject(), focusNode))
+			inverse = inverseIndex.get(id);
+		if (inverse.isEmpty())
+			return forward;
+		if (forward.isEmpty())
+			return inverse;
+		// the focus node is both the subject and the object of the triple
+		List<TripleConstraint> result = new ArrayList<>(forward.size()+inverse.size());
+		result.addAll(forward);
+		result.addAll(inverse);
+		result.sort((tc1, tc2) -> positions.get(tc1) - positions.get(tc2));
+		return result;
+	}
+	
+	
+	/** A set of forward predicates and a set of inverse predicates, interned so that equal signatures are the same object. */
+	public static final class Signature {
+		/** The signatures in use, weakly referenced so that those of the indexes no longer used are collected. */
+		private static final Map<Signature,WeakReference<Signature>> signatures = new WeakHashMap<>();
+		
+		/** null when all the outgoing triples are retrieved. */
+		private final Set<IRI> forwardPredicates;
+		private final Set<IRI> inversePredicates;
+		private final int hash;
+		
+		private Signature(Set<IRI> forwardPredicates, Set<IRI> inversePredicates) {
+			this.forwardPredicates = forwardPredicates;
+			this.inversePredicates = inversePredicates;
+			this.hash = Objects.hash(forwardPredicates, inversePredicates);
+		}
+		
+		private static synchronized Signature intern(Signature signature) {
+			WeakReference<Signature> reference = signatures.get(signature);
+			Signature result = reference == null ? null : reference.get();
+			if (result == null) {
+				signatures.put(signature, new WeakReference<>(signature));
+				result = signature;
+			}
+			return result;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Signature))
+				return false;
+			Signature other = (Signature) obj;
+			return hash == other.hash && Objects.equals(forwardPredicates, other.forwardPredicates) && inversePredicates.equals(other.inversePredicates);
+		}
+	}
+}
@@ -41,27 +41,33 @@ public class TypingForValidation implements Typing {
 
 	
 	public TypingForValidation() {
-		status = new HashMap<>();
-		nodes = new HashMap<>();
-		labels = new HashMap<>();
+		this(new HashMap<>(), new HashMap<>(), new HashMap<>());
+	}
+	
+	/** Allows subclasses to provide the map implementations used to store the typing. */
+	protected TypingForValidation(Map<Pair<RDFTerm,Label>,Status> status, Map<Label,Set<RDFTerm>> nodes, Map<RDFTerm,Set<Label>> labels) {
+		this.status = status;
+		this.nodes = nodes;
+		this.labels = labels;
 	}
 
 	public void setStatus(RDFTerm node, Label label,Status status) {
 		this.status.put(new Pair<RDFTerm,Label>(node,label), status);
-		if (!nodes.containsKey(label))
-			nodes.put(label, new HashSet<>());
-		nodes.get(label).add(node);
-		if (!labels.containsKey(node))
-			labels.put(node, new HashSet<>());
-		labels.get(node).add(label);
+		nodes.computeIfAbsent(label, k -> createSet()).add(node);
+		labels.computeIfAbsent(node, k -> createSet()).add(label);
+	}
+	
+	/** The set implementation used for the indexes by node and by label. */
+	protected <T> Set<T> createSet() {
+		return new HashSet<>();
 	}
 	
 	@Override
 	public Status getStatus(RDFTerm node, Label label) {
-		Pair<RDFTerm, Label> key = new Pair<>(node,label);
-		if (status.containsKey(key))
-			return status.get(key);
-		return Status.NOTCOMPUTED;
+		Status result = status.get(new Pair<>(node,label));
+		if (result == null)
+			return Status.NOTCOMPUTED;
+		return result;
 	}
 	
 	/**
@@ -73,17 +79,11 @@ public class TypingForValidation implements Typing {
 	}
 	
 	public boolean isConformant(RDFTerm node, Label label) {
-		Pair<RDFTerm, Label> key = new Pair<>(node,label);
-		if (status.containsKey(key))
-			return status.get(key).equals(Status.CONFORMANT);
-		return false;
+		return status.get(new Pair<>(node,label)) == Status.CONFORMANT;
 	}
 	
 	public boolean isNonConformant(RDFTerm node, Label label) {
-		Pair<RDFTerm, Label> key = new Pair<>(node,label);
-		if (status.containsKey(key))
-			return !status.get(key).equals(Status.CONFORMANT);
-		return true;
+		return status.get(new Pair<>(node,label)) != Status.CONFORMANT;
 	}
 		
 	public Set<Label> getShapesLabel(RDFTerm node){
@@ -17,15 +17,19 @@
 package fr.inria.lille.shexjava.validation;
 
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
 
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
 import fr.inria.lille.shexjava.util.CommonGraph;
+import fr.inria.lille.shexjava.util.Pair;
 
 /** An implementation of {@link ValidationAlgorithm} that offers some common utilities.
  * 
@@ -36,24 +40,89 @@ public abstract class ValidationAlgorithmAbstract implements ValidationAlgorithm
 	
 	protected Graph graph;
 	protected Set<RDFTerm> allGraphNodes;
+	/** Estimation of the number of triples of a node, used to choose how the neighbourhoods are retrieved. */
+	protected long expectedDegree;
 	protected ShexSchema schema;
 	
 	
+	protected CompiledSchema compiledSchema;
 	protected DynamicCollectorOfTripleConstraints collectorTC;
 	
 	private Set<MatchingCollector> matchingObservers;
+	private NeighbourhoodCache neighbourhoodCache;
 
 	
 	public ValidationAlgorithmAbstract(ShexSchema schema, Graph graph) {
+		this(schema, graph, CommonGraph.getAllNodes(graph));
+	}
+	
+	private ValidationAlgorithmAbstract(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes) {
+		this(schema, graph, allGraphNodes, CommonGraph.getAverageDegree(graph, allGraphNodes.size()));
+	}
+	
+	/** Uses the nodes of the graph and the expected degree already computed, so that several algorithms on the same graph share them.
+	 * 
+	 * @param schema
+	 * @param graph
+	 * @param allGraphNodes the nodes of the graph, as computed by {@link CommonGraph#getAllNodes(Graph)}, that are not modified by the algorithm
+	 * @param expectedDegree the expected degree of the nodes, as computed by {@link CommonGraph#getAverageDegree(Graph, int)}
+	 */
+	protected ValidationAlgorithmAbstract(ShexSchema schema, Graph graph, Set<RDFTerm> allGraphNodes, long expectedDegree) {
 		this.graph = graph;
 		this.schema = schema;
-		this.allGraphNodes = CommonGraph.getAllNodes(graph);
+		this.allGraphNodes = allGraphNodes;
+		this.expectedDegree = expectedDegree;
 		resetTyping();
 	
-		this.collectorTC = new DynamicCollectorOfTripleConstraints();
+		this.compiledSchema = schema.getCompiledSchema();
+		this.collectorTC = compiledSchema.getCollectorOfTripleConstraints();
 		this.matchingObservers = new HashSet<>();
 	}	
 	
+	/** Validates every pair (node, label) of the collection, as a shape map.
+	 * The typing of the algorithm is not reset between two pairs, so the results that the algorithm memorizes are reused. 
+	 * 
+	 * @param pairs the pairs to validate
+	 * @return a typing that contains the status of every given pair
+	 * @exception IllegalArgumentException if a label does not belong to the schema
+	 */
+	public Typing validateAll(Collection<Pair<RDFTerm,Label>> pairs) {
+		TypingForValidation result = new TypingForValidation();
+		for (Pair<RDFTerm,Label> nl : pairs) {
+			if (validate(nl.one, nl.two))
+				result.setStatus(nl.one, nl.two, Status.CONFORMANT);
+			else
+				result.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+		}
+		return result;
+	}
+	
+	/** Uses the given cache to retrieve the neighbourhoods of the nodes, or retrieves them from the graph every time if the cache is null.
+	 * The cache must be cleared by the caller when the graph is modified.
+	 * 
+	 * @param cache
+	 */
+	public void setNeighbourhoodCache(NeighbourhoodCache cache) {
+		this.neighbourhoodCache = cache;
+	}
+	
+	public NeighbourhoodCache getNeighbourhoodCache() {
+		return neighbourhoodCache;
+	}
+	
+	/** Select the neighbourhood that must be matched for a shape whose triple constraints are indexed by the given index, using the neighbourhood cache if there is one.
+	 * 
+	 * @param node
+	 * @param index
+	 * @param shapeIsClosed
+	 * @return the neighbourhood, that must not be modified
+	 */
+	protected List<Triple> getMatchableNeighbourhood(RDFTerm node, TripleConstraintIndex index, boolean shapeIsClosed) {
+		if (neighbourhoodCache == null)
+			return ValidationUtils.getMatchableNeighbourhood(graph, node, index, shapeIsClosed, expectedDegree);
+		return neighbourhoodCache.getMatchableNeighbourhood(graph, node, index, shapeIsClosed, expectedDegree);
+	}
+	
 	// ---------------------------------------------------------------------------------
 	// Observers related
 	// ---------------------------------------------------------------------------------	
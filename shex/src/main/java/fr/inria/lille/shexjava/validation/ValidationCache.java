@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import org.apache.commons.rdf.api.RDFTerm;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** A bounded cache of final validation results that can be kept between successive calls to {@link ValidationAlgorithm#validate(RDFTerm, Label)}.
+ * 
+ * The cached statuses are valid only for the graph and the schema they were computed with: 
+ * the cache must be cleared with {@link #clear()} when the graph is modified, and must not be shared between validations of different graphs or schemas.
+ * When the cache is full, an entry is evicted according to the {@link EvictionPolicy}.
+ * The methods are synchronized, so a cache can be shared between several validation algorithms on the same graph. 
+ * 
+ * @author Jérémie Dusart
+ */
+public class ValidationCache {
+	/** Rough estimation in bytes of the heap used by an entry, excluding the node itself which belongs to the graph. */
+	public static final int ESTIMATED_ENTRY_SIZE = 120;
+
+	public enum EvictionPolicy {
+		/** Evicts the least recently used entry. */
+		LRU,
+		/** Evicts the least frequently used entry, the least recently used one among the entries with the same frequency. */
+		LFU
+	}
+	
+	private final int maxEntries;
+	private final EvictionPolicy policy;
+	
+	/** Used by the LRU policy, in access order. */
+	private LinkedHashMap<Pair<RDFTerm,Label>,Status> lruEntries;
+	/** Used by the LFU policy. */
+	private Map<Pair<RDFTerm,Label>,LfuEntry> lfuEntries;
+	private Map<Integer,LinkedHashSet<Pair<RDFTerm,Label>>> lfuFrequencies;
+	private int minFrequency;
+	
+	private long hits, misses, evictions;
+	
+	/**
+	 * @param maxEntries the maximal number of entries, must be positive
+	 * @param policy
+	 */
+	public ValidationCache(int maxEntries, EvictionPolicy policy) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("Invalid argument value: maxEntries must be positive.");
+		if (policy == null)
+			throw new IllegalArgumentException("Invalid argument value: policy cannot be null.");
+		this.maxEntries = maxEntries;
+		this.policy = policy;
+		clear();
+	}
+	
+	/** Creates a cache whose number of entries is bounded so that it uses approximately at most the given number of bytes.
+	 * 
+	 * @param maxBytes
+	 * @param policy
+	 * @return
+	 */
+	public static ValidationCache withMaxHeapSize(long maxBytes, EvictionPolicy policy) {
+		return new ValidationCache((int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / ESTIMATED_ENTRY_SIZE)), policy);
+	}
+	
+	/** Returns the cached status of the pair, or {@link Status#NOTCOMPUTED} if it is not in the cache. */
+	public synchronized Status get(RDFTerm node, Label label) {
+		Pair<RDFTerm,Label> key = new Pair<>(node, label);
+		Status result = null;
+		if (policy == EvictionPolicy.LRU) {
+			result = lruEntries.get(key);
+		} else {
+			LfuEntry entry = lfuEntries.get(key);
+			if (entry != null) {
+				incrementFrequency(key, entry);
+				result = entry.status;
+			}
+		}
+		if (result == null) {
+			misses++;
+			return Status.NOTCOMPUTED;
+		}
+		hits++;
+		return result;
+	}
+	
+	/** Stores the final status of the pair, that must be {@link Status#CONFORMANT} or {@link Status#NONCONFORMANT}. */
+	public synchronized void put(RDFTerm node, Label label, Status status) {
+		if (status == Status.NOTCOMPUTED)
+			throw new IllegalArgumentException("Invalid argument value: the status of a cached result cannot be NOTCOMPUTED.");
+		Pair<RDFTerm,Label> key = new Pair<>(node, label);
+		if (policy == EvictionPolicy.LRU) {
+			lruEntries.put(key, status);
+			return;
+		}
+		LfuEntry entry = lfuEntries.get(key);
+		if (entry != null) {
+			entry.status = status;
+			incrementFrequency(key, entry);
+			return;
+		}
+		if (lfuEntries.size() >= maxEntries) {
+			Iterator<Pair<RDFTerm,Label>> it = lfuFrequencies.get(minFrequency).iterator();
+			Pair<RDFTerm,Label> evicted = it.next();
+			it.remove();
+			if (! it.hasNext())
+				lfuFrequencies.remove(minFrequency);
+			lfuEntries.remove(evicted);
+			evictions++;
+		}
+		lfuEntries.put(key, new LfuEntry(status));
+		lfuFrequencies.computeIfAbsent(1, k -> new LinkedHashSet<>()).add(key);
+		minFrequency = 1;
+	}
+	
+	private void incrementFrequency(Pair<RDFTerm,Label> key, LfuEntry entry) {
+		LinkedHashSet<Pair<RDFTerm,Label>> keys = lfuFrequencies.get(entry.frequency);
+		keys.remove(key);
+		if (keys.isEmpty()) {
+			lfuFrequencies.remove(entry.frequency);
+			if (minFrequency == entry.frequency)
+				minFrequency++;
+		}
+		entry.frequency++;
+		lfuFrequencies.computeIfAbsent(entry.frequency, k -> new LinkedHashSet<>()).add(key);
+	}
+	
+	/** Removes all the entries, the statistics are kept. */
+	public synchronized void clear() {
+		if (policy == EvictionPolicy.LRU) {
+			lruEntries = new LinkedHashMap<Pair<RDFTerm,Label>,Status>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Pair<RDFTerm,Label>,Status> eldest) {
+					if (size() > maxEntries) {
+						evictions++;
+						return true;
+					}
+					return false;
+				}
+			};
+		} else {
+			lfuEntries = new HashMap<>();
+			lfuFrequencies = new HashMap<>();
+			minFrequency = 0;
+		}
+	}
+	
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+	
+	public synchronized int size() {
+		return policy == EvictionPolicy.LRU ? lruEntries.size() : lfuEntries.size();
+	}
+	
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	public EvictionPolicy getEvictionPolicy() {
+		return policy;
+	}
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	/** The ratio of the lookups that found a cached status, 0 if there was no lookup. */
+	public synchronized double getHitRatio() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return "ValidationCache["+policy+", size="+size()+"/"+maxEntries+", hits="+hits+", misses="+misses+", evictions="+evictions+"]";
+	}
+	
+	
+	private static class LfuEntry {
+		private Status status;
+		private int frequency = 1;
+		
+		LfuEntry(Status status) {
+			this.status = status;
+		}
+	}
+}
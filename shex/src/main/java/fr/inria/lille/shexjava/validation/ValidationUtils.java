@@ -2,7 +2,6 @@ package fr.inria.lille.shexjava.validation;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +15,7 @@ import org.apache.commons.rdf.api.Triple;
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 import fr.inria.lille.shexjava.util.CommonGraph;
+import fr.inria.lille.shexjava.util.TermDictionary;
 
 /** Contains static methods useful in the different validation alogorithms.
  * 
@@ -40,26 +40,61 @@ public class ValidationUtils {
 	 * @return
 	 */
 	public static List<Triple> getMatchableNeighbourhood(Graph graph, RDFTerm node, List<TripleConstraint> tripleConstraints, boolean shapeIsClosed) {		
-		Set<IRI> inversePredicate = new HashSet<>();
-		Set<IRI> forwardPredicate = new HashSet<>();
-		for (TripleConstraint tc : tripleConstraints)
-			if (tc.getProperty().isForward())
-				forwardPredicate.add(tc.getProperty().getIri());
-			else
-				inversePredicate.add(tc.getProperty().getIri());
-
-		ArrayList<Triple> neighbourhood = new ArrayList<>();
-		neighbourhood.addAll(CommonGraph.getInNeighboursWithPredicate(graph, node, inversePredicate));
+		return getMatchableNeighbourhood(graph, node, new TripleConstraintIndex(tripleConstraints), shapeIsClosed);
+	}
+	
+	/** Select the neighborhood that must be matched for the given shape, using the predicates of an index of its triple constraints.
+	 * 
+	 * @param node
+	 * @param index
+	 * @param shapeIsClosed
+	 * @return
+	 */
+	public static List<Triple> getMatchableNeighbourhood(Graph graph, RDFTerm node, TripleConstraintIndex index, boolean shapeIsClosed) {		
+		return getMatchableNeighbourhood(graph, node, index, shapeIsClosed, CommonGraph.UNKNOWN_DEGREE);
+	}
+	
+	/** Select the neighborhood that must be matched for the given shape, using the predicates of an index of its triple constraints.
+	 * The expected degree of the node is used to choose how the triples are retrieved from the graph.
+	 * 
+	 * @param node
+	 * @param index
+	 * @param shapeIsClosed
+	 * @param expectedDegree see {@link CommonGraph#getOutNeighboursWithPredicate(Graph, RDFTerm, Set, long)}
+	 * @return
+	 */
+	public static List<Triple> getMatchableNeighbourhood(Graph graph, RDFTerm node, TripleConstraintIndex index, boolean shapeIsClosed, long expectedDegree) {		
+		List<Triple> in = CommonGraph.getInNeighboursWithPredicate(graph, node, index.getInversePredicates(), expectedDegree);
+		List<Triple> out;
 		if (shapeIsClosed)
-			neighbourhood.addAll(CommonGraph.getOutNeighbours(graph, node));
+			out = CommonGraph.getOutNeighbours(graph, node);
 		else
-			neighbourhood.addAll(CommonGraph.getOutNeighboursWithPredicate(graph, node,forwardPredicate));
-		
+			out = CommonGraph.getOutNeighboursWithPredicate(graph, node, index.getForwardPredicates(), expectedDegree);
+		if (in.isEmpty() && out instanceof ArrayList)
+			return out;
+		ArrayList<Triple> neighbourhood = new ArrayList<>(in.size() + out.size());
+		neighbourhood.addAll(in);
+		neighbourhood.addAll(out);
 		return neighbourhood;
 	}
 	
 	public static PreMatching computePreMatching(RDFTerm focusNode, List<Triple> neighbourhood, 
 							List<TripleConstraint> tripleConstraints, Set<IRI> extraProperties, Matcher matcher) {
+		return computePreMatching(focusNode, neighbourhood, new TripleConstraintIndex(tripleConstraints), extraProperties, matcher);
+	}
+	
+	/** Computes the pre-matching by testing every triple only against the triple constraints of the index that have its predicate and direction. 
+	 * The matcher must not match a triple with a triple constraint that has another predicate.
+	 * 
+	 * @param focusNode
+	 * @param neighbourhood
+	 * @param index
+	 * @param extraProperties
+	 * @param matcher
+	 * @return
+	 */
+	public static PreMatching computePreMatching(RDFTerm focusNode, List<Triple> neighbourhood, 
+							TripleConstraintIndex index, Set<IRI> extraProperties, Matcher matcher) {
 		
 		LinkedHashMap<Triple,List<TripleConstraint>> matchingTriplesMap = new LinkedHashMap<>(neighbourhood.size());
 		ArrayList<Triple> matchedToExtraTriples = new ArrayList<>();
@@ -67,7 +102,7 @@ public class ValidationUtils {
 
 		for (Triple triple: neighbourhood) {
 			ArrayList<TripleConstraint> matching = new ArrayList<>();
-			for (TripleConstraint tc: tripleConstraints) {
+			for (TripleConstraint tc: index.getCandidates(focusNode, triple)) {
 				if (matcher.apply(focusNode, triple, tc)) {
 					matching.add(tc);
 				}
@@ -118,11 +153,11 @@ public class ValidationUtils {
 	private static Matcher predicateOnlyMatcher = new Matcher() {
 		@Override
 		public boolean apply(RDFTerm focusNode, Triple triple, TripleConstraint tc) {
-			if (tc.getProperty().isForward() && triple.getSubject().ntriplesString().equals(focusNode.ntriplesString())) {
-				return tc.getProperty().getIri().ntriplesString().equals(triple.getPredicate().ntriplesString());
+			if (tc.getProperty().isForward() && TermDictionary.sameTerm(triple.getSubject(), focusNode)) {
+				return TermDictionary.sameTerm(tc.getProperty().getIri(), triple.getPredicate());
 			}
-			if (!tc.getProperty().isForward() && triple.getObject().ntriplesString().equals(focusNode.ntriplesString()))
-				return tc.getProperty().getIri().ntriplesString().equals(triple.getPredicate().ntriplesString());
+			if (!tc.getProperty().isForward() && TermDictionary.sameTerm(triple.getObject(), focusNode))
+				return TermDictionary.sameTerm(tc.getProperty().getIri(), triple.getPredicate());
 			return false;
 		}
 	};
@@ -136,11 +171,11 @@ public class ValidationUtils {
 		
 		@Override
 		public boolean apply(RDFTerm focusNode, Triple triple, TripleConstraint tc) {
-			if (tc.getProperty().isForward() && triple.getSubject().ntriplesString().equals(focusNode.ntriplesString()))
-				if (tc.getProperty().getIri().ntriplesString().equals(triple.getPredicate().ntriplesString())) 
+			if (tc.getProperty().isForward() && TermDictionary.sameTerm(triple.getSubject(), focusNode))
+				if (TermDictionary.sameTerm(tc.getProperty().getIri(), triple.getPredicate())) 
 					return shapeMap.isConformant(triple.getObject(), tc.getShapeExpr().getId());
-			if (!tc.getProperty().isForward() && triple.getObject().ntriplesString().equals(focusNode.ntriplesString()))
-				if (tc.getProperty().getIri().ntriplesString().equals(triple.getPredicate().ntriplesString())) 
+			if (!tc.getProperty().isForward() && TermDictionary.sameTerm(triple.getObject(), focusNode))
+				if (TermDictionary.sameTerm(tc.getProperty().getIri(), triple.getPredicate())) 
 					return shapeMap.isConformant(triple.getSubject(), tc.getShapeExpr().getId());
 			return false;
 		}
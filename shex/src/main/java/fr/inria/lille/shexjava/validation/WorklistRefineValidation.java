@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExternal;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Implements the Refinement validation algorithm with a worklist.
+ *
+ * Instead of checking again all the remaining pairs (node, label) of a stratum until nothing changes, the pairs are checked once,
+ * and a pair is checked again only if the status of some pair that its matching depends on became {@link Status#NONCONFORMANT}.
+ * The dependencies are collected from the pre-matching of the neighbourhood that uses only the predicates.
+ * The constructed {@link Typing} is the same as the one constructed by {@link RefineValidation}.
+ *
+ * @author Jérémie Dusart
+ */
+public class WorklistRefineValidation extends RefineValidation {
+	/** With every pair associates the pairs of the current stratum whose matching used its status. */
+	private Map<Pair<RDFTerm,Label>,Set<Pair<RDFTerm,Label>>> dependents;
+	/** With every shape expression label associates the shapes used to evaluate it without following a triple constraint. */
+	private Map<Label,Set<Label>> referencedShapes;
+	private Set<Label> currentStratum;
+
+	public WorklistRefineValidation(ShexSchema schema, Graph graph) {
+		super(schema, graph);
+	}
+
+	@Override
+	public void resetTyping() {
+		super.resetTyping();
+		this.dependents = new HashMap<>();
+		this.referencedShapes = new HashMap<>();
+	}
+
+	@Override
+	protected void refineStratum(int stratum) {
+		refine(addAllLabelsForStratum(stratum), schema.getStratification().get(stratum));
+	}
+	
+	/** Computes the greatest typing for the given pairs, which must be {@link Status#CONFORMANT} in the typing and have their label in the given stratum.
+	 * The pairs that their matchings depend on must be among the given pairs or already have their final status.
+	 */
+	protected void refine(Collection<Pair<RDFTerm, Label>> elements, Set<Label> stratum) {
+		currentStratum = stratum;
+		Deque<Pair<RDFTerm, Label>> worklist = new ArrayDeque<>(elements);
+		Set<Pair<RDFTerm, Label>> queued = new HashSet<>(elements);
+		while (! worklist.isEmpty()) {
+			Pair<RDFTerm, Label> nl = worklist.poll();
+			queued.remove(nl);
+			if (! satisfies(nl,true)) {
+				typing.setStatus(nl.one, nl.two, Status.NONCONFORMANT);
+				for (Pair<RDFTerm, Label> dep : dependents.getOrDefault(nl, Collections.emptySet()))
+					if (typing.isConformant(dep.one, dep.two) && queued.add(dep))
+						worklist.add(dep);
+			}
+		}
+		// The statuses of the stratum are final, no pair of the upper strata can be demoted because of them
+		dependents.clear();
+		currentStratum = null;
+	}
+
+	@Override
+	protected void preMatchingComputed(RDFTerm node, Shape shape, PreMatching preMatching) {
+		if (currentStratum == null)
+			return;
+		Pair<RDFTerm, Label> key = new Pair<>(node, shape.getId());
+		for (Entry<Triple,List<TripleConstraint>> entry:preMatching.getPreMatching().entrySet()) {
+			for (TripleConstraint tc:entry.getValue()) {
+				RDFTerm destNode = entry.getKey().getObject();
+				if (!tc.getProperty().isForward())
+					destNode = entry.getKey().getSubject();
+				for (Label label : getReferencedShapes(tc.getShapeExpr()))
+					if (currentStratum.contains(label))
+						dependents.computeIfAbsent(new Pair<>(destNode, label), k -> new HashSet<>()).add(key);
+			}
+		}
+	}
+
+	/** The labels of the shapes whose typing is used when evaluating the expression. */
+	protected Set<Label> getReferencedShapes(ShapeExpr expr) {
+		Set<Label> result = referencedShapes.get(expr.getId());
+		if (result == null) {
+			CollectReferencedShapes collector = new CollectReferencedShapes();
+			expr.accept(collector);
+			result = collector.getResult();
+			referencedShapes.put(expr.getId(), result);
+		}
+		return result;
+	}
+
+
+	class CollectReferencedShapes extends ShapeExpressionVisitor<Set<Label>> {
+		private Set<Label> result = new HashSet<>();
+
+		@Override
+		public Set<Label> getResult() {
+			return result;
+		}
+
+		@Override
+		public void visitShape(Shape expr, Object... arguments) {
+			result.add(expr.getId());
+		}
+
+		@Override
+		public void visitNodeConstraint(NodeConstraint expr, Object... arguments) {
+			// Nothing to do
+		}
+
+		@Override
+		public void visitShapeExprRef(ShapeExprRef shapeRef, Object[] arguments) {
+			shapeRef.getShapeDefinition().accept(this, arguments);
+		}
+
+		@Override
+		public void visitShapeExternal(ShapeExternal shapeExt, Object[] arguments) {
+			// Nothing to do
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.Pair;
+import fr.inria.lille.shexjava.validation.BatchValidation;
+import fr.inria.lille.shexjava.validation.RecursiveValidationWithMemorization;
+
+/** Measures the throughput of {@link BatchValidation} with an increasing number of threads.
+ * Every node of a set of independent short chains is validated against the shape of the chain.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.BatchValidationBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class BatchValidationBenchmark {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static int NB_CHAINS = 2000;
+	private final static int CHAIN_LENGTH = 20;
+	
+	public static void main(String[] args) throws Exception {
+		Path schemaFile = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schemaFile);
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		
+		Graph graph = (new RDF4J()).asGraph(new LinkedHashModel());
+		List<Pair<RDFTerm,Label>> pairs = new ArrayList<>();
+		for (int c = 0; c < NB_CHAINS; c++) {
+			for (int i = 0; i < CHAIN_LENGTH; i++) {
+				BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/c"+c+"n"+i);
+				if (i < CHAIN_LENGTH-1)
+					graph.add(n, rdfFactory.createIRI("http://a.example/a"), rdfFactory.createIRI("http://a.example/c"+c+"n"+(i+1)));
+				graph.add(n, rdfFactory.createIRI("http://a.example/c"), rdfFactory.createIRI("http://a.example/cv"));
+				pairs.add(new Pair<>(n, label));
+			}
+		}
+		
+		System.out.println(String.format("%8s %10s %12s %15s", "threads", "pairs", "ms", "pairs/s"));
+		for (int nbThreads : new int[] {1, 2, 4, 8}) {
+			BatchValidation validation = new BatchValidation(schema, graph, RecursiveValidationWithMemorization::new, new ForkJoinPool(nbThreads));
+			validation.validateAll(pairs);
+			System.out.println(String.format("%8d %10d %12d %15.0f", nbThreads, validation.getNbValidatedPairs(), validation.getElapsedTime() / 1000000, validation.getThroughput()));
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+import fr.inria.lille.shexjava.util.CommonGraph;
+import fr.inria.lille.shexjava.util.CompactGraph;
+
+/** Compares the heap used by a {@link CompactGraph} and by a RDF4J {@link LinkedHashModel} that contain the same triples, 
+ * and the time to retrieve the neighbourhoods of all the nodes.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.CompactGraphBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class CompactGraphBenchmark {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static int NB_NODES = 50000;
+	private final static int DEGREE = 10;
+	private final static int NB_PREDICATES = 20;
+	private final static int NB_RUNS = 5;
+	
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		IRI[] nodes = new IRI[NB_NODES];
+		for (int i = 0; i < NB_NODES; i++)
+			nodes[i] = rdfFactory.createIRI("http://a.example/n"+i);
+		IRI[] predicates = new IRI[NB_PREDICATES];
+		for (int i = 0; i < NB_PREDICATES; i++)
+			predicates[i] = rdfFactory.createIRI("http://a.example/p"+i);
+		Set<IRI> shapePredicates = new HashSet<>();
+		for (int i = 0; i < NB_PREDICATES/2; i++)
+			shapePredicates.add(predicates[i]);
+		
+		long before = usedHeap();
+		Graph model = rdfFactory.asGraph(new LinkedHashModel());
+		for (IRI node : nodes)
+			for (int d = 0; d < DEGREE; d++)
+				model.add(node, predicates[random.nextInt(NB_PREDICATES)], random.nextInt(4) == 0 ? rdfFactory.createLiteral("v"+random.nextInt(NB_NODES)) : nodes[random.nextInt(NB_NODES)]);
+		long modelHeap = usedHeap() - before;
+		
+		double modelTime = measure(model, shapePredicates);
+		long modelSize = model.size();
+		
+		CompactGraph.Builder builder = new CompactGraph.Builder();
+		model.iterate().forEach(builder::add);
+		Graph compact = builder.build();
+		// The literals are now referenced only by the compact graph
+		builder = null;
+		model = null;
+		long compactHeap = usedHeap() - before;
+		
+		System.out.println(String.format("%10s %10s %12s %12s", "graph", "triples", "heap MB", "scan ms"));
+		System.out.println(String.format("%10s %10d %12.1f %12.1f", "RDF4J", modelSize, modelHeap / 1e6, modelTime));
+		System.out.println(String.format("%10s %10d %12.1f %12.1f", "compact", compact.size(), compactHeap / 1e6, measure(compact, shapePredicates)));
+	}
+	
+	private static double measure(Graph graph, Set<IRI> predicates) {
+		Set<RDFTerm> nodes = CommonGraph.getAllNodes(graph);
+		long expectedDegree = CommonGraph.getAverageDegree(graph, nodes.size());
+		long total = 0;
+		long start = 0;
+		// the first run is a warm up
+		for (int r = 0; r <= NB_RUNS; r++) {
+			if (r == 1)
+				start = System.nanoTime();
+			for (RDFTerm node : nodes) {
+				total += CommonGraph.getOutNeighboursWithPredicate(graph, node, predicates, expectedDegree).size();
+				total += CommonGraph.getInNeighboursWithPredicate(graph, node, predicates, expectedDegree).size();
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (total < 0)
+			System.out.println(total);
+		return elapsed / 1e6 / NB_RUNS;
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Literal;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.Types;
+
+import fr.inria.lille.shexjava.schema.concrsynt.FacetNumericConstraint;
+
+/** Measures the time of {@link FacetNumericConstraint#contains(org.apache.commons.rdf.api.RDFTerm)} on typical numeric facets, 
+ * the values being in the range of the facet or not with the same probability.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.FacetNumericBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class FacetNumericBenchmark {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static int NB_VALUES = 1000;
+	private final static int NB_RUNS = 5;
+	private final static int NB_EVALUATIONS = 2000;
+	
+	public static void main(String[] args) {
+		System.out.println(String.format("%-36s %12s", "facet", "ns/check"));
+		
+		FacetNumericConstraint age = new FacetNumericConstraint();
+		age.setMinincl(new BigDecimal("0"));
+		age.setMaxexcl(new BigDecimal("150"));
+		print("integer [0, 150[", age, integers(Types.XSD_INTEGER, 300));
+		print("int [0, 150[", age, integers(Types.XSD_INT, 300));
+		
+		FacetNumericConstraint price = new FacetNumericConstraint();
+		price.setMinexcl(new BigDecimal("0"));
+		price.setMaxincl(new BigDecimal("999.99"));
+		print("decimal ]0, 999.99]", price, decimals(Types.XSD_DECIMAL, 2000, 2));
+		
+		FacetNumericConstraint latitude = new FacetNumericConstraint();
+		latitude.setMinincl(new BigDecimal("-90"));
+		latitude.setMaxincl(new BigDecimal("90"));
+		print("double [-90, 90]", latitude, decimals(Types.XSD_DOUBLE, 180, 6));
+		
+		FacetNumericConstraint amount = new FacetNumericConstraint();
+		amount.setTotalDigits(8);
+		amount.setFractionDigits(2);
+		print("decimal totalDigits 8 fraction 2", amount, decimals(Types.XSD_DECIMAL, 2000000, 3));
+		
+		FacetNumericConstraint wide = new FacetNumericConstraint();
+		wide.setMinincl(new BigDecimal("0.12345678901234567890"));
+		print("decimal >= 0.1234567890123456789", wide, decimals(Types.XSD_DECIMAL, 1, 20));
+	}
+	
+	private static void print(String name, FacetNumericConstraint facet, Literal[] values) {
+		System.out.println(String.format("%-36s %12.1f", name, measure(facet, values)));
+	}
+	
+	/** Integers in [-limit, limit]. */
+	private static Literal[] integers(IRI datatype, int limit) {
+		Random random = new Random(0);
+		Literal[] result = new Literal[NB_VALUES];
+		for (int i = 0; i < NB_VALUES; i++)
+			result[i] = rdfFactory.createLiteral(Integer.toString(random.nextInt(2 * limit + 1) - limit), datatype);
+		return result;
+	}
+	
+	/** Decimals in ]-limit, limit[ with the given number of fraction digits. */
+	private static Literal[] decimals(IRI datatype, int limit, int nbFractionDigits) {
+		Random random = new Random(0);
+		Literal[] result = new Literal[NB_VALUES];
+		for (int i = 0; i < NB_VALUES; i++) {
+			BigDecimal value = new BigDecimal((random.nextDouble() * 2 - 1) * limit).setScale(nbFractionDigits, BigDecimal.ROUND_HALF_EVEN);
+			result[i] = rdfFactory.createLiteral(value.toPlainString(), datatype);
+		}
+		return result;
+	}
+	
+	/** The average time of a check, in nanoseconds. */
+	private static double measure(FacetNumericConstraint facet, Literal[] values) {
+		long satisfied = 0;
+		long start = 0;
+		// the first run is a warm up
+		for (int r = 0; r <= NB_RUNS; r++) {
+			if (r == 1)
+				start = System.nanoTime();
+			for (int e = 0; e < NB_EVALUATIONS; e++)
+				for (Literal value : values)
+					if (facet.contains(value))
+						satisfied++;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (satisfied < 0)
+			System.out.println(satisfied);
+		return (double) elapsed / NB_RUNS / NB_EVALUATIONS / values.length;
+	}
+}
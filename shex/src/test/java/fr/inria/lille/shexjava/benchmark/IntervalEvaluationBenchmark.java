@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.rdf.rdf4j.RDF4J;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.validation.Bag;
+import fr.inria.lille.shexjava.validation.CompiledSchema;
+import fr.inria.lille.shexjava.validation.IntervalComputation;
+import fr.inria.lille.shexjava.validation.IntervalProgram;
+
+/** Compares the evaluation of bags with the {@link IntervalComputation} visitor and with the compiled {@link IntervalProgram}, on shapes of increasing size.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.IntervalEvaluationBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class IntervalEvaluationBenchmark {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static String[] SHAPES = {
+			"{ :a . ; :b . * ; :c . ? }",
+			"{ (:a . ; :b .){2,3} ; (:c . | :d .)+ ; :e . ? }",
+			"{ (:a . ; (:b . | :c . *))* ; (:d . ; :e . ?)+ ; :f . {2,5} ; :g . ; :h . ? ; (:i . | :j . | :k .)* }"
+	};
+	private final static int NB_BAGS = 1000;
+	private final static int NB_RUNS = 5;
+	private final static int NB_EVALUATIONS = 2000;
+	
+	public static void main(String[] args) throws Exception {
+		StringBuilder schemaText = new StringBuilder("PREFIX : <http://a.example/>\n");
+		for (int i = 0; i < SHAPES.length; i++)
+			schemaText.append(":S").append(i).append(' ').append(SHAPES[i]).append('\n');
+		Path schemaFile = Files.createTempFile("intervalbenchmark", ".shex");
+		Files.write(schemaFile, schemaText.toString().getBytes("UTF-8"));
+		ShexSchema schema = GenParser.parseSchema(rdfFactory, schemaFile);
+		Files.delete(schemaFile);
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		
+		System.out.println(String.format("%6s %6s %14s %14s", "shape", "TCs", "visitor ns", "program ns"));
+		for (int i = 0; i < SHAPES.length; i++) {
+			Shape shape = (Shape) schema.getShapeExprsMap().get(new Label(rdfFactory.createIRI("http://a.example/S"+i)));
+			TripleExpr tripleExpression = compiledSchema.getSORBETripleExpr(shape);
+			List<TripleConstraint> constraints = compiledSchema.getTCs(tripleExpression);
+			IntervalProgram program = compiledSchema.getIntervalProgram(tripleExpression);
+			Random random = new Random(0);
+			Bag[] bags = new Bag[NB_BAGS];
+			int[][] multiplicities = new int[NB_BAGS][];
+			for (int b = 0; b < NB_BAGS; b++) {
+				bags[b] = new Bag();
+				for (TripleConstraint tc : constraints) {
+					int mult = random.nextInt(3) == 0 ? 0 : random.nextInt(4);
+					for (int k = 0; k < mult; k++)
+						bags[b].increment(tc);
+				}
+				multiplicities[b] = program.getMultiplicities(bags[b]);
+			}
+			System.out.println(String.format("%6s %6d %14.1f %14.1f", "S"+i, constraints.size(), 
+					measureVisitor(tripleExpression, new IntervalComputation(compiledSchema.getCollectorOfTripleConstraints()), bags),
+					measureProgram(program, multiplicities)));
+		}
+	}
+	
+	/** The average time of an evaluation, in nanoseconds. */
+	private static double measureVisitor(TripleExpr tripleExpression, IntervalComputation intervalComputation, Bag[] bags) {
+		long satisfied = 0;
+		long start = 0;
+		// the first run is a warm up
+		for (int r = 0; r <= NB_RUNS; r++) {
+			if (r == 1)
+				start = System.nanoTime();
+			for (int e = 0; e < NB_EVALUATIONS; e++)
+				for (Bag bag : bags) {
+					tripleExpression.accept(intervalComputation, bag);
+					if (intervalComputation.getResult().contains(1))
+						satisfied++;
+				}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (satisfied < 0)
+			System.out.println(satisfied);
+		return (double) elapsed / NB_RUNS / NB_EVALUATIONS / bags.length;
+	}
+	
+	/** The average time of an evaluation, in nanoseconds. */
+	private static double measureProgram(IntervalProgram program, int[][] multiplicities) {
+		int[] registers = program.createRegisters();
+		long satisfied = 0;
+		long start = 0;
+		for (int r = 0; r <= NB_RUNS; r++) {
+			if (r == 1)
+				start = System.nanoTime();
+			for (int e = 0; e < NB_EVALUATIONS; e++)
+				for (int[] bag : multiplicities)
+					if (program.isSatisfied(bag, registers))
+						satisfied++;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (satisfied < 0)
+			System.out.println(satisfied);
+		return (double) elapsed / NB_RUNS / NB_EVALUATIONS / multiplicities.length;
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.SimpleRDF;
+
+import fr.inria.lille.shexjava.util.CommonGraph;
+
+/** Compares the retrieval of the neighbourhood of nodes with one lookup per predicate, with a single filtered scan, 
+ * and with the choice made by {@link CommonGraph} from the average degree of the graph, on the graph implementations of RDF4J, Jena and commons-rdf simple.
+ * The second table retrieves the neighbourhood of a hub node, whose degree is much larger than the average degree, for a shape with few predicates: 
+ * the full scan reads all the triples of the hub, whereas {@link CommonGraph} abandons its scan for the lookups.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.NeighbourhoodRetrievalBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class NeighbourhoodRetrievalBenchmark {
+	private final static int NB_NODES = 1000;
+	private final static int DEGREE = 20;
+	private final static int NB_GRAPH_PREDICATES = 80;
+	private final static int[] NB_SHAPE_PREDICATES = {2, 8, 30, 60};
+	private final static int NB_FOCUS_NODES = 200;
+	private final static int NB_RUNS = 5;
+	private final static int HUB_DEGREE = 200000;
+	private final static int NB_HUB_SHAPE_PREDICATES = 2;
+	
+	public static void main(String[] args) {
+		RDF[] factories = {new RDF4J(), new JenaRDF(), new SimpleRDF()};
+		System.out.println(String.format("%10s %6s %14s %14s %14s", "graph", "preds", "lookups ms", "scan ms", "adaptive ms"));
+		for (RDF factory : factories) {
+			Random random = new Random(0);
+			Graph graph = factory.createGraph();
+			IRI[] nodes = new IRI[NB_NODES];
+			for (int i = 0; i < NB_NODES; i++)
+				nodes[i] = factory.createIRI("http://a.example/n"+i);
+			IRI[] predicates = new IRI[NB_GRAPH_PREDICATES];
+			for (int i = 0; i < NB_GRAPH_PREDICATES; i++)
+				predicates[i] = factory.createIRI("http://a.example/p"+i);
+			for (IRI node : nodes)
+				for (int d = 0; d < DEGREE; d++)
+					graph.add(node, predicates[random.nextInt(NB_GRAPH_PREDICATES)], nodes[random.nextInt(NB_NODES)]);
+			long averageDegree = CommonGraph.getAverageDegree(graph, NB_NODES);
+			
+			for (int nbShapePredicates : NB_SHAPE_PREDICATES) {
+				Set<IRI> shapePredicates = new HashSet<>();
+				for (int i = 0; i < nbShapePredicates; i++)
+					shapePredicates.add(predicates[i]);
+				double lookups = measure(graph, nodes, shapePredicates, Long.MAX_VALUE);
+				double scan = measure(graph, nodes, shapePredicates, 0);
+				double adaptive = measure(graph, nodes, shapePredicates, averageDegree);
+				System.out.println(String.format("%10s %6d %14.2f %14.2f %14.2f", factory.getClass().getSimpleName(), nbShapePredicates, lookups, scan, adaptive));
+			}
+		}
+		
+		System.out.println(String.format("%10s %6s %14s %14s %14s", "graph", "preds", "hub lookups ms", "hub scan ms", "hub adapt. ms"));
+		for (RDF factory : factories) {
+			Random random = new Random(0);
+			Graph graph = factory.createGraph();
+			IRI hub = factory.createIRI("http://a.example/hub");
+			IRI[] predicates = new IRI[NB_GRAPH_PREDICATES];
+			for (int i = 0; i < NB_GRAPH_PREDICATES; i++)
+				predicates[i] = factory.createIRI("http://a.example/p"+i);
+			for (int i = 0; i < NB_NODES; i++) {
+				IRI node = factory.createIRI("http://a.example/n"+i);
+				for (int d = 0; d < DEGREE; d++)
+					graph.add(node, predicates[random.nextInt(NB_GRAPH_PREDICATES)], factory.createIRI("http://a.example/n"+random.nextInt(NB_NODES)));
+			}
+			for (int i = 0; i < HUB_DEGREE; i++) {
+				IRI node = factory.createIRI("http://a.example/h"+i);
+				graph.add(hub, predicates[random.nextInt(NB_GRAPH_PREDICATES)], node);
+				graph.add(node, predicates[random.nextInt(NB_GRAPH_PREDICATES)], hub);
+			}
+			long averageDegree = CommonGraph.getAverageDegree(graph, NB_NODES + HUB_DEGREE + 1);
+			
+			Set<IRI> shapePredicates = new HashSet<>();
+			for (int i = 0; i < NB_HUB_SHAPE_PREDICATES; i++)
+				shapePredicates.add(predicates[i]);
+			IRI[] hubs = {hub};
+			double lookups = measure(graph, hubs, shapePredicates, Long.MAX_VALUE);
+			double scan = measureFullScan(graph, hub, shapePredicates);
+			double adaptive = measure(graph, hubs, shapePredicates, averageDegree);
+			System.out.println(String.format("%10s %6d %14.2f %14.2f %14.2f", factory.getClass().getSimpleName(), NB_HUB_SHAPE_PREDICATES, lookups, scan, adaptive));
+		}
+	}
+	
+	/** The scan of all the triples of the node, as done when the degree of the node is not checked. */
+	private static double measureFullScan(Graph graph, IRI node, Set<IRI> predicates) {
+		long total = 0;
+		long start = 0;
+		for (int r = -1; r < NB_RUNS; r++) {
+			// the first run is a warm up
+			if (r == 0)
+				start = System.nanoTime();
+			total += graph.stream(node, null, null).filter(t -> predicates.contains(t.getPredicate())).count();
+			total += graph.stream(null, null, node).filter(t -> predicates.contains(t.getPredicate())).count();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (total < 0)
+			System.out.println(total);
+		return elapsed / 1e6 / NB_RUNS;
+	}
+	
+	private static double measure(Graph graph, IRI[] nodes, Set<IRI> predicates, long expectedDegree) {
+		long total = 0;
+		// warm up
+		retrieve(graph, nodes, predicates, expectedDegree);
+		long start = System.nanoTime();
+		for (int r = 0; r < NB_RUNS; r++)
+			total += retrieve(graph, nodes, predicates, expectedDegree);
+		long elapsed = System.nanoTime() - start;
+		if (total < 0)
+			System.out.println(total);
+		return elapsed / 1e6 / NB_RUNS;
+	}
+	
+	private static long retrieve(Graph graph, IRI[] nodes, Set<IRI> predicates, long expectedDegree) {
+		long total = 0;
+		for (int i = 0; i < Math.min(NB_FOCUS_NODES, nodes.length); i++) {
+			IRI node = nodes[i * Math.max(1, nodes.length / NB_FOCUS_NODES)];
+			total += CommonGraph.getOutNeighboursWithPredicate(graph, node, predicates, expectedDegree).size();
+			total += CommonGraph.getInNeighboursWithPredicate(graph, node, predicates, expectedDegree).size();
+		}
+		return total;
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.validation.RecursiveValidationWithMemorization;
+
+/** Measures {@link RecursiveValidationWithMemorization} on deep chains and cycles, where the hypothesis stack and the dependency graph grow with the length.
+ * The validation runs in a thread with a large stack as the recursion depth is proportional to the length.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.RecursiveMemorizationBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class RecursiveMemorizationBenchmark {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static int[] LENGTHS = {1000, 2500, 5000, 10000};
+	private final static int NB_RUNS = 5;
+	
+	public static void main(String[] args) throws Exception {
+		Thread thread = new Thread(null, () -> {
+			try {
+				run();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, "benchmark", 1L << 30);
+		thread.start();
+		thread.join();
+	}
+	
+	private static void run() throws Exception {
+		Path schemaFile = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schemaFile);
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		
+		System.out.println(String.format("%8s %8s %12s", "graph", "length", "ms/run"));
+		for (boolean cycle : new boolean[] {false, true}) {
+			for (int length : LENGTHS) {
+				Graph graph = (new RDF4J()).asGraph(new LinkedHashModel());
+				for (int i = 0; i < length; i++) {
+					BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/n"+i);
+					if (cycle || i < length-1)
+						graph.add(n, rdfFactory.createIRI("http://a.example/a"), rdfFactory.createIRI("http://a.example/n"+((i+1)%length)));
+					graph.add(n, rdfFactory.createIRI("http://a.example/c"), rdfFactory.createIRI("http://a.example/cv"));
+				}
+				BlankNodeOrIRI first = rdfFactory.createIRI("http://a.example/n0");
+				// warm up
+				new RecursiveValidationWithMemorization(schema, graph).validate(first, label);
+				long start = System.nanoTime();
+				for (int r = 0; r < NB_RUNS; r++)
+					new RecursiveValidationWithMemorization(schema, graph).validate(first, label);
+				long elapsed = System.nanoTime() - start;
+				System.out.println(String.format("%8s %8d %12.1f", cycle ? "cycle" : "chain", length, elapsed / 1e6 / NB_RUNS));
+			}
+		}
+	}
+}
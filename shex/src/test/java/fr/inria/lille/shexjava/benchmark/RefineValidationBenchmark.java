@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+import fr.inria.lille.shexjava.validation.WorklistRefineValidation;
+
+/** Compares the number of calls to matches() of {@link RefineValidation} and {@link WorklistRefineValidation} on chains of nodes.
+ * The last node of every chain is not conformant, which makes all the chain not conformant.
+ * 
+ * Run with: mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass="fr.inria.lille.shexjava.benchmark.RefineValidationBenchmark"
+ * 
+ * @author Jérémie Dusart
+ */
+public class RefineValidationBenchmark {
+	private final static RDF4J rdfFactory = new RDF4J();
+	
+	public static void main(String[] args) throws Exception {
+		Path schemaFile = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schemaFile);
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		
+		System.out.println(String.format("%8s %15s %15s %12s %12s", "nodes", "refine calls", "worklist calls", "refine ms", "worklist ms"));
+		for (int size : new int[] {250, 500, 1000, 2000}) {
+			Graph graph = createChain(size);
+			RDFTerm first = rdfFactory.createIRI("http://a.example/n0");
+			
+			CountingRefineValidation refine = new CountingRefineValidation(schema, graph);
+			long start = System.currentTimeMillis();
+			refine.validate(first, label);
+			long refineTime = System.currentTimeMillis() - start;
+			
+			CountingWorklistRefineValidation worklist = new CountingWorklistRefineValidation(schema, graph);
+			start = System.currentTimeMillis();
+			worklist.validate(first, label);
+			long worklistTime = System.currentTimeMillis() - start;
+			
+			if (! refine.getTyping().getStatusMap().equals(worklist.getTyping().getStatusMap()))
+				throw new IllegalStateException("The typings are different.");
+			System.out.println(String.format("%8d %15d %15d %12d %12d", size, refine.nbCalls, worklist.nbCalls, refineTime, worklistTime));
+		}
+	}
+	
+	private static Graph createChain (int size) {
+		Graph graph = (new RDF4J()).asGraph(new LinkedHashModel());
+		for (int i = 0; i < size; i++) {
+			BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/n"+i);
+			graph.add(n, rdfFactory.createIRI("http://a.example/a"), rdfFactory.createIRI("http://a.example/n"+(i+1)));
+			graph.add(n, rdfFactory.createIRI("http://a.example/c"), rdfFactory.createIRI("http://a.example/cv"));
+		}
+		graph.add(rdfFactory.createIRI("http://a.example/n"+size), rdfFactory.createIRI("http://a.example/c"), rdfFactory.createLiteral("test"));
+		return graph;
+	}
+	
+	static class CountingRefineValidation extends RefineValidation {
+		long nbCalls = 0;
+		
+		public CountingRefineValidation(ShexSchema schema, Graph graph) {
+			super(schema, graph);
+		}
+		
+		@Override
+		protected boolean matches(RDFTerm node, Shape shape) {
+			nbCalls++;
+			return super.matches(node, shape);
+		}
+	}
+	
+	static class CountingWorklistRefineValidation extends WorklistRefineValidation {
+		long nbCalls = 0;
+		
+		public CountingWorklistRefineValidation(ShexSchema schema, Graph graph) {
+			super(schema, graph);
+		}
+		
+		@Override
+		protected boolean matches(RDFTerm node, Shape shape) {
+			nbCalls++;
+			return super.matches(node, shape);
+		}
+	}
+}
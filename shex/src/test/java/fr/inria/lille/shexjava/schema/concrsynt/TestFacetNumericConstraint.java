@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.concrsynt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Literal;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.apache.commons.rdf.simple.Types;
+import org.junit.Test;
+
+public class TestFacetNumericConstraint {
+	private final static RDF rdfFactory = new SimpleRDF();
+	private final static IRI[] DATATYPES = {Types.XSD_INTEGER, Types.XSD_DECIMAL, Types.XSD_DOUBLE, Types.XSD_FLOAT};
+	private final static String[] BOUNDS = {
+			null, "0", "10", "-5.5", "2.5", "1E+3", "0.1", "0.3", "0.30000000000000001", "3.14159265358979", 
+			"99999999999999999", "1E+20", "-1E+19", "1E-30", "100.000"
+	};
+	
+	@Test
+	public void testSameRangeAsExactComparison() {
+		Random random = new Random(0);
+		for (int k = 0; k < 200; k++) {
+			String[] bounds = new String[4];
+			FacetNumericConstraint facet = new FacetNumericConstraint();
+			for (int b = 0; b < 4; b++) {
+				bounds[b] = BOUNDS[random.nextInt(BOUNDS.length)];
+				if (bounds[b] == null)
+					continue;
+				BigDecimal bound = new BigDecimal(bounds[b]);
+				switch (b) {
+				case 0: facet.setMinincl(bound); break;
+				case 1: facet.setMinexcl(bound); break;
+				case 2: facet.setMaxincl(bound); break;
+				default: facet.setMaxexcl(bound);
+				}
+			}
+			for (int i = 0; i < 500; i++) {
+				String lexicalForm = randomNumber(random);
+				BigDecimal value = new BigDecimal(lexicalForm);
+				boolean expected = (bounds[0] == null || value.compareTo(new BigDecimal(bounds[0])) >= 0)
+						&& (bounds[1] == null || value.compareTo(new BigDecimal(bounds[1])) > 0)
+						&& (bounds[2] == null || value.compareTo(new BigDecimal(bounds[2])) <= 0)
+						&& (bounds[3] == null || value.compareTo(new BigDecimal(bounds[3])) < 0);
+				for (IRI datatype : DATATYPES) {
+					boolean valid = datatype.equals(Types.XSD_INTEGER) ? lexicalForm.matches("-?[0-9]+") 
+							: datatype.equals(Types.XSD_DECIMAL) ? lexicalForm.indexOf('E') < 0 : true;
+					assertEquals(facet+" "+lexicalForm+" "+datatype, valid && expected, facet.contains(rdfFactory.createLiteral(lexicalForm, datatype)));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testBoundsOnIntegers() {
+		FacetNumericConstraint facet = new FacetNumericConstraint();
+		facet.setMinexcl(new BigDecimal("2.5"));
+		facet.setMaxexcl(new BigDecimal("5"));
+		assertFalse(facet.contains(integer("2")));
+		assertTrue(facet.contains(integer("3")));
+		assertTrue(facet.contains(integer("4")));
+		assertFalse(facet.contains(integer("5")));
+		assertFalse(facet.contains(integer("12345678901234567890")));
+		
+		facet = new FacetNumericConstraint();
+		facet.setMinincl(new BigDecimal("1E+30"));
+		assertFalse(facet.contains(integer("999999999999999999")));
+		assertTrue(facet.contains(integer("1000000000000000000000000000000")));
+	}
+	
+	@Test
+	public void testBoundsCloseToDoubles() {
+		FacetNumericConstraint facet = new FacetNumericConstraint();
+		facet.setMaxexcl(new BigDecimal("0.30000000000000001"));
+		assertTrue(facet.contains(decimal("0.3")));
+		assertFalse(facet.contains(decimal("0.30000000000000001")));
+		
+		facet = new FacetNumericConstraint();
+		facet.setMinexcl(new BigDecimal("0.3"));
+		assertFalse(facet.contains(decimal("0.3")));
+		assertTrue(facet.contains(decimal("0.30000000000000001")));
+		assertTrue(facet.contains(rdfFactory.createLiteral("3.0000000000000001E-1", Types.XSD_DOUBLE)));
+	}
+	
+	@Test
+	public void testDigits() {
+		FacetNumericConstraint facet = new FacetNumericConstraint();
+		facet.setTotalDigits(4);
+		facet.setFractionDigits(2);
+		assertTrue(facet.contains(integer("1234")));
+		assertTrue(facet.contains(integer("001234")));
+		assertFalse(facet.contains(integer("12345")));
+		assertTrue(facet.contains(decimal("12.34")));
+		assertTrue(facet.contains(decimal("12.3400")));
+		// The canonical form of a xsd:decimal has at least one fraction digit
+		assertTrue(facet.contains(decimal("123")));
+		assertFalse(facet.contains(decimal("1234")));
+		assertFalse(facet.contains(decimal("1.234")));
+		assertFalse(facet.contains(decimal("123.45")));
+		assertFalse(facet.contains(rdfFactory.createLiteral("1.5", Types.XSD_DOUBLE)));
+	}
+	
+	@Test
+	public void testNotNumbers() {
+		FacetNumericConstraint facet = new FacetNumericConstraint();
+		facet.setMinincl(BigDecimal.ZERO);
+		assertFalse(facet.contains(rdfFactory.createLiteral("INF", Types.XSD_DOUBLE)));
+		assertFalse(facet.contains(rdfFactory.createLiteral("NaN", Types.XSD_DOUBLE)));
+		assertFalse(facet.contains(integer("1.5")));
+		assertFalse(facet.contains(rdfFactory.createLiteral("abc", Types.XSD_STRING)));
+		assertTrue(facet.contains(rdfFactory.createLiteral("5", Types.XSD_STRING)));
+		assertFalse(facet.contains(rdfFactory.createIRI("http://a.example/5")));
+	}
+	
+	private static Literal integer(String lexicalForm) {
+		return rdfFactory.createLiteral(lexicalForm, Types.XSD_INTEGER);
+	}
+	
+	private static Literal decimal(String lexicalForm) {
+		return rdfFactory.createLiteral(lexicalForm, Types.XSD_DECIMAL);
+	}
+	
+	/** Numbers of 1 to 20 significant digits around the bounds, possibly with a fractional part and an exponent. */
+	private static String randomNumber(Random random) {
+		StringBuilder result = new StringBuilder();
+		if (random.nextBoolean())
+			result.append('-');
+		int nbDigits = 1 + random.nextInt(random.nextBoolean() ? 4 : 20);
+		for (int i = 0; i < nbDigits; i++)
+			result.append(random.nextInt(4) == 0 ? '0' : (char) ('0' + random.nextInt(10)));
+		if (random.nextInt(3) == 0) {
+			result.append('.');
+			for (int i = random.nextInt(18); i >= 0; i--)
+				result.append(random.nextInt(3) == 0 ? '0' : random.nextInt(3) == 0 ? '9' : (char) ('0' + random.nextInt(10)));
+		}
+		if (random.nextInt(4) == 0)
+			result.append('E').append(random.nextInt(50) - 25);
+		return result.toString();
+	}
+}
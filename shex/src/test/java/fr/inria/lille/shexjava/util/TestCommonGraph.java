@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.Test;
+
+public class TestCommonGraph {
+	private final static RDF[] factories = new RDF[] {new RDF4J(), new JenaRDF(), new SimpleRDF()};
+	private final static int NB_PREDICATES = 12;
+
+	@Test
+	public void testScanAndLookupsRetrieveSameTriples() {
+		// The predicates of the shapes are not necessarily created by the factory of the graph
+		Set<IRI> predicates = new HashSet<>();
+		for (int i = 0; i < NB_PREDICATES; i += 2)
+			predicates.add(new RDF4J().createIRI("http://a.example/p"+i));
+		
+		for (RDF factory : factories) {
+			Graph graph = factory.createGraph();
+			IRI focus = factory.createIRI("http://a.example/focus");
+			for (int i = 0; i < NB_PREDICATES; i++) {
+				IRI p = factory.createIRI("http://a.example/p"+i);
+				IRI other = factory.createIRI("http://a.example/n"+i);
+				graph.add(focus, p, other);
+				graph.add(focus, p, factory.createLiteral("v"+i));
+				graph.add(other, p, focus);
+				graph.add(other, p, other);
+			}
+			
+			Set<String> scanOut = toStrings(CommonGraph.getOutNeighboursWithPredicate(graph, focus, predicates, 0));
+			Set<String> lookupsOut = toStrings(CommonGraph.getOutNeighboursWithPredicate(graph, focus, predicates, Long.MAX_VALUE));
+			assertEquals(NB_PREDICATES, scanOut.size());
+			assertEquals(scanOut, lookupsOut);
+			assertEquals(scanOut, toStrings(CommonGraph.getOutNeighboursWithPredicate(graph, focus, predicates)));
+			
+			Set<String> scanIn = toStrings(CommonGraph.getInNeighboursWithPredicate(graph, focus, predicates, 0));
+			Set<String> lookupsIn = toStrings(CommonGraph.getInNeighboursWithPredicate(graph, focus, predicates, Long.MAX_VALUE));
+			assertEquals(NB_PREDICATES / 2, scanIn.size());
+			assertEquals(scanIn, lookupsIn);
+			
+			assertTrue(CommonGraph.getOutNeighboursWithPredicate(graph, factory.createLiteral("v0"), predicates, 0).isEmpty());
+		}
+	}
+	
+	@Test
+	public void testHubFallsBackToLookups() {
+		// The scan of the hub is abandoned after 2 * LOOKUP_COST triples
+		for (RDF factory : factories) {
+			Graph graph = factory.createGraph();
+			IRI hub = factory.createIRI("http://a.example/hub");
+			Set<IRI> predicates = new HashSet<>();
+			for (int i = 0; i < 2; i++)
+				predicates.add(factory.createIRI("http://a.example/p"+i));
+			for (int i = 0; i < 100; i++) {
+				IRI other = factory.createIRI("http://a.example/n"+i);
+				IRI p = factory.createIRI("http://a.example/p"+(i % 10));
+				graph.add(hub, p, other);
+				graph.add(other, p, hub);
+			}
+			
+			Set<String> scanOut = toStrings(CommonGraph.getOutNeighboursWithPredicate(graph, hub, predicates, 0));
+			assertEquals(20, scanOut.size());
+			assertEquals(toStrings(CommonGraph.getOutNeighboursWithPredicate(graph, hub, predicates, Long.MAX_VALUE)), scanOut);
+			Set<String> scanIn = toStrings(CommonGraph.getInNeighboursWithPredicate(graph, hub, predicates, 0));
+			assertEquals(20, scanIn.size());
+			assertEquals(toStrings(CommonGraph.getInNeighboursWithPredicate(graph, hub, predicates, Long.MAX_VALUE)), scanIn);
+		}
+	}
+	
+	@Test
+	public void testAverageDegree() {
+		RDF factory = new SimpleRDF();
+		Graph graph = factory.createGraph();
+		assertEquals(CommonGraph.UNKNOWN_DEGREE, CommonGraph.getAverageDegree(graph, 0));
+		IRI p = factory.createIRI("http://a.example/p");
+		for (int i = 0; i < 3; i++)
+			graph.add(factory.createIRI("http://a.example/n0"), p, factory.createIRI("http://a.example/n"+(i+1)));
+		assertEquals(1, CommonGraph.getAverageDegree(graph, 4));
+	}
+	
+	private static Set<String> toStrings(List<Triple> triples) {
+		return triples.stream().map(Triple::toString).collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Test;
+
+public class TestCompactGraph {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static String DATA = 
+			"@prefix : <http://a.example/> .\n" +
+			":n1 :p :n2, :n3, \"v\", \"v\"@en ; :q :n1 ; :r _:b .\n" +
+			":n2 :p :n1 ; :q 5 .\n" +
+			"_:b :p :n1 ; :p :n2 .\n" +
+			":n3 :r :n3 .\n";
+
+	@Test
+	public void testSamePatternsAsModel() throws Exception {
+		Model model = Rio.parse(new ByteArrayInputStream(DATA.getBytes(StandardCharsets.UTF_8)), "http://a.example/", RDFFormat.TURTLE);
+		Graph expected = rdfFactory.asGraph(model);
+		// The blank nodes of two parsings are different
+		CompactGraph.Builder builder = new CompactGraph.Builder();
+		expected.iterate().forEach(builder::add);
+		CompactGraph graph = builder.build();
+		assertEquals(expected.size(), graph.size());
+		assertEquals(expected.size(), CompactGraph.load(new ByteArrayInputStream(DATA.getBytes(StandardCharsets.UTF_8)), RDFFormat.TURTLE, "http://a.example/").size());
+		
+		List<RDFTerm> terms = new ArrayList<>(CommonGraph.getAllNodes(expected));
+		terms.add(rdfFactory.createIRI("http://a.example/p"));
+		terms.add(rdfFactory.createIRI("http://a.example/q"));
+		terms.add(rdfFactory.createIRI("http://a.example/unknown"));
+		terms.add(null);
+		for (RDFTerm s : terms) {
+			if (s != null && !(s instanceof BlankNodeOrIRI))
+				continue;
+			for (RDFTerm p : terms) {
+				if (p != null && !(p instanceof IRI))
+					continue;
+				for (RDFTerm o : terms) {
+					Set<String> result = toStrings(graph.stream((BlankNodeOrIRI) s, (IRI) p, o));
+					assertEquals(toStrings(expected.stream((BlankNodeOrIRI) s, (IRI) p, o)), result);
+					assertEquals(! result.isEmpty(), graph.contains((BlankNodeOrIRI) s, (IRI) p, o));
+				}
+			}
+		}
+		assertEquals(CommonGraph.getAllNodes(expected), graph.getNodes());
+	}
+	
+	@Test
+	public void testNeighbourhoods() {
+		IRI n1 = rdfFactory.createIRI("http://a.example/n1");
+		IRI n2 = rdfFactory.createIRI("http://a.example/n2");
+		IRI p = rdfFactory.createIRI("http://a.example/p");
+		IRI q = rdfFactory.createIRI("http://a.example/q");
+		CompactGraph graph = new CompactGraph.Builder()
+				.add(n1, p, n2).add(n1, q, n2).add(n2, p, n1).add(n1, p, n2)
+				.build();
+		assertEquals(3, graph.size());
+		
+		List<Triple> out = graph.getOutTriples(n1, Collections.singleton(p));
+		assertEquals(Collections.singletonList(rdfFactory.createTriple(n1, p, n2)), out);
+		assertEquals(out.get(0).hashCode(), rdfFactory.createTriple(n1, p, n2).hashCode());
+		assertEquals(2, graph.getInTriples(n2, graph.stream().map(Triple::getPredicate).collect(Collectors.toSet())).size());
+		assertTrue(graph.getInTriples(n1, Collections.singleton(q)).isEmpty());
+		
+		int id = graph.getId(n1);
+		assertEquals(2, graph.getOutEnd(id) - graph.getOutStart(id));
+		assertEquals(1, graph.getOutEnd(id, graph.getId(q)) - graph.getOutStart(id, graph.getId(q)));
+		assertEquals(TermDictionary.UNKNOWN, graph.getId(rdfFactory.createIRI("http://a.example/unknown")));
+		assertFalse(graph.contains(n2, q, n1));
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testReadOnly() {
+		IRI n1 = rdfFactory.createIRI("http://a.example/n1");
+		new CompactGraph.Builder().build().add(n1, n1, n1);
+	}
+	
+	private static Set<String> toStrings(Stream<? extends Triple> triples) {
+		return triples.map(t -> t.getSubject().ntriplesString()+" "+t.getPredicate().ntriplesString()+" "+t.getObject().ntriplesString()).collect(Collectors.toSet());
+	}
+}
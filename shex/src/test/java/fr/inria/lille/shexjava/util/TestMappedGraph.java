@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.validation.RecursiveValidation;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+
+public class TestMappedGraph {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static String DATA = 
+			"<http://a.example/n1> <http://a.example/p> <http://a.example/n2> .\n" +
+			"<http://a.example/n1> <http://a.example/p> \"v \\\"quoted\\\"\\nnext line \\u00e9\" .\n" +
+			"<http://a.example/n1> <http://a.example/p> \"v\"@en .\n" +
+			"<http://a.example/n1> <http://a.example/q> \"5\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n" +
+			"<http://a.example/n1> <http://a.example/q> <http://a.example/n1> .\n" +
+			"<http://a.example/n1> <http://a.example/q> <http://a.example/n1> .\n" +
+			"<http://a.example/n2> <http://a.example/p> _:b .\n" +
+			"_:b <http://a.example/q> <http://a.example/n1> .\n";
+
+	@Test
+	public void testSamePatternsAsModel() throws Exception {
+		Model model = Rio.parse(new ByteArrayInputStream(DATA.getBytes(StandardCharsets.UTF_8)), "http://a.example/", RDFFormat.NTRIPLES);
+		Graph expected = rdfFactory.asGraph(model);
+		Path directory = Files.createTempDirectory("mappedgraph");
+		try (MappedGraph graph = MappedGraph.create(new ByteArrayInputStream(DATA.getBytes(StandardCharsets.UTF_8)), RDFFormat.NTRIPLES, "http://a.example/", directory)) {
+			assertEquals(expected.size(), graph.size());
+			assertEquals(6, graph.getNodes().size());
+			
+			List<RDFTerm> terms = new ArrayList<>(graph.getNodes());
+			terms.add(rdfFactory.createIRI("http://a.example/p"));
+			terms.add(rdfFactory.createIRI("http://a.example/q"));
+			terms.add(rdfFactory.createIRI("http://a.example/unknown"));
+			terms.add(null);
+			for (RDFTerm s : terms) {
+				if (s != null && !(s instanceof BlankNodeOrIRI))
+					continue;
+				for (RDFTerm p : terms) {
+					if (p != null && !(p instanceof IRI))
+						continue;
+					for (RDFTerm o : terms) {
+						Set<String> result = toStrings(graph.stream((BlankNodeOrIRI) s, (IRI) p, o));
+						if (!(s instanceof BlankNode) && !(o instanceof BlankNode))
+							assertEquals(toStrings(expected.stream((BlankNodeOrIRI) s, (IRI) p, o)), result);
+						assertEquals(! result.isEmpty(), graph.contains((BlankNodeOrIRI) s, (IRI) p, o));
+					}
+				}
+			}
+			// the terms are found whatever the implementation that created them
+			SimpleRDF simple = new SimpleRDF();
+			assertTrue(graph.contains(simple.createIRI("http://a.example/n1"), simple.createIRI("http://a.example/p"), simple.createLiteral("v", "en")));
+			assertTrue(graph.getNodes().contains(simple.createLiteral("5", simple.createIRI("http://www.w3.org/2001/XMLSchema#integer"))));
+			assertFalse(graph.getNodes().contains(simple.createIRI("http://a.example/p")));
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	@Test
+	public void testValidation() throws Exception {
+		// enough terms to extend the hash table of the terms, in chains of 3 nodes
+		int length = 35000;
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			if (i % 3 != 2)
+				data.append("<http://a.example/n"+i+"> <http://a.example/a> <http://a.example/n"+(i+1)+"> .\n");
+			if (i != 4)
+				data.append("<http://a.example/n"+i+"> <http://a.example/c> <http://a.example/cv> .\n");
+		}
+		Model model = Rio.parse(new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8)), "http://a.example/", RDFFormat.NTRIPLES);
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex"));
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		Path directory = Files.createTempDirectory("mappedgraph");
+		try (MappedGraph graph = MappedGraph.create(new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8)), RDFFormat.NTRIPLES, "http://a.example/", directory)) {
+			RefineValidation expected = new RefineValidation(schema, rdfFactory.asGraph(model));
+			expected.validate(rdfFactory.createIRI("http://a.example/n0"), label);
+			RefineValidation validation = new RefineValidation(schema, graph);
+			validation.validate(rdfFactory.createIRI("http://a.example/n0"), label);
+			assertEquals(expected.getTyping().getStatusMap(), validation.getTyping().getStatusMap());
+			
+			RecursiveValidation recursive = new RecursiveValidation(schema, graph);
+			assertTrue(recursive.validate(rdfFactory.createIRI("http://a.example/n5"), label));
+			assertFalse(recursive.validate(rdfFactory.createIRI("http://a.example/n3"), label));
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	@Test
+	public void testHubSortedThroughFile() throws Exception {
+		// the triples of the hub are sorted by runs of 7 triples merged in a temporary file
+		Random random = new Random(0);
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			data.append("<http://a.example/hub> <http://a.example/p"+random.nextInt(5)+"> <http://a.example/n"+random.nextInt(300)+"> .\n");
+			data.append("<http://a.example/n"+random.nextInt(300)+"> <http://a.example/p"+random.nextInt(5)+"> <http://a.example/hub> .\n");
+		}
+		Graph expected = rdfFactory.asGraph(Rio.parse(new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8)), "http://a.example/", RDFFormat.NTRIPLES));
+		Path directory = Files.createTempDirectory("mappedgraph");
+		try (MappedGraph graph = MappedGraph.create(new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8)), RDFFormat.NTRIPLES, "http://a.example/", directory, 7)) {
+			assertEquals(expected.size(), graph.size());
+			IRI hub = rdfFactory.createIRI("http://a.example/hub");
+			for (int i = 0; i < 5; i++) {
+				IRI p = rdfFactory.createIRI("http://a.example/p"+i);
+				assertEquals(toStrings(expected.stream(hub, p, null)), toStrings(graph.getOutTriples(hub, Collections.singleton(p)).stream()));
+				assertEquals(toStrings(expected.stream(null, p, hub)), toStrings(graph.getInTriples(hub, Collections.singleton(p)).stream()));
+			}
+			assertEquals(toStrings(expected.stream()), toStrings(graph.stream()));
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testReadOnly() throws Exception {
+		Path directory = Files.createTempDirectory("mappedgraph");
+		try (MappedGraph graph = MappedGraph.create(new ByteArrayInputStream(new byte[0]), RDFFormat.NTRIPLES, "http://a.example/", directory)) {
+			assertEquals(0, graph.size());
+			assertTrue(graph.getNodes().isEmpty());
+			IRI n1 = rdfFactory.createIRI("http://a.example/n1");
+			assertTrue(graph.getOutTriples(n1, Collections.singleton(n1)).isEmpty());
+			graph.add(n1, n1, n1);
+		} finally {
+			delete(directory);
+		}
+	}
+	
+	/** The blank nodes are replaced by _: as the blank nodes of two parsings are different. */
+	private static Set<String> toStrings(Stream<? extends Triple> triples) {
+		return triples.map(t -> (t.getSubject().ntriplesString()+" "+t.getPredicate().ntriplesString()+" "+t.getObject().ntriplesString()).replaceAll("_:\\S+", "_:"))
+				.collect(Collectors.toSet());
+	}
+	
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(file);
+		}
+	}
+}
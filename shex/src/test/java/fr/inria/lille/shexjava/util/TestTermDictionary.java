@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.jena.JenaRDF;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.Test;
+
+public class TestTermDictionary {
+	private final static RDF[] factories = new RDF[] {new RDF4J(), new JenaRDF(), new SimpleRDF()};
+
+	@Test
+	public void testSameIdAcrossImplementations() {
+		TermDictionary dictionary = new TermDictionary();
+		int iri = dictionary.getId(factories[0].createIRI("http://a.example/p"));
+		int literal = dictionary.getId(factories[0].createLiteral("test"));
+		int langLiteral = dictionary.getId(factories[0].createLiteral("test","en"));
+		for (RDF factory : factories) {
+			assertEquals(iri, dictionary.lookup(factory.createIRI("http://a.example/p")));
+			assertEquals(literal, dictionary.lookup(factory.createLiteral("test")));
+			assertEquals(langLiteral, dictionary.lookup(factory.createLiteral("test","en")));
+			assertEquals(TermDictionary.UNKNOWN, dictionary.lookup(factory.createIRI("http://a.example/q")));
+		}
+		assertEquals(3, dictionary.size());
+		assertNotEquals(iri, dictionary.getId(factories[0].createIRI("http://a.example/q")));
+	}
+	
+	@Test
+	public void testSameTerm() {
+		RDF4J rdf4j = new RDF4J();
+		assertTrue(TermDictionary.sameTerm(rdf4j.createIRI("http://a.example/p"), new SimpleRDF().createIRI("http://a.example/p")));
+		assertTrue(TermDictionary.sameTerm(rdf4j.createBlankNode("b"), rdf4j.createBlankNode("b")));
+		assertTrue(! TermDictionary.sameTerm(rdf4j.createLiteral("test"), rdf4j.createLiteral("test","en")));
+	}
+
+}
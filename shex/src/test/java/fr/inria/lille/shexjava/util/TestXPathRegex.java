@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.sf.saxon.s9api.XdmAtomicValue;
+import net.sf.saxon.value.AtomicValue;
+
+public class TestXPathRegex {
+	private final static String[] REGEXES = {
+			"^ab+c$", "abc", "^[A-Z]{3}-\\d{4}$", "^(?:97[89])?\\d{9}[\\dX]$", "a.c", "^.$", "^.+$", "a$", "^$",
+			"\\s", "^\\S+$", "\\w+", "^\\W$", "[\\s\\d]+", "[^a-z]", "[a-c-]", "x|y", "(ab)*c", "a{2,}?", "[&&a]", "a&&b",
+			"\\.\\-\\^\\$\\|\\?\\*\\+\\{\\}\\(\\)\\[\\]\\\\", "\\p{Lu}", "\\i\\c*", "[a-z-[aeiou]]+", "(a)\\1", "\\n", "\\t", "[\\n\\r]"
+	};
+	private final static String[] FLAGS = {null, "", "s", "i", "x", "m", "q"};
+	private final static String[] INPUTS = {
+			"", "abc", "abbbc", "ABC-1234", "abc\n", "a\nc", "a\rc", "a\u0085c", "a c", "\n", "x", "\u0085",
+			"١٢", "12", "0123456789", "978012345678X", " \t", "\u000B", " ", "\f", "a_b", "a-b", "-", ",", "été",
+			"aa", "aaa", "&", "a&&b", "a.b", ".-^$|?*+{}()[]\\", "😀", "a\u0000c", "xy", "ababc", "İ"
+	};
+	
+	@Test
+	public void testSameResultsAsSaxon() throws Exception {
+		for (String regex : REGEXES)
+			for (String flags : FLAGS) {
+				XPathRegex compiled = XPathRegex.compile(regex, flags);
+				for (String input : INPUTS)
+					assertEquals(regex+" "+flags+" on "+input, saxonMatches(input, regex, flags), compiled.matches(input));
+			}
+	}
+	
+	@Test
+	public void testTranslation() {
+		assertTrue(XPathRegex.compile("^[A-Z]{3}-\\d{4}$", null).isTranslated());
+		assertTrue(XPathRegex.compile("a.c", "s").isTranslated());
+		assertFalse(XPathRegex.compile("a.c", "i").isTranslated());
+		assertFalse(XPathRegex.compile("\\p{Lu}", null).isTranslated());
+		assertFalse(XPathRegex.compile("[a-z-[aeiou]]", null).isTranslated());
+		assertSame(XPathRegex.compile("abc", null), XPathRegex.compile("abc", ""));
+	}
+	
+	/** fn:matches evaluated by Saxon, as it was done before the regular expressions were compiled. */
+	private static boolean saxonMatches(String input, String regex, String flags) throws Exception {
+		AtomicValue inputAV = new XdmAtomicValue(input.replaceAll("\00","NULLCHARACTER0000REPLACEMENT")).getUnderlyingValue();
+		AtomicValue regexAV = new XdmAtomicValue(regex.replaceAll("\00","NULLCHARACTER0000REPLACEMENT")).getUnderlyingValue();
+		try {
+			return XPath.matcher.evalMatches(inputAV, regexAV, flags == null ? "" : flags, XPath.context);
+		} catch (net.sf.saxon.trans.XPathException e) {
+			return false;
+		}
+	}
+}
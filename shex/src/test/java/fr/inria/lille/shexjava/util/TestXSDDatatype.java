@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.concrsynt.DatatypeConstraint;
+
+public class TestXSDDatatype {
+	private final static SimpleValueFactory rdfFact = SimpleValueFactory.getInstance();
+	private final static String[] LEXICAL_FORMS = {
+			"", " ", "5", " 5 ", "\t5\n", "\f5", "+5", "-0", "+", "-", ".", "-.", "5.", ".5", "+.5", "1 2", "00012", "0.000",
+			"1e3", "1E3", "1e", "e3", ".e3", "1.5e-3", "1e+3", "1e3e3", "1E3e3", "INF", "+INF", "-INF", "NaN", " INF", "-NaN",
+			"1e400", "1e-400", "1e970", "10e970", "1e971", "0e971", "0.1e-1074", "0.01e-1074", "1e-1075", "1e104", "1e105", "10e104", "1e-149", "1e-150", "0e-150",
+			"12345678901234567890", "127", "128", "-128", "-129", "255", "256", "65535", "4294967296", "2147483647", "-2147483649",
+			"9223372036854775807", "9223372036854775808", "-9223372036854775808", "18446744073709551615", "18446744073709551616",
+			"true", "false", "1", "0", " true", "TRUE", "tru", "٥",
+			"2020-01-01", "2020-13-01", "2020-02-30", "2019-02-29", "2020-02-29", "2000-02-29", "1900-02-29", "-2020-02-29", "-2019-02-29",
+			"20200-01-01", "0000-01-01", "-0000-01-01", "2020-01-01Z", "2020-01-01+14:00", "2020-01-01+15:00", "2020-01-01+14:01", "2020-01-01+00:99",
+			" 2020-01-01", "2020-1-01", "2020-04-31", "2020-00-10", "2020-01-00",
+			"10:00:00", "24:00:00", "24:00:00.0", "24:00:00.5", "24:00:01", "23:59:60", "24:00:60", "10:60:00", "10:00:61", "10:00:00.5", "10:00:00.",
+			"10:00:00Z", "10:00:00-05:00", "10:00:00+10:60", "10:00:00-14:01", "99:00:00", " 10:00:00",
+			"2020-01-01T10:00:00", "2020-01-01T24:00:00", "2020-01-01T24:00:00.5", "2020-01-01T24:01:00", "2020-01-01T10:00:00.123Z", "2020-01-01T10:00",
+			" 2020-01-01T10:00:00 ", "2020-01-01\tT10:00:00", "2020-02-30T10:00:00", "2020-02-29T10:00:00", "2019-02-29T10:00:00", "2020-04-31T10:00:00",
+			"-2020-02-29T00:00:00", "-0000-01-01T00:00:00", "12345-01-01T00:00:00", "02345-01-01T00:00:00", "2020-01-01T10:00:60",
+			"2020-01-01T10:00:00+14:00", "2020-01-01T10:00:00+14:01", "2020-01-01T10:00:00+13:59", "2020-01-01T10:00:00+10:60", "2020-01-01T10:00:00Z ",
+			"99999999999-01-01T00:00:00", "2020-01-01T10:00:00.", "2020-01-01T10:00:00+05"
+	};
+	
+	@Test
+	public void testSameValidityAsRDF4J() {
+		List<String> lexicalForms = new ArrayList<>();
+		for (String lexicalForm : LEXICAL_FORMS)
+			lexicalForms.add(lexicalForm);
+		Random random = new Random(0);
+		for (int i = 0; i < 5000; i++)
+			lexicalForms.add(randomNumber(random));
+		for (XSDDatatype datatype : XSDDatatype.values())
+			for (String lexicalForm : lexicalForms)
+				assertEquals(datatype+" ["+lexicalForm+"]", XMLDatatypeUtil.isValidValue(lexicalForm, rdf4jIri(datatype.getIri())), datatype.isValid(lexicalForm));
+	}
+	
+	@Test
+	public void testDecimalValue() {
+		Random random = new Random(1);
+		for (int i = 0; i < 5000; i++) {
+			String lexicalForm = randomNumber(random);
+			for (XSDDatatype datatype : XSDDatatype.values()) {
+				BigDecimal value = datatype.decimalValue(lexicalForm);
+				if (! datatype.isNumeric() || ! datatype.isValid(lexicalForm)) {
+					assertNull(value);
+					continue;
+				}
+				BigDecimal expected;
+				try {
+					expected = rdfFact.createLiteral(lexicalForm.trim(), rdf4jIri(datatype.getIri())).decimalValue();
+				} catch (NumberFormatException e) {
+					// No digit at all
+					assertNull(datatype+" ["+lexicalForm+"]", value);
+					continue;
+				}
+				assertEquals(datatype+" ["+lexicalForm+"]", 0, expected.compareTo(value));
+			}
+		}
+		assertEquals(new BigDecimal("5"), XSDDatatype.INTEGER.decimalValue(" 5 "));
+		assertEquals(0, new BigDecimal("-1000").compareTo(XSDDatatype.DOUBLE.decimalValue("-1E+3")));
+		assertNull(XSDDatatype.DOUBLE.decimalValue("INF"));
+		assertNull(XSDDatatype.DOUBLE.decimalValue("NaN"));
+		assertNull(XSDDatatype.DECIMAL.decimalValue("."));
+		assertNull(XSDDatatype.DATE.decimalValue("2020-01-01"));
+	}
+	
+	@Test
+	public void testDateTimeStricterThanRDF4J() {
+		String[] acceptedByRDF4JOnly = {"٢٠٢٠-01-01T00:00:00", "2020-01-01T10:00:00T", "2020-01-01T10:00:00:", "2020-01-01T10:00:00.5e3", "2020-01-01T10:00:00.5 Z"};
+		for (String lexicalForm : acceptedByRDF4JOnly) {
+			assertTrue(lexicalForm, XMLDatatypeUtil.isValidDateTime(lexicalForm));
+			assertFalse(lexicalForm, XSDDatatype.DATETIME.isValid(lexicalForm));
+		}
+	}
+	
+	@Test
+	public void testAllValidatedDatatypesAreChecked() {
+		for (IRI datatypeIri : DatatypeConstraint.validatedDatatype)
+			assertNotNull(datatypeIri.toString(), XSDDatatype.forIri(datatypeIri));
+		assertEquals(DatatypeConstraint.validatedDatatype.size(), XSDDatatype.values().length);
+		assertNull(XSDDatatype.forIri(new SimpleRDF().createIRI("http://www.w3.org/2001/XMLSchema#gYear")));
+	}
+	
+	private static org.eclipse.rdf4j.model.IRI rdf4jIri(IRI iri) {
+		return rdfFact.createIRI(iri.getIRIString());
+	}
+	
+	/** Numbers with a sign, leading and trailing zeros, a decimal point, an exponent and surrounding white spaces, any of them possibly missing. */
+	private static String randomNumber(Random random) {
+		StringBuilder result = new StringBuilder();
+		if (random.nextInt(8) == 0)
+			result.append(' ');
+		int sign = random.nextInt(4);
+		if (sign == 1)
+			result.append('-');
+		if (sign == 2)
+			result.append('+');
+		appendDigits(result, random, random.nextInt(22));
+		if (random.nextInt(3) == 0) {
+			result.append('.');
+			appendDigits(result, random, random.nextInt(6));
+		}
+		if (random.nextInt(3) == 0) {
+			result.append(random.nextBoolean() ? 'e' : 'E');
+			if (random.nextInt(3) == 0)
+				result.append(random.nextBoolean() ? '-' : '+');
+			appendDigits(result, random, random.nextInt(5));
+		}
+		if (random.nextInt(8) == 0)
+			result.append('\t');
+		return result.toString();
+	}
+	
+	private static void appendDigits(StringBuilder result, Random random, int nbDigits) {
+		for (int i = 0; i < nbDigits; i++)
+			result.append(random.nextInt(3) == 0 ? '0' : (char) ('0' + random.nextInt(10)));
+	}
+}
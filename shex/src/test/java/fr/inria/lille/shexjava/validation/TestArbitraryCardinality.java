@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+/** Compares the validation of shapes with arbitrary cardinalities on groups with the validation of the same shapes in which the repetitions are expanded by hand. */
+public class TestArbitraryCardinality {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static String EX = "http://a.example/";
+	private final static String SCHEMA = 
+			"PREFIX : <http://a.example/>\n"
+			+ ":N1 { (:a . ; :b .){2,3} ; :c . ? }\n"
+			+ ":E1 { (:a . ; :b .) ; (:a . ; :b .) ; (:a . ; :b .)? ; :c . ? }\n"
+			+ ":N2 { (:a . | :b . ?){2,4} }\n"
+			+ ":E2 { (:a . | :b . ?) ; (:a . | :b . ?) ; (:a . | :b . ?)? ; (:a . | :b . ?)? }\n"
+			+ ":N3 { (:a . {2,3} | :b .){2,} ; :c . {1,3} }\n"
+			+ ":E3 { (:a . ; :a . ; :a . ? | :b .) ; (:a . ; :a . ; :a . ? | :b .)+ ; :c . ; :c . ? ; :c . ? }\n"
+			+ ":N4 { ((:a . ; :b . ?){1,2} | :c .){2,3} }\n"
+			+ ":E4 { ((:a . ; :b . ?) ; (:a . ; :b . ?)? | :c .) ; ((:a . ; :b . ?) ; (:a . ; :b . ?)? | :c .) ; ((:a . ; :b . ?) ; (:a . ; :b . ?)? | :c .)? }\n"
+			+ ":N5 { (:a . ; (:b . | :c .){2}){0,3} }\n"
+			+ ":E5 { (:a . ; (:b . | :c .) ; (:b . | :c .))? ; (:a . ; (:b . | :c .) ; (:b . | :c .))? ; (:a . ; (:b . | :c .) ; (:b . | :c .))? }\n"
+			+ ":N6 { (:a . ; :b . *){3} ; :c . * }\n"
+			+ ":E6 { (:a . ; :b . *) ; (:a . ; :b . *) ; (:a . ; :b . *) ; :c . * }\n";
+	private final static int NB_SHAPES = 6;
+
+	@Test
+	public void testSameResultsAsExpandedRepetitions() throws Exception {
+		Path schemaFile = Files.createTempFile("arbitrarycardinality", ".shex");
+		ShexSchema schema;
+		try {
+			Files.write(schemaFile, SCHEMA.getBytes("UTF-8"));
+			schema = GenParser.parseSchema(rdfFactory, schemaFile);
+		} finally {
+			Files.delete(schemaFile);
+		}
+		IRI[] predicates = {rdfFactory.createIRI(EX+"a"), rdfFactory.createIRI(EX+"b"), rdfFactory.createIRI(EX+"c")};
+		IRI focusNode = rdfFactory.createIRI(EX+"n");
+		Random random = new Random(0);
+		for (int s = 1; s <= NB_SHAPES; s++) {
+			Label nativeLabel = new Label(rdfFactory.createIRI(EX+"N"+s));
+			Label expandedLabel = new Label(rdfFactory.createIRI(EX+"E"+s));
+			int nbConformant = 0;
+			for (int run = 0; run < 300; run++) {
+				Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+				int nbTriples = random.nextInt(9);
+				for (int t = 0; t < nbTriples; t++)
+					graph.add(focusNode, predicates[random.nextInt(predicates.length)], rdfFactory.createLiteral("v"+t));
+				RecursiveValidation validation = new RecursiveValidation(schema, graph);
+				boolean expected = validation.validate(focusNode, expandedLabel);
+				assertEquals("N"+s+" on "+graph.size()+" triples", expected, validation.validate(focusNode, nativeLabel));
+				if (expected)
+					nbConformant++;
+			}
+			assertTrue(nbConformant > 0);
+		}
+	}
+	
+	@Test
+	public void testRepetitionsAreNotExpanded() throws Exception {
+		Path schemaFile = Files.createTempFile("arbitrarycardinality", ".shex");
+		ShexSchema schema;
+		try {
+			Files.write(schemaFile, "PREFIX : <http://a.example/>\n:S { (:a . ; :b .){1,500} }\n".getBytes("UTF-8"));
+			schema = GenParser.parseSchema(rdfFactory, schemaFile);
+		} finally {
+			Files.delete(schemaFile);
+		}
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		Shape shape = (Shape) schema.getShapeExprsMap().get(new Label(rdfFactory.createIRI(EX+"S")));
+		assertEquals(2, compiledSchema.getTCs(compiledSchema.getSORBETripleExpr(shape)).size());
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+public class TestBagIterator {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testIncrementalBagsAreTheBagsOfTheAssignments() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","overlapping.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		Shape shape = (Shape) schema.getShapeExprsMap().get(new Label(rdfFactory.createIRI("http://a.example/S")));
+		TripleExpr tripleExpression = compiledSchema.getSORBETripleExpr(shape);
+		List<TripleConstraint> constraints = compiledSchema.getTCs(tripleExpression);
+		IntervalProgram program = compiledSchema.getIntervalProgram(tripleExpression);
+		IRI focusNode = rdfFactory.createIRI("http://a.example/n");
+		IRI predicate = rdfFactory.createIRI("http://a.example/a");
+		
+		Random random = new Random(0);
+		for (int nbTriples = 0; nbTriples < 6; nbTriples++) {
+			Map<Triple, List<TripleConstraint>> matches = new LinkedHashMap<>();
+			int expectedNbBags = 1;
+			for (int t = 0; t < nbTriples; t++) {
+				List<TripleConstraint> candidates = new ArrayList<>(constraints);
+				Collections.shuffle(candidates, random);
+				candidates = candidates.subList(0, 1 + random.nextInt(candidates.size()));
+				matches.put(rdfFactory.createTriple(focusNode, predicate, rdfFactory.createLiteral("v"+t)), candidates);
+				expectedNbBags *= candidates.size();
+			}
+			PreMatching preMatching = new PreMatching(matches, Collections.emptyList(), Collections.emptyList());
+			
+			for (BagIterator bagIt : new BagIterator[] {new BagIterator(preMatching), new BagIterator(preMatching, program)}) {
+				int nbBags = 0;
+				Bag previous = null;
+				while (bagIt.hasNext()) {
+					Map<Triple, Label> assignment = bagIt.getCurrentBag();
+					Bag bag = bagIt.next();
+					if (previous != null)
+						assertSame(previous, bag);
+					previous = bag;
+					Map<Label, Integer> expected = new HashMap<>();
+					for (Label label : assignment.values())
+						expected.merge(label, 1, Integer::sum);
+					for (TripleConstraint tc : constraints)
+						assertEquals((int) expected.getOrDefault(tc.getId(), 0), bag.getMult(tc));
+					nbBags++;
+				}
+				assertEquals(expectedNbBags, nbBags);
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.Types;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+public class TestBagSearch {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testSameMatchingAsBagIterator() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","overlapping.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		IRI focusNode = rdfFactory.createIRI("http://a.example/n");
+		
+		for (String shapeName : new String[] {"S", "T"}) {
+			Shape shape = (Shape) schema.getShapeExprsMap().get(new Label(rdfFactory.createIRI("http://a.example/"+shapeName)));
+			TripleExpr tripleExpression = compiledSchema.getSORBETripleExpr(shape);
+			List<TripleConstraint> constraints = compiledSchema.getTCs(tripleExpression);
+			
+			Graph graph = (new RDF4J()).asGraph(new LinkedHashModel());
+			for (int nbTriples = 0; nbTriples < 7; nbTriples++) {
+				List<Triple> neighbourhood = ValidationUtils.getMatchableNeighbourhood(graph, focusNode, constraints, false);
+				PreMatching preMatching = ValidationUtils.computePreMatching(focusNode, neighbourhood, constraints, shape.getExtraProperties(), ValidationUtils.getPredicateOnlyMatcher());
+				
+				Map<Triple, Label> expected = getFirstSatisfyingBag(preMatching, tripleExpression, compiledSchema);
+				BagSearch bagSearch = new BagSearch(preMatching);
+				assertEquals(expected, bagSearch.search(tripleExpression, new IntervalComputation(compiledSchema.getCollectorOfTripleConstraints())));
+				assertEquals(expected, bagSearch.search(compiledSchema.getIntervalProgram(tripleExpression)));
+				
+				graph.add(focusNode, rdfFactory.createIRI("http://a.example/a"), rdfFactory.createLiteral("v"+nbTriples));
+			}
+		}
+	}
+	
+	@Test
+	public void testPruning() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","choices.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		IRI focusNode = rdfFactory.createIRI("http://a.example/n");
+		// Every :p triple matches two triple constraints of the choice, and no two triples match the same ones
+		Graph graph = (new RDF4J()).asGraph(new LinkedHashModel());
+		int nbTriples = 12;
+		for (int i = 2; i < 2 + nbTriples; i++)
+			graph.add(focusNode, rdfFactory.createIRI("http://a.example/p"), rdfFactory.createLiteral(Integer.toString(i), Types.XSD_INTEGER));
+		graph.add(focusNode, rdfFactory.createIRI("http://a.example/q"), rdfFactory.createLiteral("1", Types.XSD_INTEGER));
+		// The typing of the values by the node constraints
+		RefineValidation validation = new RefineValidation(schema, graph);
+		validation.validate(focusNode, new Label(rdfFactory.createIRI("http://a.example/S")));
+		
+		for (String shapeName : new String[] {"S", "T", "U"}) {
+			Shape shape = (Shape) schema.getShapeExprsMap().get(new Label(rdfFactory.createIRI("http://a.example/"+shapeName)));
+			TripleExpr tripleExpression = compiledSchema.getSORBETripleExpr(shape);
+			List<TripleConstraint> constraints = compiledSchema.getTCs(tripleExpression);
+			List<Triple> neighbourhood = ValidationUtils.getMatchableNeighbourhood(graph, focusNode, constraints, false);
+			PreMatching preMatching = ValidationUtils.computePreMatching(focusNode, neighbourhood, constraints, shape.getExtraProperties(), ValidationUtils.getPredicateAndValueMatcher(validation.getTyping()));
+			
+			BagSearch bagSearch = new BagSearch(preMatching);
+			Map<Triple, Label> matching = bagSearch.search(compiledSchema.getIntervalProgram(tripleExpression));
+			// Without pruning, thousands of partial assignments are visited for S and U
+			assertTrue(bagSearch.getNbVisitedNodes() <= nbTriples + 2);
+			assertEquals(shapeName.equals("U"), matching != null);
+			assertEquals(getFirstSatisfyingBag(preMatching, tripleExpression, compiledSchema), matching);
+			assertEquals(matching, bagSearch.search(tripleExpression, new IntervalComputation(compiledSchema.getCollectorOfTripleConstraints())));
+			assertTrue(bagSearch.getNbVisitedNodes() <= nbTriples + 2);
+		}
+	}
+	
+	/** The matching of the first bag of {@link BagIterator} that satisfies the expression. */
+	private static Map<Triple, Label> getFirstSatisfyingBag(PreMatching preMatching, TripleExpr tripleExpression, CompiledSchema compiledSchema) {
+		BagIterator bagIt = new BagIterator(preMatching);
+		IntervalComputation intervalComputation = new IntervalComputation(compiledSchema.getCollectorOfTripleConstraints());
+		while (bagIt.hasNext()) {
+			Map<Triple, Label> assignment = bagIt.getCurrentBag();
+			tripleExpression.accept(intervalComputation, bagIt.next());
+			if (intervalComputation.getResult().contains(1))
+				return assignment;
+		}
+		return null;
+	}
+}
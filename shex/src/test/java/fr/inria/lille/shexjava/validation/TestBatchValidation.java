@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.Pair;
+
+public class TestBatchValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testSameResultsAsRecursive() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","MemValidation1.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		
+		Model model = new LinkedHashModel();
+		Graph graph = (new RDF4J()).asGraph(model);
+
+		// a chain of nodes where only some of them have a correct :c value
+		int nbNodes = 200;
+		for (int i = 0; i < nbNodes; i++) {
+			BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/n"+i);
+			BlankNodeOrIRI next = rdfFactory.createIRI("http://a.example/n"+((i+1)%nbNodes));
+			if (i % 2 == 0)
+				graph.add(n,rdfFactory.createIRI("http://a.example/a"),next);
+			else
+				graph.add(n,rdfFactory.createIRI("http://a.example/b"),next);
+			if (i % 7 == 0)
+				graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createLiteral("test"));
+			else
+				graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createIRI("http://a.example/cv"));
+		}
+		
+		List<Pair<RDFTerm,Label>> pairs = new ArrayList<>();
+		for (Label label : schema.getShapeExprsMap().keySet())
+			for (int i = 0; i < nbNodes; i++)
+				pairs.add(new Pair<>(rdfFactory.createIRI("http://a.example/n"+i), label));
+		
+		RecursiveValidation validation = new RecursiveValidation(schema,graph);
+		BatchValidation batchValidation = new BatchValidation(schema,graph,RecursiveValidationWithMemorization::new,new ForkJoinPool(4));
+		Typing result = batchValidation.validateAll(pairs);
+		
+		assertEquals(pairs.size(), result.getStatusMap().size());
+		assertEquals(pairs.size(), batchValidation.getNbValidatedPairs());
+		for (Pair<RDFTerm,Label> nl : pairs)
+			assertEquals(validation.validate(nl.one, nl.two), result.isConformant(nl.one, nl.two));
+		
+		// the algorithms and their neighbourhood cache are reused by the next call
+		long misses = batchValidation.getNeighbourhoodCache().getMisses();
+		assertEquals(result.getStatusMap(), batchValidation.validateAll(pairs).getStatusMap());
+		assertEquals(misses, batchValidation.getNeighbourhoodCache().getMisses());
+		
+		// the refinement uses the nodes of the graph shared by the algorithms
+		BatchValidation refineBatchValidation = new BatchValidation(schema,graph,RefineValidation::new,new ForkJoinPool(4));
+		assertEquals(result.getStatusMap(), refineBatchValidation.validateAll(pairs).getStatusMap());
+	}
+
+}
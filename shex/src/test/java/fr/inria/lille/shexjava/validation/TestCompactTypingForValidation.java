@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+
+public class TestCompactTypingForValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testSameContentAsTypingForValidation() {
+		Label s = new Label(rdfFactory.createIRI("http://a.example/S"));
+		Label t = new Label(rdfFactory.createIRI("http://a.example/T"));
+		TypingForValidation expected = new TypingForValidation();
+		CompactTypingForValidation typing = new CompactTypingForValidation(Collections.singleton(s));
+		
+		for (int i = 0; i < 100; i++) {
+			RDFTerm node = rdfFactory.createIRI("http://a.example/n"+i);
+			Status status = i % 3 == 0 ? Status.NONCONFORMANT : Status.CONFORMANT;
+			expected.setStatus(node, i % 2 == 0 ? s : t, status);
+			typing.setStatus(node, i % 2 == 0 ? s : t, status);
+		}
+		RDFTerm n4 = rdfFactory.createIRI("http://a.example/n4");
+		expected.removeNodeLabel(n4, s);
+		typing.removeNodeLabel(n4, s);
+		
+		assertEquals(expected.getStatusMap(), typing.getStatusMap());
+		assertEquals(expected.getNodes(t), typing.getNodes(t));
+		assertEquals(Status.NOTCOMPUTED, typing.getStatus(n4, s));
+		assertEquals(Status.NOTCOMPUTED, typing.getStatus(rdfFactory.createIRI("http://a.example/unknown"), s));
+		assertTrue(typing.isConformant(rdfFactory.createIRI("http://a.example/n1"), t));
+		assertFalse(typing.isConformant(rdfFactory.createIRI("http://a.example/n3"), t));
+		assertTrue(typing.getShapesLabel(rdfFactory.createIRI("http://a.example/n3")).contains(t));
+		
+		typing.setStatus(n4, s, Status.CONFORMANT);
+		assertEquals(Status.CONFORMANT, typing.getStatusMap().get(new Pair<>(n4, s)));
+	}
+
+}
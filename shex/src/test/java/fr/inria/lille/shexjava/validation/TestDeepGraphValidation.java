@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+/** Validates chains that are much longer than what the recursion on a small thread stack allows. */
+public class TestDeepGraphValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static int LENGTH = 5000;
+	private final static long STACK_SIZE = 256*1024;
+
+	@Test
+	public void testDeepChain() throws Exception {
+		assertEquals("[true, true, false, false]", validateOnSmallStack(false));
+	}
+	
+	@Test
+	public void testDeepCycle() throws Exception {
+		assertEquals("[true, true, false, false]", validateOnSmallStack(true));
+	}
+	
+	/** Validates the first node of a valid and of an invalid chain with both recursive algorithms. */
+	private String validateOnSmallStack(boolean cycle) throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+
+		List<Boolean> results = new ArrayList<>();
+		for (boolean valid : new boolean[] {true, false}) {
+			Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+			for (int i = 0; i < LENGTH; i++) {
+				BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/n"+i);
+				if (cycle || i < LENGTH-1)
+					graph.add(n,rdfFactory.createIRI("http://a.example/a"),rdfFactory.createIRI("http://a.example/n"+((i+1)%LENGTH)));
+				if (valid || i < LENGTH-1)
+					graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createIRI("http://a.example/cv"));
+			}
+			BlankNodeOrIRI first = rdfFactory.createIRI("http://a.example/n0");
+			Throwable[] error = new Throwable[1];
+			Thread thread = new Thread(null, () -> {
+				try {
+					results.add(new RecursiveValidation(schema, graph).validate(first, label));
+					results.add(new RecursiveValidationWithMemorization(schema, graph).validate(first, label));
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}, "validation", STACK_SIZE);
+			thread.start();
+			thread.join();
+			if (error[0] != null)
+				throw new AssertionError(error[0]);
+		}
+		return results.toString();
+	}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestDependencyGraph {
+
+	@Test
+	public void testEdges() {
+		DependencyGraph<String> g = new DependencyGraph<>();
+		for (int i = 0; i < 100; i++)
+			assertTrue(g.addVertex("v"+i));
+		assertFalse(g.addVertex("v0"));
+		for (int i = 1; i < 100; i++) {
+			assertTrue(g.addEdge("v0", "v"+i));
+			assertTrue(g.addEdge("v"+i, "v"+(i % 10)));
+		}
+		assertFalse(g.addEdge("v0", "v5"));
+		assertTrue(g.addEdge("v0", "v0"));
+		assertEquals(100, g.outDegreeOf("v0"));
+		assertEquals(Arrays.asList("v10","v20","v30","v40","v50","v60","v70","v80","v90"), g.predecessorsOf("v0").subList(0, 9));
+		assertEquals(Arrays.asList("v0","v3","v13","v23","v33","v43","v53","v63","v73","v83","v93"), g.predecessorsOf("v3"));
+
+		g.removeVertex("v3");
+		assertFalse(g.containsVertex("v3"));
+		assertEquals(99, g.outDegreeOf("v0"));
+		assertEquals(0, g.outDegreeOf("v13"));
+		assertTrue(g.addVertex("v3"));
+		assertEquals(0, g.inDegreeOf("v3"));
+		assertTrue(g.addEdge("v0", "v3"));
+		assertEquals(Arrays.asList("v0"), g.predecessorsOf("v3"));
+	}
+
+	@Test
+	public void testHypothesisStack() {
+		HypothesisStack<String> hyp = new HypothesisStack<>();
+		hyp.push("a");
+		hyp.push("b");
+		hyp.push("c");
+		assertTrue(hyp.contains("b"));
+		assertEquals(2, hyp.indexOf("c"));
+		assertEquals(-1, hyp.indexOf("d"));
+		assertEquals("c", hyp.pop());
+		assertFalse(hyp.contains("c"));
+		assertEquals(-1, hyp.indexOf("c"));
+		hyp.push("c");
+		assertEquals(2, hyp.indexOf("c"));
+		assertEquals(3, hyp.size());
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map.Entry;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.Pair;
+
+public class TestFocusedRefineValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testOnlyReachablePairsComputed() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		
+		Model model = new LinkedHashModel();
+		Graph graph = (new RDF4J()).asGraph(model);
+
+		// two disjoint chains, the second one ends with an invalid node
+		int nbNodes = 50;
+		for (int c = 0; c < 2; c++) {
+			for (int i = 0; i < nbNodes; i++) {
+				BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/c"+c+"n"+i);
+				if (i < nbNodes-1)
+					graph.add(n,rdfFactory.createIRI("http://a.example/a"),rdfFactory.createIRI("http://a.example/c"+c+"n"+(i+1)));
+				if (c == 1 && i == nbNodes-1)
+					graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createLiteral("test"));
+				else
+					graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createIRI("http://a.example/cv"));
+			}
+		}
+		
+		BlankNodeOrIRI first0 = rdfFactory.createIRI("http://a.example/c0n0");
+		BlankNodeOrIRI first1 = rdfFactory.createIRI("http://a.example/c1n0");
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		
+		RefineValidation validation = new RefineValidation(schema,graph);
+		validation.validate(first0, label);
+		
+		FocusedRefineValidation focusedValidation = new FocusedRefineValidation(schema,graph);
+		assertTrue(focusedValidation.validate(first0, label));
+		assertEquals(Status.NOTCOMPUTED, focusedValidation.getTyping().getStatus(first1, label));
+		for (Pair<RDFTerm,Label> nl : focusedValidation.getTyping().getStatusMap().keySet())
+			assertFalse(nl.one.ntriplesString().contains("/c1n"));
+		
+		assertFalse(focusedValidation.validate(first1, label));
+		for (Entry<Pair<RDFTerm,Label>,Status> entry : focusedValidation.getTyping().getStatusMap().entrySet())
+			assertEquals(validation.getTyping().getStatus(entry.getKey().one, entry.getKey().two), entry.getValue());
+	}
+
+}
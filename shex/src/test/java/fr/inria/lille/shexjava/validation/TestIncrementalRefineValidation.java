@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+public class TestIncrementalRefineValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static IRI a = rdfFactory.createIRI("http://a.example/a");
+	private final static IRI c = rdfFactory.createIRI("http://a.example/c");
+	private final static IRI cv = rdfFactory.createIRI("http://a.example/cv");
+	private final static Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+
+	@Test
+	public void testCycleBecomesConformant() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+		BlankNodeOrIRI n0 = rdfFactory.createIRI("http://a.example/n0");
+		BlankNodeOrIRI n1 = rdfFactory.createIRI("http://a.example/n1");
+		graph.add(n0, a, n1);
+		graph.add(n1, a, n0);
+		graph.add(n0, c, cv);
+		
+		IncrementalRefineValidation validation = new IncrementalRefineValidation(schema, graph);
+		assertFalse(validation.validate(n0, label));
+		assertFalse(validation.validate(n1, label));
+		
+		Triple missing = rdfFactory.createTriple(n1, c, cv);
+		validation.applyDelta(Collections.singleton(missing), Collections.emptySet());
+		assertTrue(validation.validate(n0, label));
+		assertTrue(validation.validate(n1, label));
+		
+		validation.applyDelta(Collections.emptySet(), Collections.singleton(missing));
+		assertFalse(validation.validate(n0, label));
+		assertFalse(validation.validate(n1, label));
+	}
+
+	@Test
+	public void testSameTypingAsRefine() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Random random = new Random(42);
+		int nbNodes = 40;
+		List<BlankNodeOrIRI> nodes = new ArrayList<>();
+		for (int i = 0; i < nbNodes; i++)
+			nodes.add(rdfFactory.createIRI("http://a.example/n"+i));
+		
+		Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+		for (int i = 0; i < 2*nbNodes; i++)
+			graph.add(randomTriple(nodes, random));
+		IncrementalRefineValidation validation = new IncrementalRefineValidation(schema, graph);
+		validation.validate(nodes.get(0), label);
+		
+		for (int step = 0; step < 30; step++) {
+			List<Triple> added = new ArrayList<>();
+			List<Triple> removed = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				added.add(randomTriple(nodes, random));
+				List<Triple> triples = new ArrayList<>();
+				graph.iterate().forEach(triples::add);
+				removed.add(triples.get(random.nextInt(triples.size())));
+			}
+			validation.applyDelta(added, removed);
+			
+			Graph copy = rdfFactory.asGraph(new LinkedHashModel());
+			graph.iterate().forEach(copy::add);
+			RefineValidation refine = new RefineValidation(schema, copy);
+			refine.validate(nodes.get(0), label);
+			assertEquals(refine.getTyping().getStatusMap(), validation.getTyping().getStatusMap());
+		}
+	}
+	
+	private static Triple randomTriple(List<BlankNodeOrIRI> nodes, Random random) {
+		BlankNodeOrIRI subject = nodes.get(random.nextInt(nodes.size()));
+		if (random.nextInt(3) == 0)
+			return rdfFactory.createTriple(subject, c, random.nextInt(4) == 0 ? rdfFactory.createLiteral("cv") : cv);
+		return rdfFactory.createTriple(subject, a, nodes.get(random.nextInt(nodes.size())));
+	}
+}
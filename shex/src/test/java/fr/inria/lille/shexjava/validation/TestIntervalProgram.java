@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.Interval;
+
+public class TestIntervalProgram {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static String SCHEMA = 
+			"PREFIX : <http://a.example/>\n"
+			+ ":S1 { :a . ; :b . * ; :c . + ; :d . ? }\n"
+			+ ":S2 { (:a . ; :b .){2,3} ; :c . ? }\n"
+			+ ":S3 { (:a . | :b . | :c .)+ ; :d . {2,5} }\n"
+			+ ":S4 { (:a . ; (:b . | :c . *)) * ; :d . {0} }\n"
+			+ ":S5 { :a . {2,3} ; :a . * ; :a . ? ; (:b . ; :c .)? }\n"
+			+ ":S6 { (:a . | :b .){0} ; :c . {3,} }\n"
+			+ ":S7 { ((:a . ; :b . ?)+ | :c .) ; :d . {1,2} }\n"
+			+ ":S8 { }\n"
+			+ ":S9 { ((:a . | :b . {0} | :c . {0,2}){1,3}) ? }\n"
+			+ ":S10 { (((:a . {1,3}){2,} | :b . {2}) ?) {2} }\n";
+	
+	@Test
+	public void testSameIntervalAsIntervalComputation() throws Exception {
+		ShexSchema schema = parseSchema();
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		IntervalComputation intervalComputation = new IntervalComputation(compiledSchema.getCollectorOfTripleConstraints());
+		Random random = new Random(0);
+		for (ShapeExpr expr : schema.getShapeExprsMap().values()) {
+			if (! (expr instanceof Shape))
+				continue;
+			TripleExpr tripleExpression = compiledSchema.getSORBETripleExpr((Shape) expr);
+			List<TripleConstraint> constraints = compiledSchema.getTCs(tripleExpression);
+			IntervalProgram program = compiledSchema.getIntervalProgram(tripleExpression);
+			assertEquals(constraints.size(), program.getNbOrdinals());
+			int[] registers = program.createRegisters();
+			for (int run = 0; run < 500; run++) {
+				Bag bag = new Bag();
+				for (TripleConstraint tc : constraints) {
+					int mult = random.nextInt(3) == 0 ? 0 : random.nextInt(7);
+					for (int i = 0; i < mult; i++)
+						bag.increment(tc);
+				}
+				tripleExpression.accept(intervalComputation, bag);
+				Interval expected = intervalComputation.getResult();
+				int[] multiplicities = program.getMultiplicities(bag);
+				assertEquals(expected, program.evaluate(multiplicities));
+				assertEquals(expected.contains(1), program.isSatisfied(multiplicities, registers));
+			}
+		}
+	}
+	
+	@Test
+	public void testPartialEvaluation() throws Exception {
+		ShexSchema schema = parseSchema();
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		Random random = new Random(0);
+		int nbRejected = 0;
+		for (ShapeExpr expr : schema.getShapeExprsMap().values()) {
+			if (! (expr instanceof Shape))
+				continue;
+			IntervalProgram program = compiledSchema.getIntervalProgram(compiledSchema.getSORBETripleExpr((Shape) expr));
+			int nbOrdinals = program.getNbOrdinals();
+			int[] registers = program.createRegisters();
+			int[] partialRegisters = program.createPartialRegisters();
+			for (int run = 0; run < 500; run++) {
+				int[] lower = new int[nbOrdinals], upper = new int[nbOrdinals];
+				for (int ord = 0; ord < nbOrdinals; ord++) {
+					lower[ord] = random.nextInt(3) == 0 ? 0 : random.nextInt(4);
+					upper[ord] = lower[ord] + (random.nextBoolean() ? 0 : random.nextInt(3));
+				}
+				// enumerates the bags between the bounds
+				boolean satisfiable = false;
+				int[] multiplicities = lower.clone();
+				int i;
+				do {
+					satisfiable |= program.isSatisfied(multiplicities, registers);
+					for (i = 0; i < nbOrdinals && multiplicities[i] == upper[i]; i++)
+						multiplicities[i] = lower[i];
+					if (i < nbOrdinals)
+						multiplicities[i]++;
+				} while (i < nbOrdinals);
+				boolean result = program.isSatisfiable(lower, upper, partialRegisters);
+				if (satisfiable)
+					assertTrue(result);
+				else if (! result)
+					nbRejected++;
+				assertEquals(program.isSatisfied(lower, registers), program.isSatisfiable(lower, lower, partialRegisters));
+			}
+		}
+		assertTrue(nbRejected > 0);
+	}
+	
+	private static ShexSchema parseSchema() throws Exception {
+		Path schemaFile = Files.createTempFile("intervalprogram", ".shex");
+		try {
+			Files.write(schemaFile, SCHEMA.getBytes("UTF-8"));
+			return GenParser.parseSchema(rdfFactory, schemaFile);
+		} finally {
+			Files.delete(schemaFile);
+		}
+	}
+}
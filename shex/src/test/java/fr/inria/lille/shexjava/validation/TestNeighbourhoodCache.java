@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.Triple;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyShape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TCProperty;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+public class TestNeighbourhoodCache {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static IRI a = rdfFactory.createIRI("http://a.example/a");
+	private final static IRI c = rdfFactory.createIRI("http://a.example/c");
+	private final static IRI cv = rdfFactory.createIRI("http://a.example/cv");
+	private final static Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+	private final static int LENGTH = 20;
+
+	@Test
+	public void testSameTypingWithCache() throws Exception {
+		ShexSchema schema = parseChain();
+		Graph graph = createChain();
+		RefineValidation expected = new RefineValidation(schema, graph);
+		expected.validate(node(0), label);
+		
+		RefineValidation validation = new RefineValidation(schema, graph);
+		NeighbourhoodCache cache = new NeighbourhoodCache(1000);
+		validation.setNeighbourhoodCache(cache);
+		validation.validate(node(0), label);
+		assertEquals(expected.getTyping().getStatusMap(), validation.getTyping().getStatusMap());
+		assertTrue(cache.getHits() > 0);
+		assertEquals(0, cache.getEvictions());
+		assertEquals(cache.getMisses(), cache.size());
+	}
+	
+	@Test
+	public void testEviction() throws Exception {
+		ShexSchema schema = parseChain();
+		Graph graph = createChain();
+		RecursiveValidation validation = new RecursiveValidation(schema, graph);
+		NeighbourhoodCache cache = new NeighbourhoodCache(2);
+		validation.setNeighbourhoodCache(cache);
+		assertTrue(validation.validate(node(0), label));
+		assertEquals(2, cache.size());
+		assertEquals(cache.getMisses() - 2, cache.getEvictions());
+		
+		cache.clear();
+		cache.resetStatistics();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitRatio(), 0);
+	}
+	
+	@Test
+	public void testClearedByDelta() throws Exception {
+		ShexSchema schema = parseChain();
+		Graph graph = createChain();
+		IncrementalRefineValidation validation = new IncrementalRefineValidation(schema, graph);
+		NeighbourhoodCache cache = new NeighbourhoodCache(1000);
+		validation.setNeighbourhoodCache(cache);
+		assertTrue(validation.validate(node(0), label));
+		
+		Triple triple = rdfFactory.createTriple(node(LENGTH-1), c, cv);
+		validation.applyDelta(Collections.emptySet(), Collections.singleton(triple));
+		assertFalse(validation.validate(node(0), label));
+		validation.applyDelta(Collections.singleton(triple), Collections.emptySet());
+		assertTrue(validation.validate(node(0), label));
+	}
+	
+	@Test
+	public void testSignatures() {
+		// the predicates are created by different factories
+		TripleConstraint a = new TripleConstraint(TCProperty.createFwProperty(rdfFactory.createIRI("http://a.example/a")), new EmptyShape());
+		TripleConstraint b = new TripleConstraint(TCProperty.createFwProperty(rdfFactory.createIRI("http://a.example/b")), new EmptyShape());
+		TripleConstraint invB = new TripleConstraint(TCProperty.createInvProperty(new SimpleRDF().createIRI("http://a.example/b")), new EmptyShape());
+		TripleConstraint bAgain = new TripleConstraint(TCProperty.createFwProperty(new SimpleRDF().createIRI("http://a.example/b")), new EmptyShape());
+		TripleConstraintIndex ab = new TripleConstraintIndex(Arrays.asList(a, b, invB));
+		TripleConstraintIndex ba = new TripleConstraintIndex(Arrays.asList(invB, bAgain, a));
+		TripleConstraintIndex inverse = new TripleConstraintIndex(Arrays.asList(invB));
+		assertSame(ab.getSignature(false), ba.getSignature(false));
+		assertSame(ab.getSignature(true), inverse.getSignature(true));
+		assertNotSame(ab.getSignature(false), ab.getSignature(true));
+		assertNotSame(inverse.getSignature(false), inverse.getSignature(true));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new NeighbourhoodCache(0);
+	}
+	
+	private static ShexSchema parseChain() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		return GenParser.parseSchema(rdfFactory,schema_file);
+	}
+	
+	private static Graph createChain() {
+		Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+		for (int i = 0; i < LENGTH; i++) {
+			if (i+1 < LENGTH)
+				graph.add(node(i), a, node(i+1));
+			graph.add(node(i), c, cv);
+		}
+		return graph;
+	}
+	
+	private static BlankNodeOrIRI node(int i) {
+		return rdfFactory.createIRI("http://a.example/n"+i);
+	}
+}
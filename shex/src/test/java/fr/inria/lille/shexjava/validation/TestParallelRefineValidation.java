@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+public class TestParallelRefineValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testSameTypingAsRefine() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","MemValidation1.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		
+		Model model = new LinkedHashModel();
+		Graph graph = (new RDF4J()).asGraph(model);
+
+		// a chain of nodes where only some of them have a correct :c value
+		int nbNodes = 200;
+		for (int i = 0; i < nbNodes; i++) {
+			BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/n"+i);
+			BlankNodeOrIRI next = rdfFactory.createIRI("http://a.example/n"+((i+1)%nbNodes));
+			if (i % 2 == 0)
+				graph.add(n,rdfFactory.createIRI("http://a.example/a"),next);
+			else
+				graph.add(n,rdfFactory.createIRI("http://a.example/b"),next);
+			if (i % 7 == 0)
+				graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createLiteral("test"));
+			else
+				graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createIRI("http://a.example/cv"));
+		}
+		
+		BlankNodeOrIRI n0 = rdfFactory.createIRI("http://a.example/n0");
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		
+		RefineValidation validation = new RefineValidation(schema,graph);
+		validation.validate(n0, label);
+		
+		ParallelRefineValidation parallelValidation = new ParallelRefineValidation(schema,graph,new ForkJoinPool(4));
+		parallelValidation.validate(n0, label);
+
+		assertEquals(validation.getTyping().getStatusMap(), parallelValidation.getTyping().getStatusMap());
+	}
+
+}
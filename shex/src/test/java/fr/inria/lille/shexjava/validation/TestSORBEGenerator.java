@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+
+public class TestSORBEGenerator {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testOriginalTripleConstraints() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","overlapping.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		CompiledSchema compiledSchema = schema.getCompiledSchema();
+		for (ShapeExpr expr : schema.getShapeExprsMap().values()) {
+			if (! (expr instanceof Shape))
+				continue;
+			for (TripleConstraint tc : compiledSchema.getTCs(compiledSchema.getSORBETripleExpr((Shape) expr))) {
+				TripleConstraint original = compiledSchema.getSORBEGenerator().getOriginalTripleConstraint(tc);
+				assertNotNull(original);
+				assertSame(original, schema.getTripleExprsMap().get(original.getId()));
+				assertSame(tc.getShapeExpr(), original.getShapeExpr());
+			}
+		}
+	}
+	
+	@Test
+	public void testMatchingsUseTheOriginalLabels() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","overlapping.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		IRI focusNode = rdfFactory.createIRI("http://a.example/n");
+		Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+		for (int i = 0; i < 3; i++)
+			graph.add(focusNode, rdfFactory.createIRI("http://a.example/a"), rdfFactory.createLiteral("v"+i));
+		
+		List<LocalMatching> matchings = new ArrayList<>();
+		RefineValidation validation = new RefineValidation(schema, graph);
+		validation.addMatchingObserver(new MatchingCollector() {
+			@Override
+			public void updateMatching(RDFTerm node, Label label, LocalMatching matching) {
+				if (matching != null)
+					matchings.add(matching);
+			}
+		});
+		assertTrue(validation.validate(focusNode, new Label(rdfFactory.createIRI("http://a.example/S"))));
+		assertTrue(! matchings.isEmpty());
+		for (LocalMatching matching : matchings) {
+			assertTrue(matching.hasMatching());
+			for (Label label : matching.getMatching().values())
+				assertTrue(schema.getTripleExprsMap().get(label) instanceof TripleConstraint);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.Pair;
+
+public class TestStreamingValidation {
+	private final static RDF4J rdfFactory = new RDF4J();
+
+	@Test
+	public void testSameResultsAsRecursive() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","local.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Label p = new Label(rdfFactory.createIRI("http://a.example/P"));
+		Label q = new Label(rdfFactory.createIRI("http://a.example/Q"));
+
+		Model model = new LinkedHashModel();
+		Graph graph = rdfFactory.asGraph(model);
+		IRI name = rdfFactory.createIRI("http://a.example/name");
+		IRI age = rdfFactory.createIRI("http://a.example/age");
+		IRI knows = rdfFactory.createIRI("http://a.example/knows");
+		IRI other = rdfFactory.createIRI("http://a.example/other");
+		for (int i = 0; i < 40; i++) {
+			BlankNodeOrIRI n = node(i);
+			if (i % 5 != 0)
+				graph.add(n, name, rdfFactory.createLiteral("n"+i));
+			if (i % 3 == 0)
+				graph.add(n, age, rdfFactory.createLiteral(String.valueOf(i), rdfFactory.createIRI("http://www.w3.org/2001/XMLSchema#integer")));
+			if (i % 7 == 0)
+				graph.add(n, age, rdfFactory.createLiteral("old"));
+			if (i % 4 == 0)
+				graph.add(n, other, rdfFactory.createLiteral("x"));
+			graph.add(n, knows, node((i+1)%40));
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Rio.write(model, out, RDFFormat.NTRIPLES);
+		
+		StreamingValidation streaming = new StreamingValidation(schema, Arrays.asList(p,q));
+		Map<Pair<RDFTerm,Label>,Boolean> results = new HashMap<>();
+		streaming.validate(new ByteArrayInputStream(out.toByteArray()), RDFFormat.NTRIPLES, "http://a.example/", 
+				(node, label, conformant) -> results.put(new Pair<>(node, label), conformant));
+		
+		RecursiveValidation validation = new RecursiveValidation(schema, graph);
+		assertEquals(80, results.size());
+		for (int i = 0; i < 40; i++) {
+			BlankNodeOrIRI n = node(i);
+			assertEquals(validation.validate(n, p), results.get(new Pair<>(n, p)));
+			assertEquals(validation.validate(n, q), results.get(new Pair<>(n, q)));
+		}
+		
+		Map<Pair<RDFTerm,Label>,Boolean> tripleResults = new HashMap<>();
+		streaming.validate(graph.iterate().iterator(), (node, label, conformant) -> tripleResults.put(new Pair<>(node, label), conformant));
+		assertEquals(results, tripleResults);
+	}
+	
+	@Test
+	public void testBlankNodesKeepTheirLabels() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","local.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Label p = new Label(rdfFactory.createIRI("http://a.example/P"));
+		
+		// labels longer than 32 characters are hashed by the parser unless they are preserved
+		List<String> subjects = Arrays.asList("<http://a.example/n1>", "_:b1", "_:b10", "_:b2", 
+				"_:subject0000000000000000000000000000001", "_:subject0000000000000000000000000000002", "_:subject0000000000000000000000000000010");
+		StringBuilder data = new StringBuilder();
+		for (String subject : subjects)
+			data.append(subject+" <http://a.example/name> \"a\" .\n");
+		List<String> results = new ArrayList<>();
+		new StreamingValidation(schema, Arrays.asList(p)).validate(new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8)), RDFFormat.NTRIPLES, "http://a.example/", 
+				(node, label, conformant) -> results.add(node.ntriplesString()));
+		assertEquals(subjects, results);
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testSubjectAppearsAgain() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","local.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Label p = new Label(rdfFactory.createIRI("http://a.example/P"));
+		
+		String data = "<http://a.example/n1> <http://a.example/name> \"a\" .\n"
+				+ "<http://a.example/n2> <http://a.example/name> \"b\" .\n"
+				+ "<http://a.example/n1> <http://a.example/age> \"1\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n";
+		new StreamingValidation(schema, Arrays.asList(p)).validate(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), RDFFormat.NTRIPLES, "http://a.example/", 
+				(node, label, conformant) -> {});
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testUnsortedTriples() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","local.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Label p = new Label(rdfFactory.createIRI("http://a.example/P"));
+		
+		Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+		IRI name = rdfFactory.createIRI("http://a.example/name");
+		graph.add(node(2), name, rdfFactory.createLiteral("b"));
+		graph.add(node(1), name, rdfFactory.createLiteral("a"));
+		new StreamingValidation(schema, Arrays.asList(p)).validate(graph.iterate().iterator(), (node, label, conformant) -> {});
+	}
+	
+	/** The names are zero-padded, so that the nodes are sorted. */
+	private static IRI node(int i) {
+		return rdfFactory.createIRI(String.format("http://a.example/n%02d", i));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testNonLocalLabel() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+		assertFalse(new StreamingValidation(schema, Arrays.asList()).isLocal(label));
+		new StreamingValidation(schema, Arrays.asList(label));
+	}
+}
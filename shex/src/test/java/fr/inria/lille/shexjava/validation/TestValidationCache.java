@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
+import org.apache.commons.rdf.api.Graph;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.rdf4j.RDF4J;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.analysis.Configuration;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.validation.ValidationCache.EvictionPolicy;
+
+public class TestValidationCache {
+	private final static RDF4J rdfFactory = new RDF4J();
+	private final static Label label = new Label(rdfFactory.createIRI("http://a.example/S"));
+
+	@Test
+	public void testLRUEviction() {
+		ValidationCache cache = new ValidationCache(2, EvictionPolicy.LRU);
+		IRI n1 = rdfFactory.createIRI("http://a.example/n1");
+		IRI n2 = rdfFactory.createIRI("http://a.example/n2");
+		IRI n3 = rdfFactory.createIRI("http://a.example/n3");
+		cache.put(n1, label, Status.CONFORMANT);
+		cache.put(n2, label, Status.NONCONFORMANT);
+		assertEquals(Status.CONFORMANT, cache.get(n1, label));
+		cache.put(n3, label, Status.CONFORMANT);
+		assertEquals(2, cache.size());
+		assertEquals(Status.NOTCOMPUTED, cache.get(n2, label));
+		assertEquals(Status.CONFORMANT, cache.get(n1, label));
+		assertEquals(Status.CONFORMANT, cache.get(n3, label));
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testLFUEviction() {
+		ValidationCache cache = new ValidationCache(2, EvictionPolicy.LFU);
+		IRI n1 = rdfFactory.createIRI("http://a.example/n1");
+		IRI n2 = rdfFactory.createIRI("http://a.example/n2");
+		IRI n3 = rdfFactory.createIRI("http://a.example/n3");
+		cache.put(n1, label, Status.CONFORMANT);
+		cache.put(n2, label, Status.NONCONFORMANT);
+		cache.get(n1, label);
+		cache.get(n1, label);
+		cache.get(n2, label);
+		cache.put(n3, label, Status.CONFORMANT);
+		assertEquals(Status.NOTCOMPUTED, cache.get(n2, label));
+		cache.put(n2, label, Status.NONCONFORMANT);
+		assertEquals(Status.NOTCOMPUTED, cache.get(n3, label));
+		assertEquals(Status.CONFORMANT, cache.get(n1, label));
+		assertEquals(Status.NONCONFORMANT, cache.get(n2, label));
+		assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	public void testResultsReusedBetweenCalls() throws Exception {
+		Path schema_file = Paths.get(Configuration.shexTestPath.toString(),"other","chain.shex");
+		ShexSchema schema = GenParser.parseSchema(rdfFactory,schema_file);
+		Graph graph = rdfFactory.asGraph(new LinkedHashModel());
+		int nbNodes = 30;
+		for (int i = 0; i < nbNodes; i++) {
+			BlankNodeOrIRI n = rdfFactory.createIRI("http://a.example/n"+i);
+			if (i < nbNodes-1)
+				graph.add(n,rdfFactory.createIRI("http://a.example/a"),rdfFactory.createIRI("http://a.example/n"+(i+1)));
+			graph.add(n,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createIRI("http://a.example/cv"));
+		}
+		// a cycle, whose intermediate results depend on the hypothesis of the first call
+		IRI loop = rdfFactory.createIRI("http://a.example/loop");
+		graph.add(loop,rdfFactory.createIRI("http://a.example/a"),loop);
+		graph.add(loop,rdfFactory.createIRI("http://a.example/c"),rdfFactory.createIRI("http://a.example/cv"));
+
+		ValidationCache cache = new ValidationCache(1000, EvictionPolicy.LRU);
+		RecursiveValidation validation = new RecursiveValidation(schema, graph, cache);
+		assertTrue(validation.validate(rdfFactory.createIRI("http://a.example/n0"), label));
+		// the chain and the value of :c, which is also evaluated against a label
+		assertEquals(nbNodes+1, cache.size());
+		cache.resetStatistics();
+		for (int i = 1; i < nbNodes; i++)
+			assertTrue(validation.validate(rdfFactory.createIRI("http://a.example/n"+i), label));
+		assertEquals(0, cache.getMisses());
+		assertEquals(nbNodes-1, cache.getHits());
+
+		assertTrue(validation.validate(loop, label));
+		assertEquals(Status.CONFORMANT, cache.get(loop, label));
+		assertFalse(validation.validate(rdfFactory.createIRI("http://a.example/cv"), label));
+	}
+}